@@ -0,0 +1,128 @@
+package com.alphasystem.app.morphologicalengine.docx;
+
+import com.alphasystem.app.morphologicalengine.spring.MorphologicalEngineConfiguration;
+import com.alphasystem.arabic.model.NamedTemplate;
+import com.alphasystem.arabic.ui.util.FontUtilities;
+import com.alphasystem.morphologicalanalysis.morphology.model.ChartConfiguration;
+import com.alphasystem.morphologicalanalysis.morphology.model.ConjugationData;
+import com.alphasystem.morphologicalanalysis.morphology.model.ConjugationTemplate;
+import com.alphasystem.morphologicalanalysis.morphology.model.RootLetters;
+import com.alphasystem.morphologicalanalysis.morphology.model.support.VerbalNoun;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.alphasystem.arabic.model.ArabicLetterType.*;
+import static com.alphasystem.arabic.model.NamedTemplate.*;
+import static com.alphasystem.morphologicalanalysis.morphology.model.support.VerbalNoun.VERBAL_NOUN_V1;
+
+/**
+ * Shared fixtures for benchmarks.
+ *
+ * @author sali
+ */
+final class BenchmarkSupport {
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * Creates application context with chart cache disabled, so that repeated roots are always conjugated. Setting is
+     * only visible to this context, other benchmarks of the same fork are not affected.
+     */
+    static AnnotationConfigApplicationContext createContext() {
+        final AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("benchmark",
+                Collections.singletonMap("morphological.chart.cache.size", 0)));
+        context.register(MorphologicalEngineConfiguration.class, MorphologicalChartConfiguration.class);
+        context.refresh();
+        return context;
+    }
+
+    static ChartConfiguration createChartConfiguration(boolean omitToc, boolean omitTitle, boolean omitHeader,
+                                                       boolean omitAbbreviatedConjugation,
+                                                       boolean omitDetailedConjugation) {
+        ChartConfiguration chartConfiguration = new ChartConfiguration();
+        chartConfiguration.setArabicFontFamily(FontUtilities.defaultArabicFontName);
+        chartConfiguration.setArabicFontSize(FontUtilities.defaultArabicRegularFontSize);
+        chartConfiguration.setHeadingFontSize(FontUtilities.defaultArabicHeadingFontSize);
+        chartConfiguration.setTranslationFontFamily(FontUtilities.defaultEnglishFontName);
+        chartConfiguration.setTranslationFontSize(FontUtilities.DEFAULT_ENGLISH_FONT_SIZE);
+        return chartConfiguration.omitToc(omitToc).omitTitle(omitTitle).omitHeader(omitHeader)
+                .omitAbbreviatedConjugation(omitAbbreviatedConjugation).omitDetailedConjugation(omitDetailedConjugation);
+    }
+
+    /**
+     * Creates template with given number of entries, entries cycle through a fixed set of roots covering different
+     * forms and weak letters.
+     */
+    static ConjugationTemplate createTemplate(ChartConfiguration chartConfiguration, int numOfRoots) {
+        final List<ConjugationData> entries = createEntries();
+        ConjugationTemplate conjugationTemplate = new ConjugationTemplate();
+        conjugationTemplate.setChartConfiguration(chartConfiguration);
+        for (int index = 0; index < numOfRoots; index++) {
+            final ConjugationData source = entries.get(index % entries.size());
+            conjugationTemplate.withData(createConjugationData(source.getTemplate(), source.getTranslation(),
+                    source.getRootLetters(), source.getVerbalNouns()));
+        }
+        return conjugationTemplate;
+    }
+
+    static List<ConjugationData> createEntries() {
+        final List<ConjugationData> entries = new ArrayList<>();
+        entries.add(createConjugationData(FORM_I_CATEGORY_A_GROUP_U_TEMPLATE, "To Help", new RootLetters(NOON, SAD, RA),
+                Collections.singletonList(VERBAL_NOUN_V1)));
+        entries.add(createConjugationData(FORM_I_CATEGORY_A_GROUP_U_TEMPLATE, "To Say", new RootLetters(QAF, WAW, LAM),
+                Collections.singletonList(VERBAL_NOUN_V1)));
+        entries.add(createConjugationData(FORM_I_CATEGORY_A_GROUP_U_TEMPLATE, "To Eat", new RootLetters(HAMZA, KAF, LAM),
+                Collections.singletonList(VERBAL_NOUN_V1)));
+        entries.add(createConjugationData(FORM_II_TEMPLATE, "To know", new RootLetters(AIN, LAM, MEEM), null));
+        entries.add(createConjugationData(FORM_III_TEMPLATE, "To struggle", new RootLetters(JEEM, HA, DAL), null));
+        entries.add(createConjugationData(FORM_IV_TEMPLATE, "To submit", new RootLetters(SEEN, LAM, MEEM), null));
+        entries.add(createConjugationData(FORM_IV_TEMPLATE, "To Establish", new RootLetters(QAF, WAW, MEEM), null));
+        entries.add(createConjugationData(FORM_IX_TEMPLATE, "To collapse", new RootLetters(NOON, QAF, DDAD), null));
+        entries.add(createConjugationData(FORM_VII_TEMPLATE, null, new RootLetters(KAF, SEEN, RA), null));
+        entries.add(createConjugationData(FORM_VIII_TEMPLATE, null, new RootLetters(HAMZA, KHA, THAL), null));
+        entries.add(createConjugationData(FORM_I_CATEGORY_A_GROUP_U_TEMPLATE, null, new RootLetters(MEEM, DAL, DAL), null));
+        entries.add(createConjugationData(FORM_I_CATEGORY_A_GROUP_I_TEMPLATE, null, new RootLetters(DTHA, LAM, LAM), null));
+        return entries;
+    }
+
+    private static ConjugationData createConjugationData(NamedTemplate template, String translation,
+                                                         RootLetters rootLetters, List<VerbalNoun> verbalNouns) {
+        final ConjugationData conjugationData = new ConjugationData();
+        conjugationData.setTemplate(template);
+        conjugationData.setTranslation(translation);
+        if (verbalNouns != null && !verbalNouns.isEmpty()) {
+            conjugationData.setVerbalNouns(new ArrayList<>(verbalNouns));
+        }
+        conjugationData.setRootLetters(rootLetters);
+        return conjugationData;
+    }
+
+    /**
+     * Output stream which discards everything written to it.
+     */
+    static final class NullOutputStream extends OutputStream {
+
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
+}
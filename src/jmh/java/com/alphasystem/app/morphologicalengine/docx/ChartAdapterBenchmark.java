@@ -0,0 +1,64 @@
+package com.alphasystem.app.morphologicalengine.docx;
+
+import com.alphasystem.morphologicalanalysis.morphology.model.ChartConfiguration;
+import com.alphasystem.morphologicalanalysis.morphology.model.ConjugationData;
+import com.alphasystem.morphologicalengine.model.MorphologicalChart;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures building of abbreviated and detailed tables for already conjugated charts.
+ *
+ * @author sali
+ */
+@State(Scope.Benchmark)
+public class ChartAdapterBenchmark {
+
+    @Param({"1", "50", "1000"})
+    public int numOfRoots;
+
+    @Param({"false", "true"})
+    public boolean omitTitle;
+
+    @Param({"false", "true"})
+    public boolean omitHeader;
+
+    private ChartConfiguration chartConfiguration;
+    private List<MorphologicalChart> charts;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        chartConfiguration = BenchmarkSupport.createChartConfiguration(false, omitTitle, omitHeader, false, false);
+        try (AnnotationConfigApplicationContext context = BenchmarkSupport.createContext()) {
+            final SupplierFactory supplierFactory = context.getBean(SupplierFactory.class);
+            charts = new ArrayList<>(numOfRoots);
+            for (ConjugationData conjugationData : BenchmarkSupport.createTemplate(chartConfiguration, numOfRoots).getData()) {
+                charts.add(supplierFactory.createSupplier(conjugationData).get());
+            }
+        }
+    }
+
+    @Benchmark
+    public void abbreviatedConjugation(Blackhole blackhole) {
+        for (MorphologicalChart morphologicalChart : charts) {
+            blackhole.consume(new AbbreviatedConjugationAdapter(chartConfiguration,
+                    morphologicalChart.getAbbreviatedConjugation()).getChart());
+        }
+    }
+
+    @Benchmark
+    public void detailedConjugation(Blackhole blackhole) {
+        for (MorphologicalChart morphologicalChart : charts) {
+            blackhole.consume(new DetailedConjugationAdapter(morphologicalChart.getDetailedConjugation()).getChart());
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.alphasystem.app.morphologicalengine.docx;
+
+import com.alphasystem.morphologicalanalysis.morphology.model.ChartConfiguration;
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.parts.WordprocessingML.MainDocumentPart;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.zip.Deflater;
+
+/**
+ * Measures fixed cost of creating and saving an empty document through {@link WmlHelper#createDocument}.
+ *
+ * @author sali
+ */
+@State(Scope.Benchmark)
+public class CreateDocumentBenchmark {
+
+    private DocumentAdapter documentAdapter;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        final ChartConfiguration chartConfiguration = BenchmarkSupport.createChartConfiguration(false, false, false,
+                false, false);
+        documentAdapter = new DocumentAdapter() {
+            @Override
+            public ChartConfiguration getChartConfiguration() {
+                return chartConfiguration;
+            }
+
+            @Override
+            protected void buildDocument(MainDocumentPart mdp) {
+                // no-op
+            }
+        };
+    }
+
+    @Benchmark
+    public long createDocument() throws Docx4JException {
+        final BenchmarkSupport.NullOutputStream outputStream = new BenchmarkSupport.NullOutputStream();
+        WmlHelper.createDocument(outputStream, documentAdapter, Deflater.DEFAULT_COMPRESSION);
+        return outputStream.getCount();
+    }
+}
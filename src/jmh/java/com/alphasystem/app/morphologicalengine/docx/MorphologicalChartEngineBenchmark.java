@@ -0,0 +1,64 @@
+package com.alphasystem.app.morphologicalengine.docx;
+
+import com.alphasystem.morphologicalanalysis.morphology.model.ConjugationTemplate;
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+/**
+ * Measures end to end generation of a document, from conjugation to saved package, for all combinations of omit
+ * flags of {@link com.alphasystem.morphologicalanalysis.morphology.model.ChartConfiguration}.
+ *
+ * @author sali
+ */
+@State(Scope.Benchmark)
+public class MorphologicalChartEngineBenchmark {
+
+    @Param({"1", "50", "1000"})
+    public int numOfRoots;
+
+    @Param({"false", "true"})
+    public boolean omitToc;
+
+    @Param({"false", "true"})
+    public boolean omitTitle;
+
+    @Param({"false", "true"})
+    public boolean omitHeader;
+
+    @Param({"false", "true"})
+    public boolean omitAbbreviatedConjugation;
+
+    @Param({"false", "true"})
+    public boolean omitDetailedConjugation;
+
+    private AnnotationConfigApplicationContext context;
+    private MorphologicalChartEngineFactory morphologicalChartEngineFactory;
+    private ConjugationTemplate conjugationTemplate;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        context = BenchmarkSupport.createContext();
+        morphologicalChartEngineFactory = context.getBean(MorphologicalChartEngineFactory.class);
+        conjugationTemplate = BenchmarkSupport.createTemplate(BenchmarkSupport.createChartConfiguration(omitToc,
+                omitTitle, omitHeader, omitAbbreviatedConjugation, omitDetailedConjugation), numOfRoots);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public long createDocument() throws Docx4JException {
+        final BenchmarkSupport.NullOutputStream outputStream = new BenchmarkSupport.NullOutputStream();
+        morphologicalChartEngineFactory.createMorphologicalChartEngine(conjugationTemplate).createDocument(outputStream);
+        return outputStream.getCount();
+    }
+}
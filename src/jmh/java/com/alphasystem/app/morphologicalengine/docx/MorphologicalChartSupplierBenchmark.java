@@ -0,0 +1,52 @@
+package com.alphasystem.app.morphologicalengine.docx;
+
+import com.alphasystem.morphologicalanalysis.morphology.model.ConjugationData;
+import com.alphasystem.morphologicalengine.model.MorphologicalChart;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.List;
+
+/**
+ * Measures conjugation of all entries of a template through {@link MorphologicalChartSupplier#get()}.
+ *
+ * @author sali
+ */
+@State(Scope.Benchmark)
+public class MorphologicalChartSupplierBenchmark {
+
+    @Param({"1", "50", "1000"})
+    public int numOfRoots;
+
+    private AnnotationConfigApplicationContext context;
+    private SupplierFactory supplierFactory;
+    private List<ConjugationData> data;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        context = BenchmarkSupport.createContext();
+        supplierFactory = context.getBean(SupplierFactory.class);
+        data = BenchmarkSupport.createTemplate(BenchmarkSupport.createChartConfiguration(false, false, false, false,
+                false), numOfRoots).getData();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void get(Blackhole blackhole) {
+        for (ConjugationData conjugationData : data) {
+            final MorphologicalChart morphologicalChart = supplierFactory.createSupplier(conjugationData).get();
+            blackhole.consume(morphologicalChart);
+        }
+    }
+}
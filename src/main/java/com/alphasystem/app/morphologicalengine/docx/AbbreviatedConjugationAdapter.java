@@ -3,10 +3,7 @@ package com.alphasystem.app.morphologicalengine.docx;
 import org.apache.commons.lang3.StringUtils;
 import org.docx4j.wml.P;
 import org.docx4j.wml.PPr;
-import org.docx4j.wml.ParaRPr;
 import org.docx4j.wml.R;
-import org.docx4j.wml.RFonts;
-import org.docx4j.wml.RPr;
 import org.docx4j.wml.Tbl;
 import org.docx4j.wml.Text;
 
@@ -17,30 +14,21 @@ import com.alphasystem.openxml.builder.wml.PBuilder;
 import com.alphasystem.openxml.builder.wml.WmlAdapter;
 import com.alphasystem.openxml.builder.wml.table.TableAdapter;
 
-import static com.alphasystem.app.morphologicalengine.docx.WmlHelper.ADVERB_PREFIX;
-import static com.alphasystem.app.morphologicalengine.docx.WmlHelper.ARABIC_HEADING_STYLE;
-import static com.alphasystem.app.morphologicalengine.docx.WmlHelper.ARABIC_NORMAL_STYLE;
-import static com.alphasystem.app.morphologicalengine.docx.WmlHelper.COMMAND_PREFIX;
-import static com.alphasystem.app.morphologicalengine.docx.WmlHelper.FORBIDDING_PREFIX;
-import static com.alphasystem.app.morphologicalengine.docx.WmlHelper.PARTICIPLE_PREFIX;
+import static com.alphasystem.app.morphologicalengine.docx.WmlHelper.ADVERB_PREFIX_TEXT;
+import static com.alphasystem.app.morphologicalengine.docx.WmlHelper.COMMAND_PREFIX_TEXT;
+import static com.alphasystem.app.morphologicalengine.docx.WmlHelper.FORBIDDING_PREFIX_TEXT;
+import static com.alphasystem.app.morphologicalengine.docx.WmlHelper.PARTICIPLE_PREFIX_TEXT;
+import static com.alphasystem.app.morphologicalengine.docx.WmlHelper.addBookmark;
 import static com.alphasystem.app.morphologicalengine.docx.WmlHelper.addSeparatorRow;
 import static com.alphasystem.app.morphologicalengine.docx.WmlHelper.getArabicTextP;
 import static com.alphasystem.app.morphologicalengine.docx.WmlHelper.getMultiWord;
 import static com.alphasystem.app.morphologicalengine.docx.WmlHelper.getNilBorderColumnProperties;
 import static com.alphasystem.openxml.builder.wml.WmlAdapter.getEmptyParaNoSpacing;
 import static com.alphasystem.openxml.builder.wml.WmlAdapter.getText;
-import static com.alphasystem.openxml.builder.wml.WmlBuilderFactory.BOOLEAN_DEFAULT_TRUE_TRUE;
-import static com.alphasystem.openxml.builder.wml.WmlBuilderFactory.JC_CENTER;
 import static com.alphasystem.openxml.builder.wml.WmlBuilderFactory.getPBuilder;
-import static com.alphasystem.openxml.builder.wml.WmlBuilderFactory.getPPrBuilder;
-import static com.alphasystem.openxml.builder.wml.WmlBuilderFactory.getParaRPrBuilder;
 import static com.alphasystem.openxml.builder.wml.WmlBuilderFactory.getRBuilder;
-import static com.alphasystem.openxml.builder.wml.WmlBuilderFactory.getRFontsBuilder;
-import static com.alphasystem.openxml.builder.wml.WmlBuilderFactory.getRPrBuilder;
-import static com.alphasystem.util.IdGenerator.nextId;
 import static java.lang.String.format;
 import static org.apache.commons.lang3.ArrayUtils.isEmpty;
-import static org.docx4j.wml.STHint.CS;
 
 /**
  * @author sali
@@ -50,11 +38,27 @@ public final class AbbreviatedConjugationAdapter extends ChartAdapter {
     private final ChartConfiguration chartConfiguration;
     private final AbbreviatedConjugation[] abbreviatedConjugations;
     private final TableAdapter tableAdapter;
+    private final RenderContext context;
+    private final IdAllocator ids;
+    private final FormattingPool formattingPool;
+    private final FormattingPool.Fonts fonts;
 
     AbbreviatedConjugationAdapter(ChartConfiguration chartConfiguration, AbbreviatedConjugation... abbreviatedConjugations) {
+        this(new RenderContext(), chartConfiguration, abbreviatedConjugations);
+    }
+
+    /**
+     * @param context render context of the document this chart is added to
+     */
+    AbbreviatedConjugationAdapter(RenderContext context, ChartConfiguration chartConfiguration,
+                                  AbbreviatedConjugation... abbreviatedConjugations) {
+        this.context = context;
+        this.ids = context.getIds();
         this.chartConfiguration = (chartConfiguration == null) ? new ChartConfiguration() : chartConfiguration;
         this.abbreviatedConjugations = isEmpty(abbreviatedConjugations) ? new AbbreviatedConjugation[0] : abbreviatedConjugations;
         this.tableAdapter = new TableAdapter().startTable(25.0, 25.0, 25.0, 25.0);
+        this.formattingPool = context.getFormattingPool();
+        this.fonts = formattingPool.getFonts(this.chartConfiguration);
     }
 
     @Override
@@ -77,7 +81,7 @@ public final class AbbreviatedConjugationAdapter extends ChartAdapter {
             }
             addCommandLine(abbreviatedConjugation);
             addAdverbLine(abbreviatedConjugation);
-            addSeparatorRow(tableAdapter, 4);
+            addSeparatorRow(tableAdapter, context, 4);
         }
 
         return tableAdapter.getTable();
@@ -93,7 +97,7 @@ public final class AbbreviatedConjugationAdapter extends ChartAdapter {
         // if there is no header and if there is translation then display translation
         final String translation = abbreviatedConjugation.getConjugationHeader().getTranslation();
         if (chartConfiguration.isOmitHeader() && StringUtils.isNotBlank(translation)) {
-            final P translationPara = getTranslationPara(nextId(), nextId(), translation);
+            final P translationPara = getTranslationPara(ids.nextId(), ids.nextId(), translation);
             tableAdapter
                     .startRow()
                     .addColumn(0, 4, getNilBorderColumnProperties(), translationPara)
@@ -106,34 +110,31 @@ public final class AbbreviatedConjugationAdapter extends ChartAdapter {
     }
 
     private P createTitlePara(AbbreviatedConjugation abbreviatedConjugation) {
-        final String id = nextId();
+        final String id = ids.nextId();
 
-        final RFonts rFonts = getRFontsBuilder().withHint(CS).getObject();
-        final RPr rpr = getRPrBuilder().withRFonts(rFonts).withRtl(BOOLEAN_DEFAULT_TRUE_TRUE).getObject();
         final ConjugationHeader conjugationHeader = abbreviatedConjugation.getConjugationHeader();
         String title = conjugationHeader.getTitle();
         final Text text = getText(title);
-        final R r = getRBuilder().withRsidRPr(id).withRPr(rpr).addContent(text).getObject();
+        final R r = getRBuilder().withRsidRPr(id).withRPr(formattingPool.getArabicRunProperties()).addContent(text).getObject();
 
-        final ParaRPr paraRPr = getParaRPrBuilder().getObject();
-        PPr ppr = getPPrBuilder().withPStyle(ARABIC_HEADING_STYLE).withBidi(BOOLEAN_DEFAULT_TRUE_TRUE).withRPr(paraRPr).getObject();
+        PPr ppr = formattingPool.getTitleParagraphProperties();
 
         final PBuilder pBuilder = getPBuilder().withParaId(id).withRsidP(id).withRsidR(id).withRsidRDefault(id).withRsidRPr(id)
                 .withPPr(ppr).addContent(r);
         final P p = pBuilder.getObject();
-        WmlAdapter.addBookMark(p, id);
+        addBookmark(context, p, id);
         return p;
     }
 
     private void addHeaderRow(ConjugationHeader conjugationHeader) {
-        String rsidR = nextId();
-        String rsidP = nextId();
+        String rsidR = ids.nextId();
+        String rsidP = ids.nextId();
 
         // translation
         P translationPara = getTranslationPara(rsidR, rsidP, conjugationHeader.getTranslation());
 
         // second column paras
-        String rsidRpr = nextId();
+        String rsidRpr = ids.nextId();
         P labelP1 = getHeaderLabelPara(rsidR, rsidRpr, rsidP, conjugationHeader.getTypeLabel1());
         P labelP2 = getHeaderLabelPara(rsidR, rsidRpr, rsidP, conjugationHeader.getTypeLabel2());
         P labelP3 = getHeaderLabelPara(rsidR, rsidRpr, rsidP, conjugationHeader.getTypeLabel3());
@@ -146,27 +147,20 @@ public final class AbbreviatedConjugationAdapter extends ChartAdapter {
     private P getTranslationPara(String rsidR, String rsidP, String translation) {
         translation = (translation == null) ? "" : format("%s", translation);
         Text text = getText(translation, null);
-        final String translationFontFamily = chartConfiguration.getTranslationFontFamily();
-        RFonts rFonts = getRFontsBuilder().withAscii(translationFontFamily).withHAnsi(translationFontFamily).getObject();
-        final long translationFontSize = chartConfiguration.getTranslationFontSize() * 2;
-        RPr rpr = getRPrBuilder().withRFonts(rFonts).withSz(translationFontSize).withSzCs(translationFontSize).getObject();
-        R r = getRBuilder().withRsidR(rsidR).withRPr(rpr).addContent(text).getObject();
-        String rsidRpr = nextId();
-        ParaRPr prpr = getParaRPrBuilder().withRFonts(rFonts).getObject();
-        PPr ppr = getPPrBuilder().withJc(JC_CENTER).withRPr(prpr).getObject();
+        R r = getRBuilder().withRsidR(rsidR).withRPr(fonts.getTranslationRunProperties()).addContent(text)
+                .getObject();
+        String rsidRpr = ids.nextId();
+        PPr ppr = fonts.getTranslationParagraphProperties();
         return getPBuilder().withRsidR(rsidR).withRsidRDefault(rsidR).withRsidP(rsidP).withRsidRPr(rsidRpr).withPPr(ppr)
                 .addContent(r).getObject();
     }
 
     private P getHeaderLabelPara(String rsidR, String rsidRpr, String rsidP, String label) {
-        final long arabicFontSize = chartConfiguration.getArabicFontSize() * 2;
-        ParaRPr prpr = getParaRPrBuilder().withSz(arabicFontSize).withSzCs(arabicFontSize).getObject();
-        PPr ppr = getPPrBuilder().withPStyle(ARABIC_NORMAL_STYLE).withBidi(BOOLEAN_DEFAULT_TRUE_TRUE).withRPr(prpr).getObject();
+        PPr ppr = fonts.getHeaderLabelParagraphProperties();
 
         Text text = getText(label, null);
-        final RFonts rFonts = getRFontsBuilder().withHint(CS).getObject();
-        RPr rpr = getRPrBuilder().withRFonts(rFonts).withSz(arabicFontSize).withSzCs(arabicFontSize).getObject();
-        R r = getRBuilder().withRsidR(rsidR).withRPr(rpr).addContent(text).getObject();
+        R r = getRBuilder().withRsidR(rsidR).withRPr(fonts.getHeaderLabelRunProperties()).addContent(text)
+                .getObject();
 
         return getPBuilder().withRsidR(rsidR).withRsidRDefault(rsidR).withRsidP(rsidP).withRsidRPr(rsidRpr).withPPr(ppr)
                 .addContent(r).getObject();
@@ -175,36 +169,36 @@ public final class AbbreviatedConjugationAdapter extends ChartAdapter {
     private void addActiveLineRow(AbbreviatedConjugation abbreviatedConjugation) {
         tableAdapter
                 .startRow()
-                .addColumn(0, getArabicTextP(PARTICIPLE_PREFIX, abbreviatedConjugation.getActiveParticipleMasculine().getLabel()))
-                .addColumn(1, getArabicTextP(getMultiWord(abbreviatedConjugation.getVerbalNouns())))
-                .addColumn(2, getArabicTextP(abbreviatedConjugation.getPresentTense().getLabel()))
-                .addColumn(3, getArabicTextP(abbreviatedConjugation.getPastTense().getLabel()))
+                .addColumn(0, getArabicTextP(context, PARTICIPLE_PREFIX_TEXT, abbreviatedConjugation.getActiveParticipleMasculine().getLabel()))
+                .addColumn(1, getArabicTextP(context, getMultiWord(abbreviatedConjugation.getVerbalNouns())))
+                .addColumn(2, getArabicTextP(context, abbreviatedConjugation.getPresentTense().getLabel()))
+                .addColumn(3, getArabicTextP(context, abbreviatedConjugation.getPastTense().getLabel()))
                 .endRow();
     }
 
     private void addPassiveLine(AbbreviatedConjugation abbreviatedConjugation) {
         tableAdapter
                 .startRow()
-                .addColumn(0, getArabicTextP(PARTICIPLE_PREFIX, abbreviatedConjugation.getPassiveParticipleMasculine().getLabel()))
-                .addColumn(1, getArabicTextP(getMultiWord(abbreviatedConjugation.getVerbalNouns())))
-                .addColumn(2, getArabicTextP(abbreviatedConjugation.getPresentPassiveTense().getLabel()))
-                .addColumn(3, getArabicTextP(abbreviatedConjugation.getPastPassiveTense().getLabel()))
+                .addColumn(0, getArabicTextP(context, PARTICIPLE_PREFIX_TEXT, abbreviatedConjugation.getPassiveParticipleMasculine().getLabel()))
+                .addColumn(1, getArabicTextP(context, getMultiWord(abbreviatedConjugation.getVerbalNouns())))
+                .addColumn(2, getArabicTextP(context, abbreviatedConjugation.getPresentPassiveTense().getLabel()))
+                .addColumn(3, getArabicTextP(context, abbreviatedConjugation.getPastPassiveTense().getLabel()))
                 .endRow();
     }
 
     private void addCommandLine(AbbreviatedConjugation abbreviatedConjugation) {
         tableAdapter
                 .startRow()
-                .addColumn(0, 2, null, getArabicTextP(FORBIDDING_PREFIX,
+                .addColumn(0, 2, null, getArabicTextP(context, FORBIDDING_PREFIX_TEXT,
                         abbreviatedConjugation.getForbidding().getLabel()))
-                .addColumn(2, 2, null, getArabicTextP(COMMAND_PREFIX,
+                .addColumn(2, 2, null, getArabicTextP(context, COMMAND_PREFIX_TEXT,
                         abbreviatedConjugation.getImperative().getLabel())).endRow();
     }
 
     private void addAdverbLine(AbbreviatedConjugation abbreviatedConjugation) {
         tableAdapter
                 .startRow()
-                .addColumn(0, 4, null, getArabicTextP(ADVERB_PREFIX, getMultiWord(abbreviatedConjugation.getAdverbs())))
+                .addColumn(0, 4, null, getArabicTextP(context, ADVERB_PREFIX_TEXT, getMultiWord(abbreviatedConjugation.getAdverbs())))
                 .endRow();
     }
 
@@ -8,6 +8,10 @@ import com.alphasystem.morphologicalengine.model.AbbreviatedConjugation;
  */
 public interface AbbreviatedConjugationFactory {
 
-    AbbreviatedConjugationAdapter createAbbreviatedConjugationAdapter(ChartConfiguration chartConfiguration,
+    /**
+     * @param context render context of the document the chart is added to
+     */
+    AbbreviatedConjugationAdapter createAbbreviatedConjugationAdapter(RenderContext context,
+                                                                      ChartConfiguration chartConfiguration,
                                                                       AbbreviatedConjugation... abbreviatedConjugations);
 }
@@ -10,7 +10,12 @@ public abstract class ChartAdapter extends DocumentAdapter {
 
     @Override
     protected void buildDocument(MainDocumentPart mdp) {
-        mdp.getContent().add(getChart());
+        final FlightEvents.ChartTable event = FlightEvents.beginChartTable();
+        final Tbl chart = getChart();
+        if (event.shouldCommit()) {
+            event.commit(getClass().getSimpleName(), chart.getContent().size());
+        }
+        mdp.getContent().add(chart);
     }
 
     protected abstract Tbl getChart();
@@ -0,0 +1,117 @@
+package com.alphasystem.app.morphologicalengine.docx;
+
+import com.alphasystem.arabic.model.NamedTemplate;
+import com.alphasystem.morphologicalanalysis.morphology.model.ConjugationConfiguration;
+import com.alphasystem.morphologicalanalysis.morphology.model.ConjugationData;
+import com.alphasystem.morphologicalanalysis.morphology.model.RootLetters;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import static java.lang.String.format;
+
+/**
+ * Identifies the inputs of a conjugation, two {@link ConjugationData} with equal keys produce the same
+ * {@link com.alphasystem.morphologicalengine.model.MorphologicalChart}.
+ *
+ * @author sali
+ */
+final class ConjugationKey {
+
+    private final NamedTemplate template;
+    private final String rootLetters;
+    private final List<?> verbalNouns;
+    private final List<?> adverbs;
+    private final boolean removePassiveLine;
+    private final boolean skipRuleProcessing;
+    private final String translation;
+    private final int hashCode;
+
+    private ConjugationKey(ConjugationData conjugationData) {
+        this.template = conjugationData.getTemplate();
+        this.rootLetters = conjugationData.getRootLetters().getDisplayName();
+        this.verbalNouns = copyOf(conjugationData.getVerbalNouns());
+        this.adverbs = copyOf(conjugationData.getAdverbs());
+        final ConjugationConfiguration configuration = conjugationData.getConfiguration();
+        this.removePassiveLine = (configuration != null) && configuration.isRemovePassiveLine();
+        this.skipRuleProcessing = (configuration != null) && configuration.isSkipRuleProcessing();
+        this.translation = conjugationData.getTranslation();
+        this.hashCode = Objects.hash(template, rootLetters, verbalNouns, adverbs, removePassiveLine, skipRuleProcessing,
+                translation);
+    }
+
+    /**
+     * @param conjugationData conjugation data
+     * @return key for given data or <code>null</code> if the data has nothing to conjugate
+     */
+    static ConjugationKey of(ConjugationData conjugationData) {
+        final RootLetters rootLetters = (conjugationData == null) ? null : conjugationData.getRootLetters();
+        return (rootLetters == null) ? null : new ConjugationKey(conjugationData);
+    }
+
+    /**
+     * @return hash of the inputs that is stable across JVM runs, as sixteen hexadecimal digits
+     */
+    String fingerprint() {
+        return format("%016X", fnv1a64(canonical()));
+    }
+
+    /**
+     * @return all inputs as a string that is stable across JVM runs, equal keys have equal strings
+     */
+    String canonical() {
+        return format("%s|%s", conjugationInputs(), translation);
+    }
+
+    /**
+     * @return inputs except translation as a string that is stable across JVM runs, translation only ends up in the
+     * header of a chart, so keys with equal strings conjugate to the same forms
+     */
+    String conjugationInputs() {
+        return format("%s|%s|%s|%s|%s|%s", template, rootLetters, verbalNouns, adverbs, removePassiveLine,
+                skipRuleProcessing);
+    }
+
+    /**
+     * 64 bit FNV-1a hash of given value.
+     */
+    static long fnv1a64(String value) {
+        long hash = 0xCBF29CE484222325L;
+        for (int index = 0; index < value.length(); index++) {
+            hash ^= value.charAt(index);
+            hash *= 0x100000001B3L;
+        }
+        return hash;
+    }
+
+    private static List<?> copyOf(List<?> values) {
+        return (values == null || values.isEmpty()) ? Collections.emptyList() : new ArrayList<>(values);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ConjugationKey)) {
+            return false;
+        }
+        final ConjugationKey other = (ConjugationKey) o;
+        return hashCode == other.hashCode && removePassiveLine == other.removePassiveLine &&
+                skipRuleProcessing == other.skipRuleProcessing && template == other.template &&
+                Objects.equals(rootLetters, other.rootLetters) && verbalNouns.equals(other.verbalNouns) &&
+                adverbs.equals(other.adverbs) && Objects.equals(translation, other.translation);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        return format("%s:%s", template, rootLetters);
+    }
+}
@@ -26,8 +26,17 @@ public final class DetailedConjugationAdapter extends ChartAdapter {
 
     private final DetailedConjugation[] detailedConjugations;
     private final TableAdapter tableAdapter;
+    private final RenderContext context;
 
     DetailedConjugationAdapter(DetailedConjugation... detailedConjugations) {
+        this(new RenderContext(), detailedConjugations);
+    }
+
+    /**
+     * @param context render context of the document this chart is added to
+     */
+    DetailedConjugationAdapter(RenderContext context, DetailedConjugation... detailedConjugations) {
+        this.context = context;
         this.detailedConjugations = isEmpty(detailedConjugations) ? new DetailedConjugation[0] : detailedConjugations;
         this.tableAdapter = new TableAdapter().startTable(16.24, 16.24, 16.24, 2.56, 16.24, 16.24, 16.24);
     }
@@ -78,7 +87,7 @@ public final class DetailedConjugationAdapter extends ChartAdapter {
         leftTuple = noLeftConjugations ? null : leftSideConjugations.getFirstPerson();
         rightTuple = noRightConjugations ? null : rightSideConjugations.getFirstPerson();
         addConjugationRow(leftTuple, rightTuple);
-        addSeparatorRow(tableAdapter, NUM_OF_COLUMNS);
+        addSeparatorRow(tableAdapter, context, NUM_OF_COLUMNS);
     }
 
     private void addNounPair(final NounConjugationGroup leftSideConjugations, final NounConjugationGroup rightSideConjugations) {
@@ -100,7 +109,7 @@ public final class DetailedConjugationAdapter extends ChartAdapter {
         leftTuple = noLeftConjugations ? null : leftSideConjugations.getGenitive();
         rightTuple = noRightConjugations ? null : rightSideConjugations.getGenitive();
         addConjugationRow(leftTuple, rightTuple);
-        addSeparatorRow(tableAdapter, NUM_OF_COLUMNS);
+        addSeparatorRow(tableAdapter, context, NUM_OF_COLUMNS);
     }
 
     private void addNounPairs(NounConjugationGroup[] conjugationPairs) {
@@ -125,13 +134,13 @@ public final class DetailedConjugationAdapter extends ChartAdapter {
     private void addCaptionRow(SarfTermType leftSideCaption, SarfTermType rightSideCaption) {
         TcPr leftTcPr = getColumnProperties(leftSideCaption);
         TcPr rightTcPr = getColumnProperties(rightSideCaption);
-        final String leftSideCaptionValue = (leftSideCaption == null) ? null : leftSideCaption.toLabel().toUnicode();
-        final String rightSideCaptionValue = (rightSideCaption == null) ? null : rightSideCaption.toLabel().toUnicode();
+        final String leftSideCaptionValue = FormattingPool.getLabel(leftSideCaption);
+        final String rightSideCaptionValue = FormattingPool.getLabel(rightSideCaption);
         tableAdapter
                 .startRow()
-                .addColumn(0, 3, leftTcPr, getArabicTextPWithStyle(leftSideCaptionValue, ARABIC_CAPTION_STYLE))
-                .addColumn(3, (Integer) null, VerticalMergeType.RESTART, getColumnProperties(null), createNoSpacingStyleP())
-                .addColumn(4, 3, rightTcPr, getArabicTextPWithStyle(rightSideCaptionValue, ARABIC_CAPTION_STYLE))
+                .addColumn(0, 3, leftTcPr, getArabicTextPWithStyle(context, leftSideCaptionValue, ARABIC_CAPTION_STYLE))
+                .addColumn(3, (Integer) null, VerticalMergeType.RESTART, getColumnProperties(null), createNoSpacingStyleP(context))
+                .addColumn(4, 3, rightTcPr, getArabicTextPWithStyle(context, rightSideCaptionValue, ARABIC_CAPTION_STYLE))
                 .endRow();
     }
 
@@ -143,7 +152,7 @@ public final class DetailedConjugationAdapter extends ChartAdapter {
         tableAdapter.startRow();
         int columnIndex = addConjugationColumns(leftConjugationTuple, 0);
         tableAdapter.addColumn(columnIndex += 1, (Integer) null, VerticalMergeType.CONTINUE, getNilBorderColumnProperties(),
-                createNoSpacingStyleP());
+                createNoSpacingStyleP(context));
         addConjugationColumns(rightConjugationTuple, columnIndex + 1);
         tableAdapter.endRow();
     }
@@ -151,19 +160,19 @@ public final class DetailedConjugationAdapter extends ChartAdapter {
     private int addConjugationColumns(ConjugationTuple conjugationTuple, int beginColumnIndex) {
         int columnIndex = beginColumnIndex;
         if (conjugationTuple == null) {
-            tableAdapter.addColumn(columnIndex, getNilBorderColumnProperties(), getArabicTextP(null));
-            tableAdapter.addColumn(columnIndex += 1, getNilBorderColumnProperties(), getArabicTextP(null));
-            tableAdapter.addColumn(columnIndex += 1, getNilBorderColumnProperties(), getArabicTextP(null));
+            tableAdapter.addColumn(columnIndex, getNilBorderColumnProperties(), getArabicTextP(context, null));
+            tableAdapter.addColumn(columnIndex += 1, getNilBorderColumnProperties(), getArabicTextP(context, null));
+            tableAdapter.addColumn(columnIndex += 1, getNilBorderColumnProperties(), getArabicTextP(context, null));
         } else {
             String dualValue = conjugationTuple.getDual();
             int gridSpan = dualValue == null ? 2 : 1;
-            tableAdapter.addColumn(columnIndex, gridSpan, getArabicTextP(conjugationTuple.getPlural()));
+            tableAdapter.addColumn(columnIndex, gridSpan, getArabicTextP(context, conjugationTuple.getPlural()));
 
             if (dualValue != null) {
-                tableAdapter.addColumn(columnIndex += 1, getArabicTextP(dualValue));
+                tableAdapter.addColumn(columnIndex += 1, getArabicTextP(context, dualValue));
             }
 
-            tableAdapter.addColumn(columnIndex += gridSpan, getArabicTextP(conjugationTuple.getSingular()));
+            tableAdapter.addColumn(columnIndex += gridSpan, getArabicTextP(context, conjugationTuple.getSingular()));
         }
         return columnIndex;
     }
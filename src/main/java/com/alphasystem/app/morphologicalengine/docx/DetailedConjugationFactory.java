@@ -7,5 +7,9 @@ import com.alphasystem.morphologicalengine.model.DetailedConjugation;
  */
 public interface DetailedConjugationFactory {
 
-    DetailedConjugationAdapter createDetailedConjugationAdapter(DetailedConjugation... detailedConjugations);
+    /**
+     * @param context render context of the document the chart is added to
+     */
+    DetailedConjugationAdapter createDetailedConjugationAdapter(RenderContext context,
+                                                                DetailedConjugation... detailedConjugations);
 }
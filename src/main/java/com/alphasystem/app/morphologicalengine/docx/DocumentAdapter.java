@@ -13,4 +13,12 @@ abstract class DocumentAdapter {
     }
 
     protected abstract void buildDocument(MainDocumentPart mdp);
+
+    /**
+     * Builds document while reporting phases to given monitor, by default delegates to
+     * {@link #buildDocument(MainDocumentPart)}.
+     */
+    void buildDocument(MainDocumentPart mdp, GenerationMonitor monitor) {
+        buildDocument(mdp);
+    }
 }
@@ -0,0 +1,16 @@
+package com.alphasystem.app.morphologicalengine.docx;
+
+/**
+ * Receives {@link GenerationEvent}s for each phase of document generation. Events may be delivered concurrently from
+ * multiple threads, implementations must be thread safe and should return quickly.
+ *
+ * @author sali
+ */
+@FunctionalInterface
+public interface DocumentGenerationListener {
+
+    DocumentGenerationListener NO_OP = event -> {
+    };
+
+    void onEvent(GenerationEvent event);
+}
@@ -0,0 +1,165 @@
+package com.alphasystem.app.morphologicalengine.docx;
+
+import com.alphasystem.morphologicalanalysis.morphology.model.ConjugationData;
+import com.alphasystem.morphologicalanalysis.morphology.model.RootLetters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.alphasystem.app.morphologicalengine.docx.GenerationEvent.Phase;
+import static java.lang.String.format;
+
+/**
+ * {@link DocumentGenerationListener} which aggregates events into counters and timers per {@link Phase}. Optionally
+ * logs the slowest conjugations of each document once the document is complete.
+ *
+ * @author sali
+ */
+public class DocumentGenerationMetrics implements DocumentGenerationListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DocumentGenerationMetrics.class);
+    private static final Comparator<GenerationEvent> DURATION_COMPARATOR =
+            Comparator.comparingLong(GenerationEvent::getDurationNanos);
+
+    private final Map<Phase, PhaseMetrics> metrics = new EnumMap<>(Phase.class);
+    private final int numOfSlowestCharts;
+    private final Map<Long, PriorityQueue<GenerationEvent>> slowestCharts = new ConcurrentHashMap<>();
+
+    /**
+     * @param numOfSlowestCharts number of slowest conjugations to log per document, <code>0</code> to disable
+     */
+    public DocumentGenerationMetrics(int numOfSlowestCharts) {
+        this.numOfSlowestCharts = Math.max(0, numOfSlowestCharts);
+        for (Phase phase : Phase.values()) {
+            metrics.put(phase, new PhaseMetrics());
+        }
+    }
+
+    @Override
+    public void onEvent(GenerationEvent event) {
+        final Phase phase = event.getPhase();
+        metrics.get(phase).record(event);
+        if (numOfSlowestCharts <= 0) {
+            return;
+        }
+        if (Phase.CONJUGATION.equals(phase)) {
+            final PriorityQueue<GenerationEvent> queue = slowestCharts.computeIfAbsent(event.getDocumentId(),
+                    documentId -> new PriorityQueue<>(numOfSlowestCharts + 1, DURATION_COMPARATOR));
+            synchronized (queue) {
+                queue.add(event);
+                if (queue.size() > numOfSlowestCharts) {
+                    queue.poll();
+                }
+            }
+        } else if (Phase.DOCUMENT.equals(phase)) {
+            final PriorityQueue<GenerationEvent> queue = slowestCharts.remove(event.getDocumentId());
+            if (queue != null) {
+                final List<GenerationEvent> events;
+                synchronized (queue) {
+                    events = new ArrayList<>(queue);
+                }
+                events.sort(DURATION_COMPARATOR.reversed());
+                onSlowestCharts(event, events);
+            }
+        }
+    }
+
+    /**
+     * Called once a document is complete with its slowest conjugations, logs them by default.
+     *
+     * @param documentEvent {@link Phase#DOCUMENT} event of the document
+     * @param events        {@link Phase#CONJUGATION} events of the slowest conjugations, slowest first
+     */
+    protected void onSlowestCharts(GenerationEvent documentEvent, List<GenerationEvent> events) {
+        if (!LOGGER.isInfoEnabled()) {
+            return;
+        }
+        final StringBuilder builder = new StringBuilder();
+        for (GenerationEvent event : events) {
+            final ConjugationData conjugationData = event.getConjugationData();
+            final RootLetters rootLetters = (conjugationData == null) ? null : conjugationData.getRootLetters();
+            builder.append(format("%n    %s: %s:%s %sms", event.getIndex(),
+                    (conjugationData == null) ? null : conjugationData.getTemplate(),
+                    (rootLetters == null) ? null : rootLetters.getDisplayName(), event.getDuration(TimeUnit.MILLISECONDS)));
+        }
+        LOGGER.info("Slowest conjugations of document {} ({} charts, {}ms):{}", documentEvent.getDocumentId(),
+                documentEvent.getChartCount(), documentEvent.getDuration(TimeUnit.MILLISECONDS), builder);
+    }
+
+    public long getCount(Phase phase) {
+        return metrics.get(phase).count.sum();
+    }
+
+    public long getTotalTime(Phase phase, TimeUnit unit) {
+        return unit.convert(metrics.get(phase).totalNanos.sum(), TimeUnit.NANOSECONDS);
+    }
+
+    public long getMaxTime(Phase phase, TimeUnit unit) {
+        return unit.convert(metrics.get(phase).maxNanos.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return total bytes allocated in given phase, only includes events for which allocation could be measured
+     */
+    public long getAllocatedBytes(Phase phase) {
+        return metrics.get(phase).allocatedBytes.sum();
+    }
+
+    /**
+     * @return total number of charts of completed documents
+     */
+    public long getChartCount() {
+        return metrics.get(Phase.DOCUMENT).chartCount.sum();
+    }
+
+    /**
+     * @return total number of bytes written for completed documents
+     */
+    public long getByteCount() {
+        return metrics.get(Phase.DOCUMENT).byteCount.sum();
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder("DocumentGenerationMetrics{");
+        for (Phase phase : Phase.values()) {
+            builder.append(format("%s=[count=%s, total=%sms, max=%sms, allocated=%s], ", phase, getCount(phase),
+                    getTotalTime(phase, TimeUnit.MILLISECONDS), getMaxTime(phase, TimeUnit.MILLISECONDS),
+                    getAllocatedBytes(phase)));
+        }
+        return builder.append(format("charts=%s, bytes=%s}", getChartCount(), getByteCount())).toString();
+    }
+
+    private static final class PhaseMetrics {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0L);
+        private final LongAdder allocatedBytes = new LongAdder();
+        private final LongAdder chartCount = new LongAdder();
+        private final LongAdder byteCount = new LongAdder();
+
+        private void record(GenerationEvent event) {
+            count.increment();
+            totalNanos.add(event.getDurationNanos());
+            maxNanos.accumulate(event.getDurationNanos());
+            if (event.getAllocatedBytes() > 0) {
+                allocatedBytes.add(event.getAllocatedBytes());
+            }
+            chartCount.add(event.getChartCount());
+            if (event.getByteCount() > 0) {
+                byteCount.add(event.getByteCount());
+            }
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.alphasystem.app.morphologicalengine.docx;
+
+import com.alphasystem.morphologicalanalysis.morphology.model.ChartConfiguration;
+import com.alphasystem.morphologicalanalysis.morphology.model.support.PageOrientation;
+import org.docx4j.Docx4J;
+import org.docx4j.XmlUtils;
+import org.docx4j.openpackaging.Base;
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.openpackaging.parts.DocPropsCorePart;
+import org.docx4j.openpackaging.parts.DocPropsExtendedPart;
+import org.docx4j.openpackaging.parts.JaxbXmlPart;
+import org.docx4j.openpackaging.parts.Part;
+import org.docx4j.openpackaging.parts.PartName;
+import org.docx4j.openpackaging.parts.ThemePart;
+import org.docx4j.openpackaging.parts.WordprocessingML.FontTablePart;
+import org.docx4j.openpackaging.parts.WordprocessingML.WebSettingsPart;
+import org.docx4j.openpackaging.parts.relationships.RelationshipsPart;
+import org.docx4j.relationships.Relationship;
+import org.docx4j.wml.SectPr;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static java.lang.String.format;
+
+/**
+ * Ready made empty package with all custom styles and document settings for one combination of font family, font
+ * sizes and page orientation. Each call to {@link #newPackage()} returns a new package with its own copy of the main
+ * document and every part that building a document may change, content of immutable parts is shared, see
+ * {@link #isImmutable(Part)}. Parts of the skeleton are also available serialized and pre-compressed through
+ * {@link #getParts(int)}, and its section properties as markup for documents streamed without docx4j.
+ *
+ * @author sali
+ */
+final class DocumentSkeleton {
+
+    private final Key key;
+    private final WordprocessingMLPackage prototype;
+    private final byte[] packageBytes;
+    private final byte[] sectionProperties;
+    private final long textWidth;
+    private final ConcurrentMap<Integer, Map<String, ZipPart>> parts = new ConcurrentHashMap<>();
+
+    /**
+     * @param prototype package the skeleton is built from, never handed out or changed afterwards
+     */
+    private DocumentSkeleton(Key key, WordprocessingMLPackage prototype, byte[] packageBytes,
+                             byte[] sectionProperties, long textWidth) {
+        this.key = key;
+        this.prototype = prototype;
+        this.packageBytes = packageBytes;
+        this.sectionProperties = sectionProperties;
+        this.textWidth = textWidth;
+    }
+
+    static DocumentSkeleton create(Key key) throws Docx4JException {
+        final WordprocessingMLPackage wordMLPackage = WmlHelper.buildPackage(key.fontFamily, key.normalFontSize,
+                key.headingFontSize, key.landscape);
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream(32 * 1024);
+        PackageWriter.save(wordMLPackage, outputStream);
+        final SectPr sectPr = wordMLPackage.getMainDocumentPart().getJaxbElement().getBody().getSectPr();
+        if (sectPr == null || sectPr.getPgSz() == null || sectPr.getPgSz().getW() == null) {
+            throw new Docx4JException(format("Skeleton {%s} has no page size", key));
+        }
+        final SectPr.PgMar pgMar = sectPr.getPgMar();
+        final long textWidth = sectPr.getPgSz().getW().longValue() - ((pgMar == null) ? 0L :
+                toLong(pgMar.getLeft()) + toLong(pgMar.getRight()) + toLong(pgMar.getGutter()));
+        final byte[] sectionProperties = XmlUtils.marshaltoString(sectPr, true, false).getBytes(StandardCharsets.UTF_8);
+        return new DocumentSkeleton(key, wordMLPackage, outputStream.toByteArray(), sectionProperties, textWidth);
+    }
+
+    private static long toLong(BigInteger value) {
+        return (value == null) ? 0L : value.longValue();
+    }
+
+    /**
+     * Parts nothing writes to once skeleton is built, their content is shared by all packages created from the skeleton
+     * and the pre-compressed bytes of the skeleton are always identical to them. Styles, settings and numbering are not
+     * included since building a document, for example generating table of contents, may change them.
+     *
+     * @param part part of a package created from a skeleton
+     * @return <code>true</code> if given part is never changed after skeleton is built
+     */
+    static boolean isImmutable(Part part) {
+        return part instanceof ThemePart || part instanceof FontTablePart || part instanceof WebSettingsPart ||
+                part instanceof DocPropsCorePart || part instanceof DocPropsExtendedPart;
+    }
+
+    Key getKey() {
+        return key;
+    }
+
+    byte[] getPackageBytes() {
+        return packageBytes;
+    }
+
+    /**
+     * @return <code>w:sectPr</code> element of the main document, declaring namespaces it uses
+     */
+    byte[] getSectionProperties() {
+        return sectionProperties;
+    }
+
+    /**
+     * @return width between left and right page margins in twentieths of a point
+     */
+    long getTextWidth() {
+        return textWidth;
+    }
+
+    /**
+     * Copies parts of the skeleton into a new package, falls back to loading serialized skeleton if the skeleton has a
+     * part which can not be copied, such as a binary part or an external relationship.
+     */
+    WordprocessingMLPackage newPackage() throws Docx4JException {
+        final WordprocessingMLPackage wordMLPackage = new WordprocessingMLPackage();
+        if (copyParts(prototype, wordMLPackage)) {
+            return wordMLPackage;
+        }
+        return Docx4J.load(new ByteArrayInputStream(packageBytes));
+    }
+
+    /**
+     * Adds copies of target parts of given source to given target, recursively, keeping relationship ids.
+     *
+     * @return <code>false</code> if a part can not be copied
+     */
+    private static boolean copyParts(Base source, Base target) throws Docx4JException {
+        final RelationshipsPart relationshipsPart = source.getRelationshipsPart();
+        if (relationshipsPart == null) {
+            return true;
+        }
+        for (Relationship relationship : relationshipsPart.getRelationships().getRelationship()) {
+            final Part part = relationshipsPart.getPart(relationship);
+            final Part copy = (part instanceof JaxbXmlPart) ? copyPart((JaxbXmlPart<?>) part) : null;
+            if (copy == null) {
+                return false;
+            }
+            target.addTargetPart(copy, RelationshipsPart.AddPartBehaviour.OVERWRITE_IF_NAME_EXISTS,
+                    relationship.getId());
+            if (!copyParts(part, copy)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E> JaxbXmlPart<E> copyPart(JaxbXmlPart<E> part) {
+        final JaxbXmlPart<E> copy;
+        try {
+            copy = part.getClass().getConstructor(PartName.class).newInstance(part.getPartName());
+        } catch (ReflectiveOperationException ex) {
+            return null;
+        }
+        final E element = part.getJaxbElement();
+        copy.setJaxbElement(isImmutable(part) ? element : XmlUtils.deepCopy(element, part.getJAXBContext()));
+        return copy;
+    }
+
+    /**
+     * @param compressionLevel compression level
+     * @return parts of this skeleton keyed by zip entry name, in the order they appear in the package
+     */
+    Map<String, ZipPart> getParts(int compressionLevel) {
+        return parts.computeIfAbsent(compressionLevel, this::readParts);
+    }
+
+    private Map<String, ZipPart> readParts(int compressionLevel) {
+        final Map<String, ZipPart> result = new LinkedHashMap<>();
+        final byte[] buffer = new byte[8192];
+        try (ZipInputStream zipInputStream = new ZipInputStream(new ByteArrayInputStream(packageBytes))) {
+            ZipEntry entry;
+            while ((entry = zipInputStream.getNextEntry()) != null) {
+                final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+                int read;
+                while ((read = zipInputStream.read(buffer)) != -1) {
+                    outputStream.write(buffer, 0, read);
+                }
+                final String name = entry.getName();
+                result.put(name, ZipPart.of(name, outputStream.toByteArray(), compressionLevel));
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Configuration values the skeleton depends on.
+     */
+    static final class Key {
+
+        private final String fontFamily;
+        private final long normalFontSize;
+        private final long headingFontSize;
+        private final boolean landscape;
+
+        private Key(String fontFamily, long normalFontSize, long headingFontSize, boolean landscape) {
+            this.fontFamily = fontFamily;
+            this.normalFontSize = normalFontSize;
+            this.headingFontSize = headingFontSize;
+            this.landscape = landscape;
+        }
+
+        static Key of(ChartConfiguration chartConfiguration) {
+            final PageOrientation orientation = chartConfiguration.getPageOption().getOrientation();
+            return new Key(chartConfiguration.getArabicFontFamily(), chartConfiguration.getArabicFontSize() * 2,
+                    chartConfiguration.getHeadingFontSize() * 2, PageOrientation.LANDSCAPE.equals(orientation));
+        }
+
+        boolean isLandscape() {
+            return landscape;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) o;
+            return normalFontSize == other.normalFontSize && headingFontSize == other.headingFontSize &&
+                    landscape == other.landscape && Objects.equals(fontFamily, other.fontFamily);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(fontFamily, normalFontSize, headingFontSize, landscape);
+        }
+
+        @Override
+        public String toString() {
+            return format("%s:%s:%s:%s", fontFamily, normalFontSize, headingFontSize, landscape ? "landscape" : "portrait");
+        }
+    }
+}
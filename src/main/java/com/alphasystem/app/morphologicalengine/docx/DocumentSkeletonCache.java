@@ -0,0 +1,53 @@
+package com.alphasystem.app.morphologicalengine.docx;
+
+import com.alphasystem.morphologicalanalysis.morphology.model.ChartConfiguration;
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Thread safe cache of {@link DocumentSkeleton}s, least recently used skeleton is evicted once the cache is full.
+ *
+ * @author sali
+ */
+final class DocumentSkeletonCache {
+
+    private final Map<DocumentSkeleton.Key, DocumentSkeleton> skeletons;
+
+    DocumentSkeletonCache(final int maximumSize) {
+        skeletons = new LinkedHashMap<DocumentSkeleton.Key, DocumentSkeleton>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<DocumentSkeleton.Key, DocumentSkeleton> eldest) {
+                return size() > maximumSize;
+            }
+        };
+    }
+
+    /**
+     * Returns skeleton for given configuration, skeleton is built outside of the lock on first use.
+     */
+    DocumentSkeleton get(ChartConfiguration chartConfiguration) throws Docx4JException {
+        final DocumentSkeleton.Key key = DocumentSkeleton.Key.of(chartConfiguration);
+        DocumentSkeleton skeleton;
+        synchronized (skeletons) {
+            skeleton = skeletons.get(key);
+        }
+        if (skeleton == null) {
+            skeleton = DocumentSkeleton.create(key);
+            synchronized (skeletons) {
+                final DocumentSkeleton existing = skeletons.putIfAbsent(key, skeleton);
+                if (existing != null) {
+                    skeleton = existing;
+                }
+            }
+        }
+        return skeleton;
+    }
+
+    void clear() {
+        synchronized (skeletons) {
+            skeletons.clear();
+        }
+    }
+}
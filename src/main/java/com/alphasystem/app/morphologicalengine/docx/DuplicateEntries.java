@@ -0,0 +1,76 @@
+package com.alphasystem.app.morphologicalengine.docx;
+
+import com.alphasystem.morphologicalanalysis.morphology.model.ConjugationData;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Entries of a template that produce the same chart, identified by their {@link ConjugationKey} in a single pass. Each
+ * entry refers to its source, the first entry with the same key, entries without a key are their own source.
+ *
+ * @author sali
+ */
+final class DuplicateEntries {
+
+    private final int[] sources;
+    private final int[] lastIndices;
+    private final int numOfDuplicates;
+
+    private DuplicateEntries(int[] sources, int[] lastIndices, int numOfDuplicates) {
+        this.sources = sources;
+        this.lastIndices = lastIndices;
+        this.numOfDuplicates = numOfDuplicates;
+    }
+
+    static DuplicateEntries of(List<ConjugationData> data) {
+        final int size = data.size();
+        final int[] sources = new int[size];
+        final int[] lastIndices = new int[size];
+        final Map<ConjugationKey, Integer> firstIndices = new HashMap<>();
+        int numOfDuplicates = 0;
+        for (int index = 0; index < size; index++) {
+            final ConjugationKey key = ConjugationKey.of(data.get(index));
+            final Integer source = (key == null) ? null : firstIndices.putIfAbsent(key, index);
+            sources[index] = (source == null) ? index : source;
+            lastIndices[sources[index]] = index;
+            if (source != null) {
+                numOfDuplicates++;
+            }
+        }
+        return new DuplicateEntries(sources, lastIndices, numOfDuplicates);
+    }
+
+    /**
+     * @return index of the first entry with the same key as the entry at given index
+     */
+    int getSource(int index) {
+        return sources[index];
+    }
+
+    /**
+     * @return <code>true</code> if entry at given index repeats an earlier entry
+     */
+    boolean isDuplicate(int index) {
+        return sources[index] != index;
+    }
+
+    /**
+     * @return <code>true</code> if entry at given index is repeated by a later entry
+     */
+    boolean hasDuplicates(int index) {
+        return lastIndices[index] > index;
+    }
+
+    /**
+     * @return <code>true</code> if no later entry has the same key as the entry at given index
+     */
+    boolean isLast(int index) {
+        return lastIndices[sources[index]] == index;
+    }
+
+    int getNumOfDuplicates() {
+        return numOfDuplicates;
+    }
+}
@@ -0,0 +1,165 @@
+package com.alphasystem.app.morphologicalengine.docx;
+
+/**
+ * JDK Flight Recorder events of the generation pipeline. Event types extend <code>jdk.jfr.Event</code>, which is not
+ * available on Java 8, therefore they are kept in {@link JfrEvents} and only loaded if <code>jdk.jfr.Event</code> is
+ * found, otherwise events are no-ops. Every begin method returns an event that has begun already, its fields are to be
+ * computed and committed only if {@link Event#shouldCommit()} returns <code>true</code>.
+ *
+ * @author sali
+ */
+final class FlightEvents {
+
+    private static final Factory FACTORY = createFactory();
+
+    private FlightEvents() {
+    }
+
+    private static Factory createFactory() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return (Factory) Class.forName(FlightEvents.class.getPackage().getName() + ".JfrEvents")
+                    .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError ex) {
+            // JFR not available on this JVM
+            return NoOpEvent.INSTANCE;
+        }
+    }
+
+    /**
+     * @return event for building body of a document
+     */
+    static BuildDocument beginBuildDocument() {
+        return FACTORY.beginBuildDocument();
+    }
+
+    /**
+     * @return event for rendering of one chart of a document, encloses {@link ChartTable} events of the chart
+     */
+    static RenderChart beginRenderChart() {
+        return FACTORY.beginRenderChart();
+    }
+
+    /**
+     * @return event for building of a single conjugation table
+     */
+    static ChartTable beginChartTable() {
+        return FACTORY.beginChartTable();
+    }
+
+    /**
+     * @return event for marshalling and writing of a document package
+     */
+    static SaveDocument beginSaveDocument() {
+        return FACTORY.beginSaveDocument();
+    }
+
+    /**
+     * @return event for conjugation of a single entry
+     */
+    static Conjugation beginConjugation() {
+        return FACTORY.beginConjugation();
+    }
+
+    interface Event {
+
+        /**
+         * @return <code>true</code> if event is enabled and its duration is within threshold
+         */
+        boolean shouldCommit();
+    }
+
+    interface BuildDocument extends Event {
+
+        void commit(String templateId, String outputBackend, int chartCount);
+    }
+
+    interface RenderChart extends Event {
+
+        void commit(int chartIndex, String template, String rootLetters);
+    }
+
+    interface ChartTable extends Event {
+
+        void commit(String tableType, int rowCount);
+    }
+
+    interface SaveDocument extends Event {
+
+        void commit(int compressionLevel, long bytesWritten);
+    }
+
+    interface Conjugation extends Event {
+
+        void commit(String template, String rootLetters, boolean cacheEnabled);
+    }
+
+    interface Factory {
+
+        BuildDocument beginBuildDocument();
+
+        RenderChart beginRenderChart();
+
+        ChartTable beginChartTable();
+
+        SaveDocument beginSaveDocument();
+
+        Conjugation beginConjugation();
+    }
+
+    private static final class NoOpEvent implements Factory, BuildDocument, RenderChart, ChartTable, SaveDocument,
+            Conjugation {
+
+        private static final NoOpEvent INSTANCE = new NoOpEvent();
+
+        @Override
+        public BuildDocument beginBuildDocument() {
+            return this;
+        }
+
+        @Override
+        public RenderChart beginRenderChart() {
+            return this;
+        }
+
+        @Override
+        public ChartTable beginChartTable() {
+            return this;
+        }
+
+        @Override
+        public SaveDocument beginSaveDocument() {
+            return this;
+        }
+
+        @Override
+        public Conjugation beginConjugation() {
+            return this;
+        }
+
+        @Override
+        public boolean shouldCommit() {
+            return false;
+        }
+
+        @Override
+        public void commit(String templateId, String outputBackend, int chartCount) {
+        }
+
+        @Override
+        public void commit(int chartIndex, String template, String rootLetters) {
+        }
+
+        @Override
+        public void commit(String tableType, int rowCount) {
+        }
+
+        @Override
+        public void commit(int compressionLevel, long bytesWritten) {
+        }
+
+        @Override
+        public void commit(String template, String rootLetters, boolean cacheEnabled) {
+        }
+    }
+}
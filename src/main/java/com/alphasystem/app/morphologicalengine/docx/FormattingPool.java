@@ -0,0 +1,168 @@
+package com.alphasystem.app.morphologicalengine.docx;
+
+import com.alphasystem.morphologicalanalysis.morphology.model.ChartConfiguration;
+import com.alphasystem.morphologicalanalysis.morphology.model.support.SarfTermType;
+import org.docx4j.wml.PPr;
+import org.docx4j.wml.ParaRPr;
+import org.docx4j.wml.RFonts;
+import org.docx4j.wml.RPr;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import static com.alphasystem.openxml.builder.wml.WmlBuilderFactory.*;
+import static org.docx4j.wml.STHint.CS;
+
+/**
+ * Formatting objects of conjugation tables of one document. Properties of paragraphs and runs are the same for every
+ * cell with the same style, therefore one instance per style (and per configuration where fonts are involved) is
+ * shared by all cells of the document. Pools are never shared between documents, so that documents rendered
+ * concurrently never share JAXB objects, a pool is obtained from the {@link RenderContext} of its document and like the
+ * context is not thread safe.
+ * <p>
+ * Pooled objects are read only, they must never be modified once added to a document.
+ * </p>
+ *
+ * @author sali
+ */
+final class FormattingPool {
+
+    private static final Map<SarfTermType, String> TERM_LABELS = createTermLabels();
+
+    private final RPr arabicRunProperties = getRPrBuilder().withRFonts(getRFontsBuilder().withHint(CS).getObject())
+            .withRtl(BOOLEAN_DEFAULT_TRUE_TRUE).getObject();
+    private final PPr titleParagraphProperties = getPPrBuilder().withPStyle(WmlHelper.ARABIC_HEADING_STYLE)
+            .withBidi(BOOLEAN_DEFAULT_TRUE_TRUE).withRPr(getParaRPrBuilder().getObject()).getObject();
+    private final Map<String, PPr> paragraphProperties = new HashMap<>();
+    private final Map<String, RPr> prefixRunProperties = new HashMap<>();
+    private final Map<Key, Fonts> fonts = new HashMap<>();
+
+    /**
+     * @return run properties of Arabic text
+     */
+    RPr getArabicRunProperties() {
+        return arabicRunProperties;
+    }
+
+    /**
+     * @return paragraph properties of chart title
+     */
+    PPr getTitleParagraphProperties() {
+        return titleParagraphProperties;
+    }
+
+    /**
+     * @return formatting objects that depend on fonts of given configuration
+     */
+    Fonts getFonts(ChartConfiguration chartConfiguration) {
+        return fonts.computeIfAbsent(new Key(chartConfiguration), Fonts::new);
+    }
+
+    /**
+     * @return paragraph properties with given style only
+     */
+    PPr getParagraphProperties(String pStyle) {
+        return paragraphProperties.computeIfAbsent(pStyle, style -> getPPrBuilder().withPStyle(style).getObject());
+    }
+
+    /**
+     * @return run properties of prefix text with given character style
+     */
+    RPr getPrefixRunProperties(String prefixStyle) {
+        return prefixRunProperties.computeIfAbsent(prefixStyle, style -> getRPrBuilder()
+                .withRFonts(getRFontsBuilder().withHint(CS).getObject()).withRStyle(style)
+                .withRtl(BOOLEAN_DEFAULT_TRUE_TRUE).getObject());
+    }
+
+    /**
+     * @return label of given term or <code>null</code> if term is <code>null</code>
+     */
+    static String getLabel(SarfTermType termType) {
+        return (termType == null) ? null : TERM_LABELS.get(termType);
+    }
+
+    private static Map<SarfTermType, String> createTermLabels() {
+        final Map<SarfTermType, String> labels = new EnumMap<>(SarfTermType.class);
+        for (SarfTermType termType : SarfTermType.values()) {
+            labels.put(termType, termType.toLabel().toUnicode());
+        }
+        return labels;
+    }
+
+    /**
+     * Formatting objects that depend on fonts of a configuration.
+     */
+    static final class Fonts {
+
+        private final RPr translationRunProperties;
+        private final PPr translationParagraphProperties;
+        private final RPr headerLabelRunProperties;
+        private final PPr headerLabelParagraphProperties;
+
+        private Fonts(Key key) {
+            final RFonts translationFonts = getRFontsBuilder().withAscii(key.translationFontFamily)
+                    .withHAnsi(key.translationFontFamily).getObject();
+            translationRunProperties = getRPrBuilder().withRFonts(translationFonts).withSz(key.translationFontSize)
+                    .withSzCs(key.translationFontSize).getObject();
+            final ParaRPr translationParaRPr = getParaRPrBuilder().withRFonts(translationFonts).getObject();
+            translationParagraphProperties = getPPrBuilder().withJc(JC_CENTER).withRPr(translationParaRPr).getObject();
+
+            final RFonts headerLabelFonts = getRFontsBuilder().withHint(CS).getObject();
+            headerLabelRunProperties = getRPrBuilder().withRFonts(headerLabelFonts).withSz(key.arabicFontSize)
+                    .withSzCs(key.arabicFontSize).getObject();
+            final ParaRPr headerLabelParaRPr = getParaRPrBuilder().withSz(key.arabicFontSize)
+                    .withSzCs(key.arabicFontSize).getObject();
+            headerLabelParagraphProperties = getPPrBuilder().withPStyle(WmlHelper.ARABIC_NORMAL_STYLE)
+                    .withBidi(BOOLEAN_DEFAULT_TRUE_TRUE).withRPr(headerLabelParaRPr).getObject();
+        }
+
+        RPr getTranslationRunProperties() {
+            return translationRunProperties;
+        }
+
+        PPr getTranslationParagraphProperties() {
+            return translationParagraphProperties;
+        }
+
+        RPr getHeaderLabelRunProperties() {
+            return headerLabelRunProperties;
+        }
+
+        PPr getHeaderLabelParagraphProperties() {
+            return headerLabelParagraphProperties;
+        }
+    }
+
+    private static final class Key {
+
+        private final String translationFontFamily;
+        private final long translationFontSize;
+        private final long arabicFontSize;
+
+        private Key(ChartConfiguration chartConfiguration) {
+            this.translationFontFamily = chartConfiguration.getTranslationFontFamily();
+            this.translationFontSize = chartConfiguration.getTranslationFontSize() * 2;
+            this.arabicFontSize = chartConfiguration.getArabicFontSize() * 2;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            final Key other = (Key) o;
+            return translationFontSize == other.translationFontSize && arabicFontSize == other.arabicFontSize &&
+                    Objects.equals(translationFontFamily, other.translationFontFamily);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(translationFontFamily, translationFontSize, arabicFontSize);
+        }
+    }
+}
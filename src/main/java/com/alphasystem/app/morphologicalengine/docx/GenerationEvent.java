@@ -0,0 +1,137 @@
+package com.alphasystem.app.morphologicalengine.docx;
+
+import com.alphasystem.morphologicalanalysis.morphology.model.ConjugationData;
+
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.String.format;
+
+/**
+ * Describes completion of one phase of document generation.
+ *
+ * @author sali
+ */
+public final class GenerationEvent {
+
+    public enum Phase {
+
+        /**
+         * Creation of the package including styles and settings.
+         */
+        PACKAGE_SETUP,
+
+        /**
+         * Conjugation of a single {@link ConjugationData}.
+         */
+        CONJUGATION,
+
+        /**
+         * Building of a single abbreviated conjugation table.
+         */
+        ABBREVIATED_TABLE,
+
+        /**
+         * Building of a single detailed conjugation table.
+         */
+        DETAILED_TABLE,
+
+        /**
+         * Generation of table of contents.
+         */
+        TOC,
+
+        /**
+         * Marshalling and writing of the package, not reported by {@link OutputBackend#STAX} which writes tables
+         * while they are built.
+         */
+        SAVE,
+
+        /**
+         * Whole document, from start to end.
+         */
+        DOCUMENT
+    }
+
+    private final long documentId;
+    private final Phase phase;
+    private final int index;
+    private final ConjugationData conjugationData;
+    private final long durationNanos;
+    private final long allocatedBytes;
+    private final int chartCount;
+    private final long byteCount;
+
+    GenerationEvent(long documentId, Phase phase, int index, ConjugationData conjugationData, long durationNanos,
+                    long allocatedBytes, int chartCount, long byteCount) {
+        this.documentId = documentId;
+        this.phase = phase;
+        this.index = index;
+        this.conjugationData = conjugationData;
+        this.durationNanos = durationNanos;
+        this.allocatedBytes = allocatedBytes;
+        this.chartCount = chartCount;
+        this.byteCount = byteCount;
+    }
+
+    /**
+     * @return id which correlates all events of one document
+     */
+    public long getDocumentId() {
+        return documentId;
+    }
+
+    public Phase getPhase() {
+        return phase;
+    }
+
+    /**
+     * @return index of the chart in the template, <code>-1</code> if event is not related to a single chart
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return conjugation data for {@link Phase#CONJUGATION} events, <code>null</code> otherwise
+     */
+    public ConjugationData getConjugationData() {
+        return conjugationData;
+    }
+
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    public long getDuration(TimeUnit unit) {
+        return unit.convert(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return bytes allocated by the thread which executed the phase, <code>-1</code> if not supported by the JVM
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * @return number of charts covered by this event
+     */
+    public int getChartCount() {
+        return chartCount;
+    }
+
+    /**
+     * @return number of bytes written for {@link Phase#SAVE} and {@link Phase#DOCUMENT} events, <code>-1</code>
+     * otherwise
+     */
+    public long getByteCount() {
+        return byteCount;
+    }
+
+    @Override
+    public String toString() {
+        return format("GenerationEvent{documentId=%s, phase=%s, index=%s, duration=%sus, allocatedBytes=%s, " +
+                        "chartCount=%s, byteCount=%s}", documentId, phase, index, getDuration(TimeUnit.MICROSECONDS),
+                allocatedBytes, chartCount, byteCount);
+    }
+}
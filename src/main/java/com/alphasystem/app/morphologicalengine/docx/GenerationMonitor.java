@@ -0,0 +1,140 @@
+package com.alphasystem.app.morphologicalengine.docx;
+
+import com.alphasystem.morphologicalanalysis.morphology.model.ConjugationData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import static com.alphasystem.app.morphologicalengine.docx.GenerationEvent.Phase;
+
+/**
+ * Measures phases of generation of one document and reports them to a {@link DocumentGenerationListener}. Monitor also
+ * carries cancellation of the document, generation checks it between entries and between phases.
+ *
+ * @author sali
+ */
+final class GenerationMonitor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GenerationMonitor.class);
+    private static final AtomicLong DOCUMENT_IDS = new AtomicLong();
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN = getThreadMXBean();
+
+    static final GenerationMonitor NO_OP = new GenerationMonitor(DocumentGenerationListener.NO_OP);
+
+    private final DocumentGenerationListener listener;
+    private final boolean enabled;
+    private final long documentId;
+    private final BooleanSupplier cancelled;
+    private final long deadlineNanos;
+
+    GenerationMonitor(DocumentGenerationListener listener) {
+        this(listener, null, 0L);
+    }
+
+    /**
+     * @param cancelled     returns <code>true</code> once generation is cancelled, may be <code>null</code>
+     * @param deadlineNanos {@link System#nanoTime()} after which generation is aborted, <code>0</code> for no deadline
+     */
+    GenerationMonitor(DocumentGenerationListener listener, BooleanSupplier cancelled, long deadlineNanos) {
+        this.listener = (listener == null) ? DocumentGenerationListener.NO_OP : listener;
+        this.enabled = this.listener != DocumentGenerationListener.NO_OP;
+        this.documentId = enabled ? DOCUMENT_IDS.incrementAndGet() : 0L;
+        this.cancelled = cancelled;
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    private static com.sun.management.ThreadMXBean getThreadMXBean() {
+        try {
+            final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+            if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+                final com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) threadMXBean;
+                if (bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled()) {
+                    return bean;
+                }
+            }
+        } catch (RuntimeException | LinkageError ex) {
+            // not supported on this JVM
+        }
+        return null;
+    }
+
+    private static long currentThreadAllocatedBytes() {
+        return (THREAD_MX_BEAN == null) ? -1L : THREAD_MX_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    long getDocumentId() {
+        return documentId;
+    }
+
+    boolean isDeadlineExceeded() {
+        return deadlineNanos != 0L && System.nanoTime() - deadlineNanos >= 0L;
+    }
+
+    boolean isCancelled() {
+        return (cancelled != null && cancelled.getAsBoolean()) || isDeadlineExceeded();
+    }
+
+    /**
+     * @throws CancellationException if generation is cancelled or its deadline is exceeded
+     */
+    void checkCancelled() {
+        if (isCancelled()) {
+            throw new CancellationException(isDeadlineExceeded() ? "Document generation deadline exceeded" :
+                    "Document generation cancelled");
+        }
+    }
+
+    /**
+     * Starts measuring a phase on the current thread, returned timer must be completed on the same thread.
+     */
+    Timer start() {
+        return enabled ? new Timer(System.nanoTime(), currentThreadAllocatedBytes()) : Timer.NONE;
+    }
+
+    /**
+     * Reports completed phase and aborts generation if it is cancelled.
+     */
+    void phaseCompleted(Phase phase, Timer timer, int index, int chartCount, long byteCount) {
+        fire(phase, timer, index, null, chartCount, byteCount);
+        checkCancelled();
+    }
+
+    void chartConjugated(int index, ConjugationData conjugationData, Timer timer) {
+        fire(Phase.CONJUGATION, timer, index, conjugationData, 1, -1L);
+    }
+
+    private void fire(Phase phase, Timer timer, int index, ConjugationData conjugationData, int chartCount, long byteCount) {
+        if (!enabled) {
+            return;
+        }
+        final long durationNanos = System.nanoTime() - timer.startNanos;
+        final long allocatedBytes = (timer.startAllocatedBytes < 0) ? -1L : currentThreadAllocatedBytes() - timer.startAllocatedBytes;
+        try {
+            listener.onEvent(new GenerationEvent(documentId, phase, index, conjugationData, durationNanos, allocatedBytes,
+                    chartCount, byteCount));
+        } catch (RuntimeException ex) {
+            LOGGER.warn("Document generation listener failed", ex);
+        }
+    }
+
+    /**
+     * Start of a measurement.
+     */
+    static final class Timer {
+
+        private static final Timer NONE = new Timer(0L, -1L);
+
+        private final long startNanos;
+        private final long startAllocatedBytes;
+
+        private Timer(long startNanos, long startAllocatedBytes) {
+            this.startNanos = startNanos;
+            this.startAllocatedBytes = startAllocatedBytes;
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package com.alphasystem.app.morphologicalengine.docx;
+
+import com.alphasystem.morphologicalanalysis.morphology.model.ChartConfiguration;
+import com.alphasystem.morphologicalanalysis.morphology.model.support.SarfTermType;
+import com.alphasystem.morphologicalengine.model.AbbreviatedConjugation;
+import com.alphasystem.morphologicalengine.model.ConjugationHeader;
+import com.alphasystem.morphologicalengine.model.ConjugationTuple;
+import com.alphasystem.morphologicalengine.model.DetailedConjugation;
+import com.alphasystem.morphologicalengine.model.MorphologicalChart;
+import com.alphasystem.morphologicalengine.model.NounConjugationGroup;
+import com.alphasystem.morphologicalengine.model.VerbConjugationGroup;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+
+import static com.alphasystem.app.morphologicalengine.docx.WmlHelper.*;
+import static org.apache.commons.lang3.ArrayUtils.isEmpty;
+
+/**
+ * Writes HTML tables of {@link MorphologicalChart}s directly to a {@link Writer}, with the same row layout as
+ * {@link AbbreviatedConjugationAdapter} and {@link DetailedConjugationAdapter} and honoring the same omit flags of
+ * {@link ChartConfiguration}. No document tree is built, markup is written as charts are traversed.
+ * <p>
+ * Tables are written as fragments without <code>html</code> or <code>body</code> elements, styling is left to the
+ * page through CSS classes named after the Word styles, for example <code>arabic-heading1</code>.
+ * </p>
+ *
+ * @author sali
+ */
+public class HtmlChartWriter {
+
+    private static final int NUM_OF_ABBREVIATED_COLUMNS = 4;
+    private static final int NUM_OF_DETAILED_COLUMNS = 7;
+
+    private final Writer writer;
+    private final ChartConfiguration chartConfiguration;
+
+    public HtmlChartWriter(Writer writer, ChartConfiguration chartConfiguration) {
+        this.writer = writer;
+        this.chartConfiguration = (chartConfiguration == null) ? new ChartConfiguration() : chartConfiguration;
+    }
+
+    /**
+     * Writes abbreviated and detailed conjugation of given chart unless omitted by the configuration.
+     */
+    public void writeMorphologicalChart(MorphologicalChart morphologicalChart) throws IOException {
+        if (morphologicalChart == null) {
+            return;
+        }
+        final AbbreviatedConjugation abbreviatedConjugation = morphologicalChart.getAbbreviatedConjugation();
+        if (abbreviatedConjugation != null && !chartConfiguration.isOmitAbbreviatedConjugation()) {
+            writeAbbreviatedConjugation(abbreviatedConjugation);
+        }
+        final DetailedConjugation detailedConjugation = morphologicalChart.getDetailedConjugation();
+        if (detailedConjugation != null && !chartConfiguration.isOmitDetailedConjugation()) {
+            writeDetailedConjugation(detailedConjugation);
+        }
+    }
+
+    // Abbreviated conjugation
+
+    public void writeAbbreviatedConjugation(AbbreviatedConjugation... abbreviatedConjugations) throws IOException {
+        if (isEmpty(abbreviatedConjugations)) {
+            return;
+        }
+        startTable("abbreviated-conjugation");
+        for (AbbreviatedConjugation abbreviatedConjugation : abbreviatedConjugations) {
+            if (!chartConfiguration.isOmitTitle()) {
+                writeTitleRow(abbreviatedConjugation);
+            }
+            if (!chartConfiguration.isOmitHeader()) {
+                writeHeaderRow(abbreviatedConjugation.getConjugationHeader());
+            }
+            writeActiveLineRow(abbreviatedConjugation);
+            if (abbreviatedConjugation.hasPassiveLine()) {
+                writePassiveLineRow(abbreviatedConjugation);
+            }
+            writeCommandLineRow(abbreviatedConjugation);
+            writeAdverbLineRow(abbreviatedConjugation);
+            writeSeparatorRow(NUM_OF_ABBREVIATED_COLUMNS);
+        }
+        writer.write("</table>");
+    }
+
+    private void writeTitleRow(AbbreviatedConjugation abbreviatedConjugation) throws IOException {
+        writer.write("<tr>");
+        startCell(NUM_OF_ABBREVIATED_COLUMNS, true);
+        writeArabicText(null, abbreviatedConjugation.getConjugationHeader().getTitle(), ARABIC_HEADING_STYLE);
+        writer.write("</td></tr>");
+
+        // if there is no header and if there is translation then display translation
+        final String translation = abbreviatedConjugation.getConjugationHeader().getTranslation();
+        if (chartConfiguration.isOmitHeader() && StringUtils.isNotBlank(translation)) {
+            writer.write("<tr>");
+            startCell(NUM_OF_ABBREVIATED_COLUMNS, true);
+            writeTranslation(translation);
+            writer.write("</td></tr>");
+        }
+    }
+
+    private void writeHeaderRow(ConjugationHeader conjugationHeader) throws IOException {
+        writer.write("<tr>");
+        startCell(2, false);
+        writeTranslation(conjugationHeader.getTranslation());
+        writer.write("</td>");
+        startCell(2, false);
+        writeArabicText(null, conjugationHeader.getTypeLabel1(), ARABIC_NORMAL_STYLE);
+        writeArabicText(null, conjugationHeader.getTypeLabel2(), ARABIC_NORMAL_STYLE);
+        writeArabicText(null, conjugationHeader.getTypeLabel3(), ARABIC_NORMAL_STYLE);
+        writer.write("</td></tr>");
+    }
+
+    private void writeTranslation(String translation) throws IOException {
+        writer.write("<p class=\"translation\" dir=\"ltr\">");
+        writeEscaped((translation == null) ? "" : translation);
+        writer.write("</p>");
+    }
+
+    private void writeActiveLineRow(AbbreviatedConjugation abbreviatedConjugation) throws IOException {
+        writer.write("<tr>");
+        writeCell(1, PARTICIPLE_PREFIX_TEXT, abbreviatedConjugation.getActiveParticipleMasculine().getLabel());
+        writeCell(1, null, getMultiWord(abbreviatedConjugation.getVerbalNouns()));
+        writeCell(1, null, abbreviatedConjugation.getPresentTense().getLabel());
+        writeCell(1, null, abbreviatedConjugation.getPastTense().getLabel());
+        writer.write("</tr>");
+    }
+
+    private void writePassiveLineRow(AbbreviatedConjugation abbreviatedConjugation) throws IOException {
+        writer.write("<tr>");
+        writeCell(1, PARTICIPLE_PREFIX_TEXT, abbreviatedConjugation.getPassiveParticipleMasculine().getLabel());
+        writeCell(1, null, getMultiWord(abbreviatedConjugation.getVerbalNouns()));
+        writeCell(1, null, abbreviatedConjugation.getPresentPassiveTense().getLabel());
+        writeCell(1, null, abbreviatedConjugation.getPastPassiveTense().getLabel());
+        writer.write("</tr>");
+    }
+
+    private void writeCommandLineRow(AbbreviatedConjugation abbreviatedConjugation) throws IOException {
+        writer.write("<tr>");
+        writeCell(2, FORBIDDING_PREFIX_TEXT, abbreviatedConjugation.getForbidding().getLabel());
+        writeCell(2, COMMAND_PREFIX_TEXT, abbreviatedConjugation.getImperative().getLabel());
+        writer.write("</tr>");
+    }
+
+    private void writeAdverbLineRow(AbbreviatedConjugation abbreviatedConjugation) throws IOException {
+        writer.write("<tr>");
+        writeCell(NUM_OF_ABBREVIATED_COLUMNS, ADVERB_PREFIX_TEXT, getMultiWord(abbreviatedConjugation.getAdverbs()));
+        writer.write("</tr>");
+    }
+
+    // Detailed conjugation
+
+    public void writeDetailedConjugation(DetailedConjugation... detailedConjugations) throws IOException {
+        if (isEmpty(detailedConjugations)) {
+            return;
+        }
+        startTable("detailed-conjugation");
+        for (DetailedConjugation detailedConjugation : detailedConjugations) {
+            writeTensePair(detailedConjugation.getPresentTense(), detailedConjugation.getPastTense());
+            writeNounPair(detailedConjugation.getActiveParticipleFeminine(), detailedConjugation.getActiveParticipleMasculine());
+            writeNounPairs(detailedConjugation.getVerbalNouns());
+            writeTensePair(detailedConjugation.getPresentPassiveTense(), detailedConjugation.getPastPassiveTense());
+            writeNounPair(detailedConjugation.getPassiveParticipleFeminine(), detailedConjugation.getPassiveParticipleMasculine());
+            writeTensePair(detailedConjugation.getForbidding(), detailedConjugation.getImperative());
+            writeNounPairs(detailedConjugation.getAdverbs());
+        }
+        writer.write("</table>");
+    }
+
+    private void writeTensePair(VerbConjugationGroup left, VerbConjugationGroup right) throws IOException {
+        writeCaptionRow((left == null) ? null : left.getTermType(), (right == null) ? null : right.getTermType());
+        writeConjugationRow((left == null) ? null : left.getMasculineThirdPerson(),
+                (right == null) ? null : right.getMasculineThirdPerson());
+        writeConjugationRow((left == null) ? null : left.getFeminineThirdPerson(),
+                (right == null) ? null : right.getFeminineThirdPerson());
+        writeConjugationRow((left == null) ? null : left.getMasculineSecondPerson(),
+                (right == null) ? null : right.getMasculineSecondPerson());
+        writeConjugationRow((left == null) ? null : left.getFeminineSecondPerson(),
+                (right == null) ? null : right.getFeminineSecondPerson());
+        writeConjugationRow((left == null) ? null : left.getFirstPerson(), (right == null) ? null : right.getFirstPerson());
+        writeSeparatorRow(NUM_OF_DETAILED_COLUMNS);
+    }
+
+    private void writeNounPair(NounConjugationGroup left, NounConjugationGroup right) throws IOException {
+        writeCaptionRow((left == null) ? null : left.getTermType(), (right == null) ? null : right.getTermType());
+        writeConjugationRow((left == null) ? null : left.getNominative(), (right == null) ? null : right.getNominative());
+        writeConjugationRow((left == null) ? null : left.getAccusative(), (right == null) ? null : right.getAccusative());
+        writeConjugationRow((left == null) ? null : left.getGenitive(), (right == null) ? null : right.getGenitive());
+        writeSeparatorRow(NUM_OF_DETAILED_COLUMNS);
+    }
+
+    private void writeNounPairs(NounConjugationGroup[] conjugationPairs) throws IOException {
+        if (isEmpty(conjugationPairs)) {
+            return;
+        }
+        for (int index = 0; index < conjugationPairs.length; index += 2) {
+            final NounConjugationGroup right = conjugationPairs[index];
+            final NounConjugationGroup left = (index + 1 < conjugationPairs.length) ? conjugationPairs[index + 1] : null;
+            writeNounPair(left, right);
+        }
+    }
+
+    private void writeCaptionRow(SarfTermType leftSideCaption, SarfTermType rightSideCaption) throws IOException {
+        writer.write("<tr>");
+        startCell(3, leftSideCaption == null);
+        writeArabicText(null, FormattingPool.getLabel(leftSideCaption), ARABIC_CAPTION_STYLE);
+        writer.write("</td>");
+        startCell(1, true);
+        writer.write("</td>");
+        startCell(3, rightSideCaption == null);
+        writeArabicText(null, FormattingPool.getLabel(rightSideCaption), ARABIC_CAPTION_STYLE);
+        writer.write("</td></tr>");
+    }
+
+    private void writeConjugationRow(ConjugationTuple left, ConjugationTuple right) throws IOException {
+        if (left == null && right == null) {
+            return;
+        }
+        writer.write("<tr>");
+        writeConjugationColumns(left);
+        startCell(1, true);
+        writer.write("</td>");
+        writeConjugationColumns(right);
+        writer.write("</tr>");
+    }
+
+    private void writeConjugationColumns(ConjugationTuple conjugationTuple) throws IOException {
+        if (conjugationTuple == null) {
+            for (int columnIndex = 0; columnIndex < 3; columnIndex++) {
+                startCell(1, true);
+                writeArabicText(null, null, ARABIC_TABLE_CENTER_STYLE);
+                writer.write("</td>");
+            }
+            return;
+        }
+        final String dualValue = conjugationTuple.getDual();
+        writeCell((dualValue == null) ? 2 : 1, null, conjugationTuple.getPlural());
+        if (dualValue != null) {
+            writeCell(1, null, dualValue);
+        }
+        writeCell(1, null, conjugationTuple.getSingular());
+    }
+
+    // Common
+
+    private void writeSeparatorRow(int colSpan) throws IOException {
+        writer.write("<tr class=\"separator\">");
+        startCell(colSpan, true);
+        writer.write("</td></tr>");
+    }
+
+    private void writeCell(int colSpan, String prefixText, String value) throws IOException {
+        startCell(colSpan, false);
+        writeArabicText(prefixText, value, ARABIC_TABLE_CENTER_STYLE);
+        writer.write("</td>");
+    }
+
+    private void startTable(String className) throws IOException {
+        writer.write("<table class=\"");
+        writer.write(className);
+        writer.write("\" dir=\"rtl\">");
+    }
+
+    private void startCell(int colSpan, boolean nilBorders) throws IOException {
+        writer.write("<td");
+        if (colSpan > 1) {
+            writer.write(" colspan=\"");
+            writer.write(Integer.toString(colSpan));
+            writer.write('"');
+        }
+        if (nilBorders) {
+            writer.write(" class=\"no-border\"");
+        }
+        writer.write('>');
+    }
+
+    private void writeArabicText(String prefixText, String value, String style) throws IOException {
+        writer.write("<p class=\"");
+        writer.write(toClassName(style));
+        writer.write("\">");
+        if (prefixText != null) {
+            writer.write("<span class=\"");
+            writer.write(toClassName(ARABIC_PREFIX_STYLE));
+            writer.write("\">");
+            writeEscaped(prefixText);
+            writer.write("</span>");
+        }
+        writeEscaped((value == null) ? WORD_SPACE_TEXT : value);
+        writer.write("</p>");
+    }
+
+    private static String toClassName(String style) {
+        return style.toLowerCase(Locale.ROOT);
+    }
+
+    private void writeEscaped(String value) throws IOException {
+        for (int index = 0; index < value.length(); index++) {
+            final char c = value.charAt(index);
+            switch (c) {
+                case '&':
+                    writer.write("&amp;");
+                    break;
+                case '<':
+                    writer.write("&lt;");
+                    break;
+                case '>':
+                    writer.write("&gt;");
+                    break;
+                case '"':
+                    writer.write("&quot;");
+                    break;
+                default:
+                    writer.write(c);
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.alphasystem.app.morphologicalengine.docx;
+
+/**
+ * Allocates revision and paragraph ids of a single document. Ids are eight digit hexadecimal numbers in sequence,
+ * identical input therefore produces identical ids. An allocator is meant to be used by the one thread building its
+ * document and is not thread safe.
+ *
+ * @author sali
+ */
+public final class IdAllocator {
+
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+    private static final int MAX_ID = 0x7FFFFFFF;
+
+    private int nextValue;
+
+    public IdAllocator() {
+        this(1);
+    }
+
+    /**
+     * @param firstValue value of the first id, must be positive
+     */
+    public IdAllocator(int firstValue) {
+        if (firstValue <= 0) {
+            throw new IllegalArgumentException("First value must be positive: " + firstValue);
+        }
+        this.nextValue = firstValue;
+    }
+
+    /**
+     * @return next id, ids wrap around after <code>7FFFFFFF</code>
+     */
+    public String nextId() {
+        int value = nextValue;
+        nextValue = (value == MAX_ID) ? 1 : value + 1;
+        final char[] chars = new char[8];
+        for (int index = 7; index >= 0; index--) {
+            chars[index] = HEX_DIGITS[value & 0xF];
+            value >>>= 4;
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,202 @@
+package com.alphasystem.app.morphologicalengine.docx;
+
+import com.alphasystem.morphologicalanalysis.morphology.model.ChartConfiguration;
+import com.alphasystem.morphologicalanalysis.morphology.model.ConjugationData;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static java.lang.String.format;
+
+/**
+ * <code>word/document.xml</code> of a previously generated document split into sections, one per chart, so that
+ * sections of unchanged charts can be written again as is.
+ * <p>
+ * Documents written by {@link OutputBackend#STAX} carry hidden bookmarks used as markers, a document marker holding
+ * fingerprint of the configuration and a section marker in front of each chart holding hash of
+ * {@link ConjugationData#getId()} and fingerprint of the conjugation inputs.
+ * </p>
+ *
+ * @author sali
+ */
+final class IncrementalDocument {
+
+    private static final String DOCUMENT_ENTRY_NAME = "word/document.xml";
+    private static final String DOCUMENT_MARKER_PREFIX = "_MD";
+    private static final String SECTION_MARKER_PREFIX = "_MC";
+    private static final String FORMAT_VERSION = "1";
+    private static final Pattern SECTION_MARKER_PATTERN = Pattern.compile(
+            "<w:bookmarkStart\\s+w:id=\"\\d+\"\\s+w:name=\"(" + SECTION_MARKER_PREFIX + "[0-9A-F]{24})\"\\s*/>");
+    private static final Pattern BOOKMARK_ID_PATTERN = Pattern.compile("<w:bookmark(?:Start|End)\\s+w:id=\"(\\d+)\"");
+    private static final String SECTION_PROPERTIES_START = "<w:sectPr";
+
+    private final String prefix;
+    private final String suffix;
+    private final List<Section> sections;
+    private final int nextBookmarkId;
+
+    private IncrementalDocument(String prefix, String suffix, List<Section> sections, int nextBookmarkId) {
+        this.prefix = prefix;
+        this.suffix = suffix;
+        this.sections = sections;
+        this.nextBookmarkId = nextBookmarkId;
+    }
+
+    /**
+     * @return name of the marker identifying given configuration
+     */
+    static String documentMarker(ChartConfiguration chartConfiguration) {
+        final String value = format("%s|%s|%s|%s|%s|%s|%s|%s|%s|%s|%s|%s", FORMAT_VERSION,
+                chartConfiguration.isOmitToc(), chartConfiguration.isOmitTitle(), chartConfiguration.isOmitHeader(),
+                chartConfiguration.isOmitAbbreviatedConjugation(), chartConfiguration.isOmitDetailedConjugation(),
+                chartConfiguration.getArabicFontFamily(), chartConfiguration.getArabicFontSize(),
+                chartConfiguration.getHeadingFontSize(), chartConfiguration.getTranslationFontFamily(),
+                chartConfiguration.getTranslationFontSize(), DocumentSkeleton.Key.of(chartConfiguration).isLandscape());
+        return format("%s%016X", DOCUMENT_MARKER_PREFIX, ConjugationKey.fnv1a64(value));
+    }
+
+    /**
+     * @return name of the marker of the section of given entry
+     */
+    static String sectionMarker(ConjugationData conjugationData) {
+        final String id = (conjugationData == null) ? null : conjugationData.getId();
+        final ConjugationKey conjugationKey = ConjugationKey.of(conjugationData);
+        return format("%s%08X%s", SECTION_MARKER_PREFIX, (int) ConjugationKey.fnv1a64((id == null) ? "" : id),
+                (conjugationKey == null) ? "0000000000000000" : conjugationKey.fingerprint());
+    }
+
+    /**
+     * Reads given document.
+     *
+     * @return document or <code>null</code> if given document does not exist, was not written with markers or was
+     * written with a different configuration
+     * @throws IOException if unable to read the document
+     */
+    static IncrementalDocument read(Path path, ChartConfiguration chartConfiguration) throws IOException {
+        if (path == null || !Files.isRegularFile(path)) {
+            return null;
+        }
+        final String xml;
+        try (ZipFile zipFile = new ZipFile(path.toFile())) {
+            final ZipEntry entry = zipFile.getEntry(DOCUMENT_ENTRY_NAME);
+            if (entry == null) {
+                return null;
+            }
+            try (InputStream inputStream = zipFile.getInputStream(entry)) {
+                xml = readFully(inputStream);
+            }
+        }
+        final int sectionPropertiesStart = xml.lastIndexOf(SECTION_PROPERTIES_START);
+        if (sectionPropertiesStart < 0 || !xml.contains(format("w:name=\"%s\"", documentMarker(chartConfiguration)))) {
+            return null;
+        }
+
+        final List<Section> sections = new ArrayList<>();
+        final Matcher matcher = SECTION_MARKER_PATTERN.matcher(xml);
+        int prefixEnd = sectionPropertiesStart;
+        String marker = null;
+        int sectionStart = -1;
+        while (matcher.find() && matcher.start() < sectionPropertiesStart) {
+            if (marker == null) {
+                prefixEnd = matcher.start();
+            } else {
+                sections.add(new Section(marker, sections.isEmpty(), xml.substring(sectionStart, matcher.start())));
+            }
+            marker = matcher.group(1);
+            sectionStart = matcher.start();
+        }
+        if (marker != null) {
+            sections.add(new Section(marker, sections.isEmpty(), xml.substring(sectionStart, sectionPropertiesStart)));
+        }
+
+        int maxBookmarkId = -1;
+        final Matcher bookmarkMatcher = BOOKMARK_ID_PATTERN.matcher(xml);
+        while (bookmarkMatcher.find()) {
+            maxBookmarkId = Math.max(maxBookmarkId, Integer.parseInt(bookmarkMatcher.group(1)));
+        }
+        return new IncrementalDocument(xml.substring(0, prefixEnd), xml.substring(sectionPropertiesStart), sections,
+                maxBookmarkId + 1);
+    }
+
+    private static String readFully(InputStream inputStream) throws IOException {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[8192];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            outputStream.write(buffer, 0, read);
+        }
+        return new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Removes and returns section with given marker, a section can only be taken once since its bookmarks must not be
+     * repeated.
+     *
+     * @param marker section marker of the entry
+     * @param first  whether the entry is first in the document, first section has no link back to the table of contents
+     * @return section or <code>null</code> if there is no such section
+     */
+    Section take(String marker, boolean first) {
+        final Iterator<Section> iterator = sections.iterator();
+        while (iterator.hasNext()) {
+            final Section section = iterator.next();
+            if (section.marker.equals(marker) && section.first == first) {
+                iterator.remove();
+                return section;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return content from the start of the document to the first section
+     */
+    byte[] getPrefix() {
+        return prefix.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return content from the end of the last section to the end of the document
+     */
+    byte[] getSuffix() {
+        return suffix.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return first bookmark id not used by the document
+     */
+    int getNextBookmarkId() {
+        return nextBookmarkId;
+    }
+
+    /**
+     * Content of one chart including its marker.
+     */
+    static final class Section {
+
+        private final String marker;
+        private final boolean first;
+        private final String content;
+
+        private Section(String marker, boolean first, String content) {
+            this.marker = marker;
+            this.first = first;
+            this.content = content;
+        }
+
+        byte[] getContent() {
+            return content.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.alphasystem.app.morphologicalengine.docx;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event types of the generation pipeline, the only class referring to <code>jdk.jfr</code>. Loaded by
+ * {@link FlightEvents} once <code>jdk.jfr.Event</code> is known to be available.
+ *
+ * @author sali
+ */
+final class JfrEvents implements FlightEvents.Factory {
+
+    @Override
+    public FlightEvents.BuildDocument beginBuildDocument() {
+        final BuildDocumentEvent event = new BuildDocumentEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public FlightEvents.RenderChart beginRenderChart() {
+        final RenderChartEvent event = new RenderChartEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public FlightEvents.ChartTable beginChartTable() {
+        final ChartTableEvent event = new ChartTableEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public FlightEvents.SaveDocument beginSaveDocument() {
+        final SaveDocumentEvent event = new SaveDocumentEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public FlightEvents.Conjugation beginConjugation() {
+        final ConjugationEvent event = new ConjugationEvent();
+        event.begin();
+        return event;
+    }
+
+    @Name("com.alphasystem.morphologicalengine.BuildDocument")
+    @Label("Build Document")
+    @Category({"Morphological Engine"})
+    @Description("Building of document body of a conjugation template")
+    static final class BuildDocumentEvent extends Event implements FlightEvents.BuildDocument {
+
+        @Label("Template Id")
+        String templateId;
+
+        @Label("Output Backend")
+        String outputBackend;
+
+        @Label("Chart Count")
+        int chartCount;
+
+        @Override
+        public void commit(String templateId, String outputBackend, int chartCount) {
+            this.templateId = templateId;
+            this.outputBackend = outputBackend;
+            this.chartCount = chartCount;
+            commit();
+        }
+    }
+
+    @Name("com.alphasystem.morphologicalengine.RenderChart")
+    @Label("Render Chart")
+    @Category({"Morphological Engine"})
+    @Description("Rendering of a single chart into document")
+    static final class RenderChartEvent extends Event implements FlightEvents.RenderChart {
+
+        @Label("Chart Index")
+        int chartIndex;
+
+        @Label("Template")
+        String template;
+
+        @Label("Root Letters")
+        String rootLetters;
+
+        @Override
+        public void commit(int chartIndex, String template, String rootLetters) {
+            this.chartIndex = chartIndex;
+            this.template = template;
+            this.rootLetters = rootLetters;
+            commit();
+        }
+    }
+
+    @Name("com.alphasystem.morphologicalengine.ChartTable")
+    @Label("Chart Table")
+    @Category({"Morphological Engine"})
+    @Description("Building of a single abbreviated or detailed conjugation table")
+    static final class ChartTableEvent extends Event implements FlightEvents.ChartTable {
+
+        @Label("Table Type")
+        String tableType;
+
+        @Label("Row Count")
+        int rowCount;
+
+        @Override
+        public void commit(String tableType, int rowCount) {
+            this.tableType = tableType;
+            this.rowCount = rowCount;
+            commit();
+        }
+    }
+
+    @Name("com.alphasystem.morphologicalengine.SaveDocument")
+    @Label("Save Document")
+    @Category({"Morphological Engine"})
+    @Description("Marshalling and writing of document package")
+    static final class SaveDocumentEvent extends Event implements FlightEvents.SaveDocument {
+
+        @Label("Compression Level")
+        int compressionLevel;
+
+        @DataAmount
+        @Label("Bytes Written")
+        long bytesWritten;
+
+        @Override
+        public void commit(int compressionLevel, long bytesWritten) {
+            this.compressionLevel = compressionLevel;
+            this.bytesWritten = bytesWritten;
+            commit();
+        }
+    }
+
+    @Name("com.alphasystem.morphologicalengine.Conjugation")
+    @Label("Conjugation")
+    @Category({"Morphological Engine"})
+    @Description("Conjugation of a single entry")
+    static final class ConjugationEvent extends Event implements FlightEvents.Conjugation {
+
+        @Label("Template")
+        String template;
+
+        @Label("Root Letters")
+        String rootLetters;
+
+        @Label("Cache Enabled")
+        boolean cacheEnabled;
+
+        @Override
+        public void commit(String template, String rootLetters, boolean cacheEnabled) {
+            this.template = template;
+            this.rootLetters = rootLetters;
+            this.cacheEnabled = cacheEnabled;
+            commit();
+        }
+    }
+}
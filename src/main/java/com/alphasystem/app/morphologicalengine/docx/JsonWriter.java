@@ -0,0 +1,145 @@
+package com.alphasystem.app.morphologicalengine.docx;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Minimal streaming JSON writer, enough for indexes and exports written by this module without adding a JSON library
+ * to the dependencies.
+ *
+ * @author sali
+ */
+final class JsonWriter implements Closeable, Flushable {
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final Writer writer;
+
+    /**
+     * For each open object or array, <code>true</code> once it has at least one member.
+     */
+    private final Deque<Boolean> scopes = new ArrayDeque<>();
+    private boolean afterName;
+
+    JsonWriter(Writer writer) {
+        this.writer = writer;
+    }
+
+    JsonWriter beginObject() throws IOException {
+        beforeValue();
+        writer.write('{');
+        scopes.push(Boolean.FALSE);
+        return this;
+    }
+
+    JsonWriter endObject() throws IOException {
+        scopes.pop();
+        writer.write('}');
+        return this;
+    }
+
+    JsonWriter beginArray() throws IOException {
+        beforeValue();
+        writer.write('[');
+        scopes.push(Boolean.FALSE);
+        return this;
+    }
+
+    JsonWriter endArray() throws IOException {
+        scopes.pop();
+        writer.write(']');
+        return this;
+    }
+
+    JsonWriter name(String name) throws IOException {
+        beforeValue();
+        writeString(name);
+        writer.write(':');
+        afterName = true;
+        return this;
+    }
+
+    JsonWriter value(String value) throws IOException {
+        beforeValue();
+        if (value == null) {
+            writer.write("null");
+        } else {
+            writeString(value);
+        }
+        return this;
+    }
+
+    JsonWriter value(long value) throws IOException {
+        beforeValue();
+        writer.write(Long.toString(value));
+        return this;
+    }
+
+    JsonWriter value(boolean value) throws IOException {
+        beforeValue();
+        writer.write(value ? "true" : "false");
+        return this;
+    }
+
+    private void beforeValue() throws IOException {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        if (!scopes.isEmpty()) {
+            if (scopes.peek()) {
+                writer.write(',');
+            } else {
+                scopes.pop();
+                scopes.push(Boolean.TRUE);
+            }
+        }
+    }
+
+    private void writeString(String value) throws IOException {
+        writer.write('"');
+        for (int index = 0; index < value.length(); index++) {
+            final char c = value.charAt(index);
+            switch (c) {
+                case '"':
+                    writer.write("\\\"");
+                    break;
+                case '\\':
+                    writer.write("\\\\");
+                    break;
+                case '\n':
+                    writer.write("\\n");
+                    break;
+                case '\r':
+                    writer.write("\\r");
+                    break;
+                case '\t':
+                    writer.write("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        writer.write("\\u00");
+                        writer.write(HEX_DIGITS[c >> 4]);
+                        writer.write(HEX_DIGITS[c & 0xF]);
+                    } else {
+                        writer.write(c);
+                    }
+            }
+        }
+        writer.write('"');
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,247 @@
+package com.alphasystem.app.morphologicalengine.docx;
+
+import com.alphasystem.morphologicalanalysis.morphology.model.ConjugationData;
+import com.alphasystem.morphologicalanalysis.morphology.model.ConjugationTemplate;
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static java.lang.String.format;
+
+/**
+ * Renders many {@link ConjugationTemplate}s concurrently on a bounded worker pool.
+ * <p>
+ * Jobs are pulled from the given source only when there is room for them, at most <code>maxInFlight</code> documents
+ * are rendered or queued at any time and the sum of their estimated memory never exceeds the memory budget. A document
+ * whose estimate is larger than the whole budget is rendered alone. Failure of one document never aborts the batch,
+ * it is reported in its {@link Result}. Neither does a failing result consumer, its failures are logged and counted,
+ * see {@link #getConsumerFailureCount()}.
+ * </p>
+ *
+ * @author sali
+ */
+public class MorphologicalChartBatchService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MorphologicalChartBatchService.class);
+    private static final long BASE_DOCUMENT_SIZE = 1024L * 1024L;
+
+    private final MorphologicalChartEngineFactory morphologicalChartEngineFactory;
+    private final Executor executor;
+    private final long estimatedChartSize;
+    private final int memoryPermits;
+    private final Semaphore inFlight;
+    private final Semaphore memory;
+    private final AtomicLong consumerFailureCount = new AtomicLong();
+
+    /**
+     * @param executor           executor to render documents on
+     * @param maxInFlight        maximum number of documents rendered or queued at any time
+     * @param memoryBudget       maximum estimated memory in bytes of documents in flight
+     * @param estimatedChartSize estimated memory in bytes required to render one chart
+     */
+    MorphologicalChartBatchService(MorphologicalChartEngineFactory morphologicalChartEngineFactory, Executor executor,
+                                   int maxInFlight, long memoryBudget, long estimatedChartSize) {
+        this.morphologicalChartEngineFactory = morphologicalChartEngineFactory;
+        this.executor = executor;
+        this.estimatedChartSize = Math.max(0L, estimatedChartSize);
+        this.memoryPermits = toPermits(memoryBudget);
+        this.inFlight = new Semaphore(Math.max(1, maxInFlight));
+        this.memory = new Semaphore(memoryPermits);
+    }
+
+    private static int toPermits(long bytes) {
+        return (int) Math.max(1L, Math.min(Integer.MAX_VALUE, bytes / 1024L));
+    }
+
+    /**
+     * Estimated memory in bytes required to render given template.
+     */
+    long estimateSize(ConjugationTemplate conjugationTemplate) {
+        final List<ConjugationData> data = (conjugationTemplate == null) ? null : conjugationTemplate.getData();
+        final int numOfCharts = (data == null) ? 0 : data.size();
+        return BASE_DOCUMENT_SIZE + numOfCharts * estimatedChartSize;
+    }
+
+    /**
+     * @see #render(Iterable, Consumer)
+     */
+    public List<Result> render(Stream<Job> jobs, Consumer<Result> resultConsumer) throws InterruptedException {
+        return render(jobs::iterator, resultConsumer);
+    }
+
+    /**
+     * Renders given jobs, blocks until all of them are finished.
+     *
+     * @param jobs           jobs to render, iterated lazily on the calling thread
+     * @param resultConsumer called on worker thread as soon as a document is finished, may be <code>null</code>, an
+     *                       exception thrown by it does not change the result
+     * @return results in the order of jobs
+     * @throws InterruptedException if interrupted while waiting, documents already submitted keep rendering
+     */
+    public List<Result> render(Iterable<Job> jobs, Consumer<Result> resultConsumer) throws InterruptedException {
+        final List<CompletableFuture<Result>> futures = new ArrayList<>();
+        for (Job job : jobs) {
+            futures.add(submit(job, resultConsumer));
+        }
+        final List<Result> results = new ArrayList<>(futures.size());
+        for (CompletableFuture<Result> future : futures) {
+            try {
+                results.add(future.join());
+            } catch (CompletionException ex) {
+                throw new IllegalStateException("Batch job failed unexpectedly", ex.getCause());
+            }
+        }
+        return results;
+    }
+
+    private CompletableFuture<Result> submit(Job job, Consumer<Result> resultConsumer) throws InterruptedException {
+        final int permits = Math.min(memoryPermits, toPermits(estimateSize(job.getConjugationTemplate())));
+        inFlight.acquire();
+        try {
+            memory.acquire(permits);
+        } catch (InterruptedException ex) {
+            inFlight.release();
+            throw ex;
+        }
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    final Result result = run(job);
+                    accept(resultConsumer, result);
+                    return result;
+                } finally {
+                    memory.release(permits);
+                    inFlight.release();
+                }
+            }, executor);
+        } catch (RejectedExecutionException ex) {
+            memory.release(permits);
+            inFlight.release();
+            throw ex;
+        }
+    }
+
+    private void accept(Consumer<Result> resultConsumer, Result result) {
+        if (resultConsumer == null) {
+            return;
+        }
+        try {
+            resultConsumer.accept(result);
+        } catch (RuntimeException ex) {
+            consumerFailureCount.incrementAndGet();
+            LOGGER.warn("Result consumer failed for {}", result, ex);
+        }
+    }
+
+    /**
+     * @return number of times a result consumer threw an exception
+     */
+    public long getConsumerFailureCount() {
+        return consumerFailureCount.get();
+    }
+
+    private Result run(Job job) {
+        final long startTime = System.nanoTime();
+        try {
+            morphologicalChartEngineFactory.createMorphologicalChartEngine(job.getConjugationTemplate())
+                    .createDocument(job.getDestination());
+            return new Result(job, null, System.nanoTime() - startTime);
+        } catch (Docx4JException | RuntimeException ex) {
+            return new Result(job, ex, System.nanoTime() - startTime);
+        }
+    }
+
+    /**
+     * A template and the path to write its document to.
+     */
+    public static final class Job {
+
+        private final ConjugationTemplate conjugationTemplate;
+        private final Path destination;
+
+        private Job(ConjugationTemplate conjugationTemplate, Path destination) {
+            this.conjugationTemplate = conjugationTemplate;
+            this.destination = destination;
+        }
+
+        public static Job of(ConjugationTemplate conjugationTemplate, Path destination) {
+            if (destination == null) {
+                throw new IllegalArgumentException("Destination must not be null");
+            }
+            return new Job(conjugationTemplate, destination);
+        }
+
+        public ConjugationTemplate getConjugationTemplate() {
+            return conjugationTemplate;
+        }
+
+        public Path getDestination() {
+            return destination;
+        }
+
+        @Override
+        public String toString() {
+            return format("Job{%s}", destination);
+        }
+    }
+
+    /**
+     * Outcome of rendering of one {@link Job}, does not hold on to the template.
+     */
+    public static final class Result {
+
+        private final String templateId;
+        private final Path destination;
+        private final Exception failure;
+        private final long durationNanos;
+
+        private Result(Job job, Exception failure, long durationNanos) {
+            final ConjugationTemplate conjugationTemplate = job.getConjugationTemplate();
+            this.templateId = (conjugationTemplate == null) ? null : conjugationTemplate.getId();
+            this.destination = job.getDestination();
+            this.failure = failure;
+            this.durationNanos = durationNanos;
+        }
+
+        public String getTemplateId() {
+            return templateId;
+        }
+
+        public Path getDestination() {
+            return destination;
+        }
+
+        public boolean isSuccess() {
+            return failure == null;
+        }
+
+        /**
+         * @return cause of failure or <code>null</code> if document was created
+         */
+        public Exception getFailure() {
+            return failure;
+        }
+
+        public long getDurationNanos() {
+            return durationNanos;
+        }
+
+        @Override
+        public String toString() {
+            return format("Result{%s, success: %s, duration: %sms}", destination, isSuccess(),
+                    durationNanos / 1_000_000L);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.alphasystem.app.morphologicalengine.docx;
+
+import com.alphasystem.morphologicalengine.model.MorphologicalChart;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static java.lang.String.format;
+
+/**
+ * Thread safe, size bounded cache of {@link MorphologicalChart}s keyed by conjugation inputs. Least recently used
+ * chart is evicted once the cache reaches its maximum size. A cache with maximum size of zero is disabled.
+ * <p>
+ * Charts are shared between all entries with the same inputs, therefore cached charts must not be modified and are
+ * conjugated without the id of an entry.
+ * </p>
+ *
+ * @author sali
+ */
+public class MorphologicalChartCache {
+
+    private final int maximumSize;
+    private final Map<ConjugationKey, MorphologicalChart> charts;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    public MorphologicalChartCache(int maximumSize) {
+        this.maximumSize = Math.max(0, maximumSize);
+        this.charts = new LinkedHashMap<ConjugationKey, MorphologicalChart>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ConjugationKey, MorphologicalChart> eldest) {
+                final boolean evict = size() > MorphologicalChartCache.this.maximumSize;
+                if (evict) {
+                    evictionCount.incrementAndGet();
+                }
+                return evict;
+            }
+        };
+    }
+
+    public boolean isEnabled() {
+        return maximumSize > 0;
+    }
+
+    /**
+     * Returns cached chart for given key, if there is no cached chart then creates one using given loader and cache
+     * it. Loader runs outside of the lock, concurrent misses for the same key may therefore conjugate more than once.
+     *
+     * @param key    conjugation key
+     * @param loader function to create chart on cache miss
+     * @return chart for given key
+     */
+    MorphologicalChart get(ConjugationKey key, Supplier<MorphologicalChart> loader) {
+        if (!isEnabled()) {
+            return loader.get();
+        }
+        MorphologicalChart morphologicalChart;
+        synchronized (charts) {
+            morphologicalChart = charts.get(key);
+        }
+        if (morphologicalChart != null) {
+            hitCount.incrementAndGet();
+            return morphologicalChart;
+        }
+        missCount.incrementAndGet();
+        morphologicalChart = loader.get();
+        if (morphologicalChart != null) {
+            synchronized (charts) {
+                charts.put(key, morphologicalChart);
+            }
+        }
+        return morphologicalChart;
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public int size() {
+        synchronized (charts) {
+            return charts.size();
+        }
+    }
+
+    public void clear() {
+        synchronized (charts) {
+            charts.clear();
+        }
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return format("MorphologicalChartCache{size=%s, maximumSize=%s, hits=%s, misses=%s, evictions=%s}", size(),
+                maximumSize, getHitCount(), getMissCount(), getEvictionCount());
+    }
+}
@@ -0,0 +1,296 @@
+package com.alphasystem.app.morphologicalengine.docx;
+
+import com.alphasystem.app.morphologicalengine.conjugation.builder.ConjugationBuilder;
+import com.alphasystem.app.morphologicalengine.docx.MorphologicalChartBatchService.Job;
+import com.alphasystem.app.morphologicalengine.docx.MorphologicalChartBatchService.Result;
+import com.alphasystem.app.morphologicalengine.spring.MorphologicalEngineConfiguration;
+import com.alphasystem.arabic.ui.util.FontUtilities;
+import com.alphasystem.morphologicalanalysis.morphology.model.ChartConfiguration;
+import com.alphasystem.morphologicalanalysis.morphology.model.ConjugationData;
+import com.alphasystem.morphologicalanalysis.morphology.model.ConjugationTemplate;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.lang.String.format;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * Command-line entry point to render many templates in one process, so that start up and warm up are paid once.
+ * <p>
+ * <code>render &lt;templates.csv&gt; [&lt;output directory&gt;]</code> renders all templates of given file, see
+ * {@link TemplateCsvReader} for its format, outputs are resolved against output directory which defaults to directory
+ * of the file. <code>watch &lt;directory&gt;</code> keeps running and renders every <code>*.csv</code> file placed in
+ * given directory, outputs are resolved against the directory and the file is moved to <code>done</code> or
+ * <code>failed</code> sub-directory once finished. Write files under another name and rename them to
+ * <code>*.csv</code> so that they are not picked up half written. Throughput is printed after each file and, in watch
+ * mode, totals on shutdown. On shutdown the file being rendered is given up to 30 seconds to finish before the
+ * renderer is closed. <code>warm-up [&lt;iterations&gt;]</code> only warms up the renderer and exits, it is the
+ * training run of an AppCDS archive, see <code>README.md</code>. <code>store &lt;store file&gt;
+ * &lt;templates.csv&gt;...</code> conjugates all entries of given files into a {@link MorphologicalChartStore}.
+ * </p>
+ * <p>
+ * Settings are read from <code>morphological.chart.*</code> system properties, see
+ * {@link MorphologicalChartConfiguration}.
+ * </p>
+ *
+ * @author sali
+ */
+public final class MorphologicalChartCli {
+
+    private static final String CSV_EXTENSION = ".csv";
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 30_000L;
+
+    private final MorphologicalChartBatchService batchService;
+    private final TemplateCsvReader templateCsvReader;
+    private final Statistics totals = new Statistics();
+
+    MorphologicalChartCli(MorphologicalChartBatchService batchService, ChartConfiguration chartConfiguration) {
+        this.batchService = batchService;
+        this.templateCsvReader = new TemplateCsvReader(chartConfiguration);
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length >= 1 && "warm-up".equals(args[0])) {
+            try (AnnotationConfigApplicationContext context = createContext()) {
+                final int iterations = (args.length > 1) ? Integer.parseInt(args[1]) : 1;
+                final long startTime = System.nanoTime();
+                context.getBean(MorphologicalChartRenderer.class).warmUp(createChartConfiguration(), iterations);
+                System.out.println(format("Warmed up in %dms", (System.nanoTime() - startTime) / 1_000_000L));
+            }
+            return;
+        }
+        if (args.length >= 3 && "store".equals(args[0])) {
+            try (AnnotationConfigApplicationContext context = createContext()) {
+                final TemplateCsvReader reader = new TemplateCsvReader(createChartConfiguration());
+                final List<ConjugationData> data = new ArrayList<>();
+                for (int index = 2; index < args.length; index++) {
+                    final Path path = Paths.get(args[index]).toAbsolutePath();
+                    reader.read(path, path.getParent()).values().forEach(template -> data.addAll(template.getData()));
+                }
+                final long startTime = System.nanoTime();
+                final int numOfCharts = MorphologicalChartStore.write(Paths.get(args[1]), data,
+                        context.getBean(ConjugationBuilder.class));
+                System.out.println(format("Stored %d charts of %d entries in %dms", numOfCharts, data.size(),
+                        (System.nanoTime() - startTime) / 1_000_000L));
+            }
+            return;
+        }
+        if (args.length < 2 || args.length > 3 || (args.length == 3 && !"render".equals(args[0]))) {
+            usage();
+            return;
+        }
+        final Path path = Paths.get(args[1]).toAbsolutePath();
+        if ("render".equals(args[0])) {
+            final Path outputDirectory = (args.length == 3) ? Paths.get(args[2]).toAbsolutePath() : path.getParent();
+            final int failures;
+            try (AnnotationConfigApplicationContext context = createContext()) {
+                failures = create(context).render(path, outputDirectory).getFailures();
+            }
+            // exit only once context is closed, System.exit would skip closing it
+            if (failures > 0) {
+                System.exit(1);
+            }
+        } else if ("watch".equals(args[0])) {
+            final AnnotationConfigApplicationContext context = createContext();
+            final MorphologicalChartCli cli = create(context);
+            final Thread main = Thread.currentThread();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                main.interrupt();
+                try {
+                    // let the file being rendered finish, so that its totals are counted and it is moved
+                    main.join(SHUTDOWN_TIMEOUT_MILLIS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                if (main.isAlive()) {
+                    System.err.println(format("Rendering did not finish within %dms", SHUTDOWN_TIMEOUT_MILLIS));
+                }
+                System.out.println("Total: " + cli.totals);
+                context.close();
+            }, "morphological-chart-cli-shutdown"));
+            cli.watch(path);
+        } else {
+            usage();
+        }
+    }
+
+    private static void usage() {
+        System.err.println("Usage: render <templates.csv> [<output directory>]");
+        System.err.println("       watch <directory>");
+        System.err.println("       warm-up [<iterations>]");
+        System.err.println("       store <store file> <templates.csv>...");
+        System.err.println("Each line of CSV: output,template,root,translation,verbalNouns,adverbs");
+    }
+
+    private static AnnotationConfigApplicationContext createContext() {
+        return new AnnotationConfigApplicationContext(MorphologicalEngineConfiguration.class,
+                MorphologicalChartConfiguration.class);
+    }
+
+    private static MorphologicalChartCli create(AnnotationConfigApplicationContext context) {
+        return new MorphologicalChartCli(context.getBean(MorphologicalChartBatchService.class),
+                createChartConfiguration());
+    }
+
+    private static ChartConfiguration createChartConfiguration() {
+        ChartConfiguration chartConfiguration = new ChartConfiguration();
+        chartConfiguration.setArabicFontFamily(FontUtilities.defaultArabicFontName);
+        chartConfiguration.setArabicFontSize(FontUtilities.defaultArabicRegularFontSize);
+        chartConfiguration.setHeadingFontSize(FontUtilities.defaultArabicHeadingFontSize);
+        chartConfiguration.setTranslationFontFamily(FontUtilities.defaultEnglishFontName);
+        chartConfiguration.setTranslationFontSize(FontUtilities.DEFAULT_ENGLISH_FONT_SIZE);
+        return chartConfiguration;
+    }
+
+    /**
+     * Renders all templates of given file.
+     *
+     * @param path            CSV file to read templates from
+     * @param outputDirectory directory relative outputs are resolved against
+     * @return statistics of the file, also added to totals
+     */
+    Statistics render(Path path, Path outputDirectory) throws IOException, InterruptedException {
+        final Map<Path, ConjugationTemplate> templates = templateCsvReader.read(path, outputDirectory);
+        final List<Job> jobs = new ArrayList<>(templates.size());
+        long numOfCharts = 0;
+        for (Map.Entry<Path, ConjugationTemplate> entry : templates.entrySet()) {
+            Files.createDirectories(entry.getKey().toAbsolutePath().getParent());
+            jobs.add(Job.of(entry.getValue(), entry.getKey()));
+            numOfCharts += entry.getValue().getData().size();
+        }
+
+        final Statistics statistics = new Statistics();
+        final long startTime = System.nanoTime();
+        final List<Result> results = batchService.render(jobs, result -> {
+            if (!result.isSuccess()) {
+                System.err.println(format("Unable to create %s: %s", result.getDestination(), result.getFailure()));
+            }
+        });
+        int failures = 0;
+        for (Result result : results) {
+            if (!result.isSuccess()) {
+                failures++;
+            }
+        }
+        statistics.add(results.size(), failures, numOfCharts, System.nanoTime() - startTime);
+        totals.add(results.size(), failures, numOfCharts, statistics.getElapsedNanos());
+        System.out.println(format("%s: %s", path.getFileName(), statistics));
+        return statistics;
+    }
+
+    /**
+     * Renders files already present in given directory, then every file placed in it until interrupted.
+     */
+    void watch(Path directory) throws IOException {
+        final Path done = Files.createDirectories(directory.resolve("done"));
+        final Path failed = Files.createDirectories(directory.resolve("failed"));
+        try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
+            directory.register(watchService, ENTRY_CREATE);
+            System.out.println(format("Watching %s for %s files", directory, CSV_EXTENSION));
+            processPending(directory, done, failed);
+            while (!Thread.currentThread().isInterrupted()) {
+                final WatchKey key = watchService.take();
+                boolean overflow = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == OVERFLOW) {
+                        overflow = true;
+                    } else {
+                        process(directory.resolve((Path) event.context()), directory, done, failed);
+                    }
+                }
+                if (overflow) {
+                    processPending(directory, done, failed);
+                }
+                if (!key.reset()) {
+                    System.err.println(format("%s is no longer accessible", directory));
+                    return;
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void processPending(Path directory, Path done, Path failed) throws IOException, InterruptedException {
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(directory, "*" + CSV_EXTENSION)) {
+            for (Path path : paths) {
+                process(path, directory, done, failed);
+            }
+        }
+    }
+
+    private void process(Path path, Path directory, Path done, Path failed) throws IOException, InterruptedException {
+        if (!path.getFileName().toString().endsWith(CSV_EXTENSION) || !Files.isRegularFile(path)) {
+            return;
+        }
+        Path target = done;
+        try {
+            if (render(path, directory).getFailures() > 0) {
+                target = failed;
+            }
+        } catch (IOException | IllegalArgumentException ex) {
+            System.err.println(format("Unable to process %s: %s", path, ex.getMessage()));
+            target = failed;
+        }
+        Files.move(path, target.resolve(path.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Throughput of rendered documents, safe to update from multiple threads.
+     */
+    static final class Statistics {
+
+        private final AtomicInteger documents = new AtomicInteger();
+        private final AtomicInteger failures = new AtomicInteger();
+        private final AtomicLong charts = new AtomicLong();
+        private final AtomicLong elapsedNanos = new AtomicLong();
+
+        void add(int documents, int failures, long charts, long elapsedNanos) {
+            this.documents.addAndGet(documents);
+            this.failures.addAndGet(failures);
+            this.charts.addAndGet(charts);
+            this.elapsedNanos.addAndGet(elapsedNanos);
+        }
+
+        int getDocuments() {
+            return documents.get();
+        }
+
+        int getFailures() {
+            return failures.get();
+        }
+
+        long getCharts() {
+            return charts.get();
+        }
+
+        long getElapsedNanos() {
+            return elapsedNanos.get();
+        }
+
+        @Override
+        public String toString() {
+            final double seconds = Math.max(1L, getElapsedNanos()) / 1_000_000_000.0;
+            return format("%d documents (%d failed), %d charts in %.2fs, %.1f documents/s, %.1f charts/s",
+                    getDocuments(), getFailures(), getCharts(), seconds, getDocuments() / seconds,
+                    getCharts() / seconds);
+        }
+    }
+}
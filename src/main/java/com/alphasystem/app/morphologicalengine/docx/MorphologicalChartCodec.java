@@ -0,0 +1,647 @@
+package com.alphasystem.app.morphologicalengine.docx;
+
+import com.alphasystem.morphologicalanalysis.morphology.model.support.SarfTermType;
+import com.alphasystem.morphologicalengine.model.AbbreviatedConjugation;
+import com.alphasystem.morphologicalengine.model.AbbreviatedRecord;
+import com.alphasystem.morphologicalengine.model.ConjugationHeader;
+import com.alphasystem.morphologicalengine.model.ConjugationTuple;
+import com.alphasystem.morphologicalengine.model.DetailedConjugation;
+import com.alphasystem.morphologicalengine.model.MorphologicalChart;
+import com.alphasystem.morphologicalengine.model.NounConjugationGroup;
+import com.alphasystem.morphologicalengine.model.VerbConjugationGroup;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import static java.lang.String.format;
+
+/**
+ * Field level binary encoding of a {@link MorphologicalChart}, used by {@link MorphologicalChartStore} and by the
+ * binary format of {@link MorphologicalChartExporter}.
+ * <p>
+ * Fields are written in the order of the model: strings and objects are preceded by byte <code>1</code> or written as
+ * byte <code>0</code> if <code>null</code>, strings are in modified UTF-8 and arrays are preceded by their size as
+ * unsigned variable length integer. Translation of the header is not written, it belongs to the entry rather than to
+ * the conjugation and is supplied when reading. Abbreviated conjugation additionally holds whether it has a passive
+ * line, as a byte after its header.
+ * </p>
+ * <p>
+ * Charts read are read-only views over decoded values, only values and types written here are ever created, so a
+ * corrupt or hostile entry can at worst fail with an {@link IOException}.
+ * </p>
+ *
+ * @author sali
+ */
+final class MorphologicalChartCodec {
+
+    private static final int MAX_ARRAY_SIZE = 256;
+
+    private MorphologicalChartCodec() {
+    }
+
+    static void write(DataOutput output, MorphologicalChart morphologicalChart) throws IOException {
+        writeAbbreviatedConjugation(output, morphologicalChart.getAbbreviatedConjugation());
+        writeDetailedConjugation(output, morphologicalChart.getDetailedConjugation());
+    }
+
+    /**
+     * @param translation translation of the entry the chart is read for
+     * @throws IOException if input ends early or holds invalid values
+     */
+    static MorphologicalChart read(DataInput input, String translation) throws IOException {
+        final AbbreviatedConjugation abbreviatedConjugation = readAbbreviatedConjugation(input, translation);
+        final DetailedConjugation detailedConjugation = readDetailedConjugation(input);
+        return new StoredChart(abbreviatedConjugation, detailedConjugation);
+    }
+
+    private static void writeAbbreviatedConjugation(DataOutput output, AbbreviatedConjugation abbreviatedConjugation)
+            throws IOException {
+        if (!writePresence(output, abbreviatedConjugation)) {
+            return;
+        }
+        final ConjugationHeader conjugationHeader = abbreviatedConjugation.getConjugationHeader();
+        if (writePresence(output, conjugationHeader)) {
+            writeString(output, conjugationHeader.getTitle());
+            writeString(output, conjugationHeader.getTypeLabel1());
+            writeString(output, conjugationHeader.getTypeLabel2());
+            writeString(output, conjugationHeader.getTypeLabel3());
+        }
+        output.writeBoolean(abbreviatedConjugation.hasPassiveLine());
+        writeRecord(output, abbreviatedConjugation.getPastTense());
+        writeRecord(output, abbreviatedConjugation.getPresentTense());
+        writeRecords(output, abbreviatedConjugation.getVerbalNouns());
+        writeRecord(output, abbreviatedConjugation.getActiveParticipleMasculine());
+        writeRecord(output, abbreviatedConjugation.getPastPassiveTense());
+        writeRecord(output, abbreviatedConjugation.getPresentPassiveTense());
+        writeRecord(output, abbreviatedConjugation.getPassiveParticipleMasculine());
+        writeRecord(output, abbreviatedConjugation.getImperative());
+        writeRecord(output, abbreviatedConjugation.getForbidding());
+        writeRecords(output, abbreviatedConjugation.getAdverbs());
+    }
+
+    private static AbbreviatedConjugation readAbbreviatedConjugation(DataInput input, String translation)
+            throws IOException {
+        if (!readPresence(input)) {
+            return null;
+        }
+        final StoredAbbreviatedConjugation abbreviatedConjugation = new StoredAbbreviatedConjugation();
+        if (readPresence(input)) {
+            abbreviatedConjugation.conjugationHeader = new StoredHeader(readString(input), translation,
+                    readString(input), readString(input), readString(input));
+        }
+        abbreviatedConjugation.passiveLine = input.readBoolean();
+        abbreviatedConjugation.pastTense = readRecord(input);
+        abbreviatedConjugation.presentTense = readRecord(input);
+        abbreviatedConjugation.verbalNouns = readRecords(input);
+        abbreviatedConjugation.activeParticipleMasculine = readRecord(input);
+        abbreviatedConjugation.pastPassiveTense = readRecord(input);
+        abbreviatedConjugation.presentPassiveTense = readRecord(input);
+        abbreviatedConjugation.passiveParticipleMasculine = readRecord(input);
+        abbreviatedConjugation.imperative = readRecord(input);
+        abbreviatedConjugation.forbidding = readRecord(input);
+        abbreviatedConjugation.adverbs = readRecords(input);
+        return abbreviatedConjugation;
+    }
+
+    private static void writeRecord(DataOutput output, AbbreviatedRecord abbreviatedRecord) throws IOException {
+        writeString(output, (abbreviatedRecord == null) ? null : abbreviatedRecord.getLabel());
+    }
+
+    private static AbbreviatedRecord readRecord(DataInput input) throws IOException {
+        final String label = readString(input);
+        return (label == null) ? null : new StoredRecord(label);
+    }
+
+    private static void writeRecords(DataOutput output, AbbreviatedRecord[] abbreviatedRecords) throws IOException {
+        final int size = (abbreviatedRecords == null) ? 0 : abbreviatedRecords.length;
+        writeSize(output, size);
+        for (int index = 0; index < size; index++) {
+            writeRecord(output, abbreviatedRecords[index]);
+        }
+    }
+
+    private static AbbreviatedRecord[] readRecords(DataInput input) throws IOException {
+        final AbbreviatedRecord[] abbreviatedRecords = new AbbreviatedRecord[readSize(input)];
+        for (int index = 0; index < abbreviatedRecords.length; index++) {
+            abbreviatedRecords[index] = readRecord(input);
+        }
+        return abbreviatedRecords;
+    }
+
+    private static void writeDetailedConjugation(DataOutput output, DetailedConjugation detailedConjugation)
+            throws IOException {
+        if (!writePresence(output, detailedConjugation)) {
+            return;
+        }
+        writeVerbGroup(output, detailedConjugation.getPastTense());
+        writeVerbGroup(output, detailedConjugation.getPresentTense());
+        writeNounGroup(output, detailedConjugation.getActiveParticipleMasculine());
+        writeNounGroup(output, detailedConjugation.getActiveParticipleFeminine());
+        writeNounGroups(output, detailedConjugation.getVerbalNouns());
+        writeVerbGroup(output, detailedConjugation.getPastPassiveTense());
+        writeVerbGroup(output, detailedConjugation.getPresentPassiveTense());
+        writeNounGroup(output, detailedConjugation.getPassiveParticipleMasculine());
+        writeNounGroup(output, detailedConjugation.getPassiveParticipleFeminine());
+        writeVerbGroup(output, detailedConjugation.getImperative());
+        writeVerbGroup(output, detailedConjugation.getForbidding());
+        writeNounGroups(output, detailedConjugation.getAdverbs());
+    }
+
+    private static DetailedConjugation readDetailedConjugation(DataInput input) throws IOException {
+        if (!readPresence(input)) {
+            return null;
+        }
+        final StoredDetailedConjugation detailedConjugation = new StoredDetailedConjugation();
+        detailedConjugation.pastTense = readVerbGroup(input);
+        detailedConjugation.presentTense = readVerbGroup(input);
+        detailedConjugation.activeParticipleMasculine = readNounGroup(input);
+        detailedConjugation.activeParticipleFeminine = readNounGroup(input);
+        detailedConjugation.verbalNouns = readNounGroups(input);
+        detailedConjugation.pastPassiveTense = readVerbGroup(input);
+        detailedConjugation.presentPassiveTense = readVerbGroup(input);
+        detailedConjugation.passiveParticipleMasculine = readNounGroup(input);
+        detailedConjugation.passiveParticipleFeminine = readNounGroup(input);
+        detailedConjugation.imperative = readVerbGroup(input);
+        detailedConjugation.forbidding = readVerbGroup(input);
+        detailedConjugation.adverbs = readNounGroups(input);
+        return detailedConjugation;
+    }
+
+    private static void writeVerbGroup(DataOutput output, VerbConjugationGroup group) throws IOException {
+        if (!writePresence(output, group)) {
+            return;
+        }
+        writeTermType(output, group.getTermType());
+        writeTuple(output, group.getMasculineThirdPerson());
+        writeTuple(output, group.getFeminineThirdPerson());
+        writeTuple(output, group.getMasculineSecondPerson());
+        writeTuple(output, group.getFeminineSecondPerson());
+        writeTuple(output, group.getFirstPerson());
+    }
+
+    private static VerbConjugationGroup readVerbGroup(DataInput input) throws IOException {
+        if (!readPresence(input)) {
+            return null;
+        }
+        return new StoredVerbGroup(readTermType(input), readTuple(input), readTuple(input), readTuple(input),
+                readTuple(input), readTuple(input));
+    }
+
+    private static void writeNounGroup(DataOutput output, NounConjugationGroup group) throws IOException {
+        if (!writePresence(output, group)) {
+            return;
+        }
+        writeTermType(output, group.getTermType());
+        writeTuple(output, group.getNominative());
+        writeTuple(output, group.getAccusative());
+        writeTuple(output, group.getGenitive());
+    }
+
+    private static NounConjugationGroup readNounGroup(DataInput input) throws IOException {
+        if (!readPresence(input)) {
+            return null;
+        }
+        return new StoredNounGroup(readTermType(input), readTuple(input), readTuple(input), readTuple(input));
+    }
+
+    private static void writeNounGroups(DataOutput output, NounConjugationGroup[] groups) throws IOException {
+        final int size = (groups == null) ? 0 : groups.length;
+        writeSize(output, size);
+        for (int index = 0; index < size; index++) {
+            writeNounGroup(output, groups[index]);
+        }
+    }
+
+    private static NounConjugationGroup[] readNounGroups(DataInput input) throws IOException {
+        final NounConjugationGroup[] groups = new NounConjugationGroup[readSize(input)];
+        for (int index = 0; index < groups.length; index++) {
+            groups[index] = readNounGroup(input);
+        }
+        return groups;
+    }
+
+    private static void writeTermType(DataOutput output, SarfTermType termType) throws IOException {
+        writeString(output, (termType == null) ? null : termType.name());
+    }
+
+    private static SarfTermType readTermType(DataInput input) throws IOException {
+        final String name = readString(input);
+        if (name == null) {
+            return null;
+        }
+        try {
+            return SarfTermType.valueOf(name);
+        } catch (IllegalArgumentException ex) {
+            throw new IOException(format("Unknown term type {%s}", name), ex);
+        }
+    }
+
+    private static void writeTuple(DataOutput output, ConjugationTuple tuple) throws IOException {
+        if (!writePresence(output, tuple)) {
+            return;
+        }
+        writeString(output, tuple.getSingular());
+        writeString(output, tuple.getDual());
+        writeString(output, tuple.getPlural());
+    }
+
+    private static ConjugationTuple readTuple(DataInput input) throws IOException {
+        if (!readPresence(input)) {
+            return null;
+        }
+        return new StoredTuple(readString(input), readString(input), readString(input));
+    }
+
+    private static boolean writePresence(DataOutput output, Object value) throws IOException {
+        output.writeByte((value == null) ? 0 : 1);
+        return value != null;
+    }
+
+    private static boolean readPresence(DataInput input) throws IOException {
+        final byte presence = input.readByte();
+        if (presence != 0 && presence != 1) {
+            throw new IOException(format("Invalid presence byte {%s}", presence));
+        }
+        return presence == 1;
+    }
+
+    private static void writeString(DataOutput output, String value) throws IOException {
+        if (writePresence(output, value)) {
+            output.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInput input) throws IOException {
+        return readPresence(input) ? input.readUTF() : null;
+    }
+
+    private static void writeSize(DataOutput output, int size) throws IOException {
+        int value = size;
+        while ((value & ~0x7F) != 0) {
+            output.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        output.writeByte(value);
+    }
+
+    private static int readSize(DataInput input) throws IOException {
+        int size = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            final int value = input.readUnsignedByte();
+            size |= (value & 0x7F) << shift;
+            if ((value & 0x80) == 0) {
+                if (size < 0 || size > MAX_ARRAY_SIZE) {
+                    throw new IOException(format("Invalid array size {%s}", size));
+                }
+                return size;
+            }
+        }
+        throw new IOException("Invalid array size");
+    }
+
+    private static final class StoredChart extends MorphologicalChart {
+
+        private final AbbreviatedConjugation abbreviatedConjugation;
+        private final DetailedConjugation detailedConjugation;
+
+        private StoredChart(AbbreviatedConjugation abbreviatedConjugation, DetailedConjugation detailedConjugation) {
+            this.abbreviatedConjugation = abbreviatedConjugation;
+            this.detailedConjugation = detailedConjugation;
+        }
+
+        @Override
+        public AbbreviatedConjugation getAbbreviatedConjugation() {
+            return abbreviatedConjugation;
+        }
+
+        @Override
+        public DetailedConjugation getDetailedConjugation() {
+            return detailedConjugation;
+        }
+    }
+
+    private static final class StoredHeader extends ConjugationHeader {
+
+        private final String title;
+        private final String translation;
+        private final String typeLabel1;
+        private final String typeLabel2;
+        private final String typeLabel3;
+
+        private StoredHeader(String title, String translation, String typeLabel1, String typeLabel2,
+                             String typeLabel3) {
+            this.title = title;
+            this.translation = translation;
+            this.typeLabel1 = typeLabel1;
+            this.typeLabel2 = typeLabel2;
+            this.typeLabel3 = typeLabel3;
+        }
+
+        @Override
+        public String getTitle() {
+            return title;
+        }
+
+        @Override
+        public String getTranslation() {
+            return translation;
+        }
+
+        @Override
+        public String getTypeLabel1() {
+            return typeLabel1;
+        }
+
+        @Override
+        public String getTypeLabel2() {
+            return typeLabel2;
+        }
+
+        @Override
+        public String getTypeLabel3() {
+            return typeLabel3;
+        }
+    }
+
+    private static final class StoredRecord extends AbbreviatedRecord {
+
+        private final String label;
+
+        private StoredRecord(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private static final class StoredAbbreviatedConjugation extends AbbreviatedConjugation {
+
+        private ConjugationHeader conjugationHeader;
+        private boolean passiveLine;
+        private AbbreviatedRecord pastTense;
+        private AbbreviatedRecord presentTense;
+        private AbbreviatedRecord[] verbalNouns;
+        private AbbreviatedRecord activeParticipleMasculine;
+        private AbbreviatedRecord pastPassiveTense;
+        private AbbreviatedRecord presentPassiveTense;
+        private AbbreviatedRecord passiveParticipleMasculine;
+        private AbbreviatedRecord imperative;
+        private AbbreviatedRecord forbidding;
+        private AbbreviatedRecord[] adverbs;
+
+        @Override
+        public ConjugationHeader getConjugationHeader() {
+            return conjugationHeader;
+        }
+
+        @Override
+        public boolean hasPassiveLine() {
+            return passiveLine;
+        }
+
+        @Override
+        public AbbreviatedRecord getPastTense() {
+            return pastTense;
+        }
+
+        @Override
+        public AbbreviatedRecord getPresentTense() {
+            return presentTense;
+        }
+
+        @Override
+        public AbbreviatedRecord[] getVerbalNouns() {
+            return verbalNouns;
+        }
+
+        @Override
+        public AbbreviatedRecord getActiveParticipleMasculine() {
+            return activeParticipleMasculine;
+        }
+
+        @Override
+        public AbbreviatedRecord getPastPassiveTense() {
+            return pastPassiveTense;
+        }
+
+        @Override
+        public AbbreviatedRecord getPresentPassiveTense() {
+            return presentPassiveTense;
+        }
+
+        @Override
+        public AbbreviatedRecord getPassiveParticipleMasculine() {
+            return passiveParticipleMasculine;
+        }
+
+        @Override
+        public AbbreviatedRecord getImperative() {
+            return imperative;
+        }
+
+        @Override
+        public AbbreviatedRecord getForbidding() {
+            return forbidding;
+        }
+
+        @Override
+        public AbbreviatedRecord[] getAdverbs() {
+            return adverbs;
+        }
+    }
+
+    private static final class StoredDetailedConjugation extends DetailedConjugation {
+
+        private VerbConjugationGroup pastTense;
+        private VerbConjugationGroup presentTense;
+        private NounConjugationGroup activeParticipleMasculine;
+        private NounConjugationGroup activeParticipleFeminine;
+        private NounConjugationGroup[] verbalNouns;
+        private VerbConjugationGroup pastPassiveTense;
+        private VerbConjugationGroup presentPassiveTense;
+        private NounConjugationGroup passiveParticipleMasculine;
+        private NounConjugationGroup passiveParticipleFeminine;
+        private VerbConjugationGroup imperative;
+        private VerbConjugationGroup forbidding;
+        private NounConjugationGroup[] adverbs;
+
+        @Override
+        public VerbConjugationGroup getPastTense() {
+            return pastTense;
+        }
+
+        @Override
+        public VerbConjugationGroup getPresentTense() {
+            return presentTense;
+        }
+
+        @Override
+        public NounConjugationGroup getActiveParticipleMasculine() {
+            return activeParticipleMasculine;
+        }
+
+        @Override
+        public NounConjugationGroup getActiveParticipleFeminine() {
+            return activeParticipleFeminine;
+        }
+
+        @Override
+        public NounConjugationGroup[] getVerbalNouns() {
+            return verbalNouns;
+        }
+
+        @Override
+        public VerbConjugationGroup getPastPassiveTense() {
+            return pastPassiveTense;
+        }
+
+        @Override
+        public VerbConjugationGroup getPresentPassiveTense() {
+            return presentPassiveTense;
+        }
+
+        @Override
+        public NounConjugationGroup getPassiveParticipleMasculine() {
+            return passiveParticipleMasculine;
+        }
+
+        @Override
+        public NounConjugationGroup getPassiveParticipleFeminine() {
+            return passiveParticipleFeminine;
+        }
+
+        @Override
+        public VerbConjugationGroup getImperative() {
+            return imperative;
+        }
+
+        @Override
+        public VerbConjugationGroup getForbidding() {
+            return forbidding;
+        }
+
+        @Override
+        public NounConjugationGroup[] getAdverbs() {
+            return adverbs;
+        }
+    }
+
+    private static final class StoredVerbGroup extends VerbConjugationGroup {
+
+        private final SarfTermType termType;
+        private final ConjugationTuple masculineThirdPerson;
+        private final ConjugationTuple feminineThirdPerson;
+        private final ConjugationTuple masculineSecondPerson;
+        private final ConjugationTuple feminineSecondPerson;
+        private final ConjugationTuple firstPerson;
+
+        private StoredVerbGroup(SarfTermType termType, ConjugationTuple masculineThirdPerson,
+                                ConjugationTuple feminineThirdPerson, ConjugationTuple masculineSecondPerson,
+                                ConjugationTuple feminineSecondPerson, ConjugationTuple firstPerson) {
+            this.termType = termType;
+            this.masculineThirdPerson = masculineThirdPerson;
+            this.feminineThirdPerson = feminineThirdPerson;
+            this.masculineSecondPerson = masculineSecondPerson;
+            this.feminineSecondPerson = feminineSecondPerson;
+            this.firstPerson = firstPerson;
+        }
+
+        @Override
+        public SarfTermType getTermType() {
+            return termType;
+        }
+
+        @Override
+        public ConjugationTuple getMasculineThirdPerson() {
+            return masculineThirdPerson;
+        }
+
+        @Override
+        public ConjugationTuple getFeminineThirdPerson() {
+            return feminineThirdPerson;
+        }
+
+        @Override
+        public ConjugationTuple getMasculineSecondPerson() {
+            return masculineSecondPerson;
+        }
+
+        @Override
+        public ConjugationTuple getFeminineSecondPerson() {
+            return feminineSecondPerson;
+        }
+
+        @Override
+        public ConjugationTuple getFirstPerson() {
+            return firstPerson;
+        }
+    }
+
+    private static final class StoredNounGroup extends NounConjugationGroup {
+
+        private final SarfTermType termType;
+        private final ConjugationTuple nominative;
+        private final ConjugationTuple accusative;
+        private final ConjugationTuple genitive;
+
+        private StoredNounGroup(SarfTermType termType, ConjugationTuple nominative, ConjugationTuple accusative,
+                                ConjugationTuple genitive) {
+            this.termType = termType;
+            this.nominative = nominative;
+            this.accusative = accusative;
+            this.genitive = genitive;
+        }
+
+        @Override
+        public SarfTermType getTermType() {
+            return termType;
+        }
+
+        @Override
+        public ConjugationTuple getNominative() {
+            return nominative;
+        }
+
+        @Override
+        public ConjugationTuple getAccusative() {
+            return accusative;
+        }
+
+        @Override
+        public ConjugationTuple getGenitive() {
+            return genitive;
+        }
+    }
+
+    private static final class StoredTuple extends ConjugationTuple {
+
+        private final String singular;
+        private final String dual;
+        private final String plural;
+
+        private StoredTuple(String singular, String dual, String plural) {
+            this.singular = singular;
+            this.dual = dual;
+            this.plural = plural;
+        }
+
+        @Override
+        public String getSingular() {
+            return singular;
+        }
+
+        @Override
+        public String getDual() {
+            return dual;
+        }
+
+        @Override
+        public String getPlural() {
+            return plural;
+        }
+    }
+}
@@ -2,9 +2,19 @@ package com.alphasystem.app.morphologicalengine.docx;
 
 import com.alphasystem.app.morphologicalengine.conjugation.builder.ConjugationBuilder;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+
 /**
  * @author sali
  */
@@ -21,18 +31,143 @@ public class MorphologicalChartConfiguration {
         return DetailedConjugationAdapter::new;
     }
 
+    /**
+     * Cache of conjugated charts, maximum number of charts is controlled by <code>morphological.chart.cache.size</code>,
+     * a size of zero, the default, turns caching off.
+     */
+    @Bean
+    MorphologicalChartCache morphologicalChartCache(@Value("${morphological.chart.cache.size:" +
+            MorphologicalChartRenderer.DEFAULT_CACHE_SIZE + "}") int maximumSize) {
+        return new MorphologicalChartCache(maximumSize);
+    }
+
+    /**
+     * Cache of serialized tables used by {@link OutputBackend#STAX}, maximum number of tables is controlled by
+     * <code>morphological.chart.fragment.cache.size</code>, a size of zero turns caching off.
+     */
     @Bean
-    SupplierFactory supplierFactory(@Autowired ConjugationBuilder conjugationBuilder) {
-        return conjugationData -> new MorphologicalChartSupplier(conjugationData, conjugationBuilder);
+    TableFragmentCache tableFragmentCache(@Value("${morphological.chart.fragment.cache.size:" +
+            MorphologicalChartRenderer.DEFAULT_FRAGMENT_CACHE_SIZE + "}") int maximumSize) {
+        return new TableFragmentCache(maximumSize);
+    }
+
+    /**
+     * Store of pre-conjugated charts mapped from the file at <code>morphological.chart.store</code>, charts missing
+     * from the store are conjugated. Store is empty if no file is set, mapping is dropped when context is closed.
+     * Store is ignored if version of the conjugation builder is unknown, unless
+     * <code>morphological.chart.store.unknown.version.allowed</code> is <code>true</code>.
+     */
+    @Bean(destroyMethod = "close")
+    MorphologicalChartStore morphologicalChartStore(
+            @Value("${morphological.chart.store:}") String path,
+            @Value("${morphological.chart.store.unknown.version.allowed:false}") boolean allowUnknownVersion)
+            throws IOException {
+        return path.isEmpty() ? MorphologicalChartStore.empty() :
+                MorphologicalChartStore.open(Paths.get(path), allowUnknownVersion);
     }
 
     @Bean
-    MorphologicalChartEngineFactory morphologicalChartEngineFactory(
+    SupplierFactory supplierFactory(@Autowired ConjugationBuilder conjugationBuilder,
+                                    @Autowired MorphologicalChartCache morphologicalChartCache,
+                                    @Autowired MorphologicalChartStore morphologicalChartStore) {
+        return conjugationData -> new MorphologicalChartSupplier(conjugationData, conjugationBuilder,
+                morphologicalChartCache, morphologicalChartStore);
+    }
+
+    /**
+     * Executor used to create charts in parallel, number of threads is controlled by
+     * <code>morphological.chart.parallelism</code> and defaults to number of available processors. Threads are only
+     * started once parallel mode is enabled via <code>morphological.chart.parallel</code> or pipelined rendering is
+     * enabled via <code>morphological.chart.pipeline.depth</code>.
+     */
+    @Bean(destroyMethod = "shutdown")
+    ExecutorService morphologicalChartExecutor(@Value("${morphological.chart.parallelism:0}") int parallelism) {
+        return newFixedThreadPool("morphological-chart-", parallelism);
+    }
+
+    /**
+     * Executor used to render documents of a batch, number of threads is controlled by
+     * <code>morphological.chart.batch.parallelism</code> and defaults to number of available processors.
+     */
+    @Bean(destroyMethod = "shutdown")
+    ExecutorService morphologicalChartBatchExecutor(@Value("${morphological.chart.batch.parallelism:0}") int parallelism) {
+        return newFixedThreadPool("morphological-batch-", parallelism);
+    }
+
+    static ExecutorService newFixedThreadPool(String namePrefix, int parallelism) {
+        final int numOfThreads = (parallelism > 0) ? parallelism : Runtime.getRuntime().availableProcessors();
+        final AtomicInteger threadNumber = new AtomicInteger(0);
+        return Executors.newFixedThreadPool(numOfThreads, runnable -> {
+            final Thread thread = new Thread(runnable, namePrefix + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Metrics of generated documents, only collected if <code>morphological.chart.metrics.enabled</code> is set.
+     */
+    @Bean
+    DocumentGenerationMetrics documentGenerationMetrics(
+            @Value("${morphological.chart.metrics.slowest:0}") int numOfSlowestCharts) {
+        return new DocumentGenerationMetrics(numOfSlowestCharts);
+    }
+
+    /**
+     * Thread safe renderer shared by all callers, it is also the {@link MorphologicalChartEngineFactory} of the
+     * application. Entries that repeat an earlier entry are rendered as a link to its chart if
+     * <code>morphological.chart.duplicates.collapse</code> is set. Renderer is wired by
+     * {@link MorphologicalChartRenderer.Builder} with components of this configuration.
+     */
+    @Bean
+    MorphologicalChartRenderer morphologicalChartRenderer(
+            @Autowired ConjugationBuilder conjugationBuilder,
             @Autowired AbbreviatedConjugationFactory abbreviatedConjugationFactory,
             @Autowired DetailedConjugationFactory detailedConjugationFactory,
-            @Autowired SupplierFactory supplierFactory) {
-        return conjugationTemplate -> new MorphologicalChartEngine(abbreviatedConjugationFactory,
-                detailedConjugationFactory, supplierFactory, conjugationTemplate);
+            @Autowired SupplierFactory supplierFactory,
+            @Autowired @Qualifier("morphologicalChartExecutor") Executor morphologicalChartExecutor,
+            @Value("${morphological.chart.parallel:false}") boolean parallel,
+            @Value("${morphological.chart.pipeline.depth:0}") int pipelineDepth,
+            @Value("${morphological.chart.output.backend:JAXB}") OutputBackend outputBackend,
+            @Value("${morphological.chart.compression.level:" + Deflater.DEFAULT_COMPRESSION + "}")
+                    int compressionLevel,
+            @Autowired DocumentGenerationMetrics documentGenerationMetrics,
+            @Value("${morphological.chart.metrics.enabled:false}") boolean metricsEnabled,
+            @Autowired TableFragmentCache tableFragmentCache,
+            @Value("${morphological.chart.toc.precomputed:false}") boolean precomputedToc,
+            @Value("${morphological.chart.duplicates.collapse:false}") boolean collapseDuplicates) {
+        return MorphologicalChartRenderer.builder(conjugationBuilder)
+                .components(abbreviatedConjugationFactory, detailedConjugationFactory, supplierFactory,
+                        tableFragmentCache)
+                .executor(morphologicalChartExecutor)
+                .parallel(parallel)
+                .pipelineDepth(pipelineDepth)
+                .outputBackend(outputBackend)
+                .compressionLevel(compressionLevel)
+                .listener(metricsEnabled ? documentGenerationMetrics : DocumentGenerationListener.NO_OP)
+                .precomputedToc(precomputedToc)
+                .collapseDuplicates(collapseDuplicates)
+                .build();
+    }
+
+    /**
+     * Batch service, number of documents in flight is limited by <code>morphological.chart.batch.max.in.flight</code>
+     * (defaults to twice the batch parallelism) and by <code>morphological.chart.batch.memory.budget</code> in bytes
+     * (defaults to a quarter of maximum heap), each chart is estimated to take
+     * <code>morphological.chart.batch.chart.size</code> bytes.
+     */
+    @Bean
+    MorphologicalChartBatchService morphologicalChartBatchService(
+            @Autowired MorphologicalChartEngineFactory morphologicalChartEngineFactory,
+            @Autowired @Qualifier("morphologicalChartBatchExecutor") Executor morphologicalChartBatchExecutor,
+            @Value("${morphological.chart.batch.parallelism:0}") int parallelism,
+            @Value("${morphological.chart.batch.max.in.flight:0}") int maxInFlight,
+            @Value("${morphological.chart.batch.memory.budget:0}") long memoryBudget,
+            @Value("${morphological.chart.batch.chart.size:262144}") long estimatedChartSize) {
+        final int numOfThreads = (parallelism > 0) ? parallelism : Runtime.getRuntime().availableProcessors();
+        return new MorphologicalChartBatchService(morphologicalChartEngineFactory, morphologicalChartBatchExecutor,
+                (maxInFlight > 0) ? maxInFlight : 2 * numOfThreads,
+                (memoryBudget > 0) ? memoryBudget : Runtime.getRuntime().maxMemory() / 4, estimatedChartSize);
     }
 
 }
@@ -1,8 +1,12 @@
 package com.alphasystem.app.morphologicalengine.docx;
 
+import com.alphasystem.app.morphologicalengine.docx.GenerationEvent.Phase;
+import com.alphasystem.app.morphologicalengine.docx.TableFragment.TableType;
+import com.alphasystem.arabic.model.NamedTemplate;
 import com.alphasystem.morphologicalanalysis.morphology.model.ChartConfiguration;
 import com.alphasystem.morphologicalanalysis.morphology.model.ConjugationData;
 import com.alphasystem.morphologicalanalysis.morphology.model.ConjugationTemplate;
+import com.alphasystem.morphologicalanalysis.morphology.model.RootLetters;
 import com.alphasystem.morphologicalengine.model.AbbreviatedConjugation;
 import com.alphasystem.morphologicalengine.model.DetailedConjugation;
 import com.alphasystem.morphologicalengine.model.MorphologicalChart;
@@ -13,28 +17,124 @@ import org.docx4j.openpackaging.exceptions.Docx4JException;
 import org.docx4j.openpackaging.parts.WordprocessingML.MainDocumentPart;
 import org.docx4j.wml.P;
 
+import javax.xml.stream.XMLStreamException;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.zip.Deflater;
+
+import static com.alphasystem.arabic.model.ArabicLetterType.AIN;
+import static com.alphasystem.arabic.model.ArabicLetterType.FA;
+import static com.alphasystem.arabic.model.ArabicLetterType.LAM;
+import static java.lang.String.format;
 
 /**
+ * Renders a single {@link ConjugationTemplate}, an engine is not thread safe. Use {@link MorphologicalChartRenderer} to
+ * serve concurrent requests.
+ *
  * @author sali
  */
 public class MorphologicalChartEngine extends DocumentAdapter {
 
+    private static final String TOC_HEADING = "Table of Contents";
+    private static final String TOC_BOOKMARK_NAME = TOC_HEADING.replaceAll(" ", "_").toLowerCase();
+    private static final String TOC_INSTRUCTION = " TOC \\o \"1-3\" \\h \\z \\t \"Arabic-Heading1,1\" ";
+    private static final String TOC_STYLE = "TOCArabic";
+    private static final String BACK_LINK_LABEL = "Back to Top";
+    private static final String DUPLICATE_LINK_LABEL = "Same as chart %d";
+    private static final long ESTIMATED_ABBREVIATED_CHART_SIZE = 2L * 1024L;
+    private static final long ESTIMATED_DETAILED_CHART_SIZE = 8L * 1024L;
+    private static final int EXPORT_WINDOW_SIZE = 16;
+
     private final AbbreviatedConjugationFactory abbreviatedConjugationFactory;
     private final DetailedConjugationFactory detailedConjugationFactory;
     private final SupplierFactory supplierFactory;
     private final ConjugationTemplate conjugationTemplate;
     private final ChartConfiguration chartConfiguration;
+    private final Executor executor;
+    private final int pipelineDepth;
+    private final OutputBackend outputBackend;
+    private final int compressionLevel;
+    private final DocumentGenerationListener listener;
+    private final TableFragmentCache tableFragmentCache;
+    private final boolean precomputedToc;
+    private final boolean collapseDuplicates;
+
+    MorphologicalChartEngine(AbbreviatedConjugationFactory abbreviatedConjugationFactory,
+                             DetailedConjugationFactory detailedConjugationFactory,
+                             SupplierFactory supplierFactory,
+                             ConjugationTemplate conjugationTemplate) {
+        this(abbreviatedConjugationFactory, detailedConjugationFactory, supplierFactory, null, 0, OutputBackend.JAXB,
+                Deflater.DEFAULT_COMPRESSION, DocumentGenerationListener.NO_OP, null, false, false, conjugationTemplate);
+    }
 
+    /**
+     * @param executor         executor to run {@link MorphologicalChartSupplier}s on, if <code>null</code> charts are
+     *                         created sequentially on the calling thread
+     * @param pipelineDepth    if greater than zero, charts are rendered as soon as they are created and at most this
+     *                         many charts are held in memory at any time, otherwise all charts are created before
+     *                         rendering
+     * @param outputBackend    backend used to write document
+     * @param compressionLevel {@link Deflater} compression level of the document, <code>0</code> stores parts
+     *                         without compression
+     * @param listener           listener to report generation phases to, may be <code>null</code>
+     * @param tableFragmentCache cache of serialized tables used by {@link OutputBackend#STAX}, may be <code>null</code>
+     * @param precomputedToc     if <code>true</code> then table of contents is generated from chart titles instead of
+     *                           being left for the client to update, all charts are then created before rendering
+     * @param collapseDuplicates if <code>true</code> then an entry that repeats an earlier entry is rendered as a link to
+     *                           the chart of the earlier entry instead of a copy of it
+     */
     MorphologicalChartEngine(AbbreviatedConjugationFactory abbreviatedConjugationFactory,
                              DetailedConjugationFactory detailedConjugationFactory,
                              SupplierFactory supplierFactory,
+                             Executor executor,
+                             int pipelineDepth,
+                             OutputBackend outputBackend,
+                             int compressionLevel,
+                             DocumentGenerationListener listener,
+                             TableFragmentCache tableFragmentCache,
+                             boolean precomputedToc,
+                             boolean collapseDuplicates,
                              ConjugationTemplate conjugationTemplate) {
         this.abbreviatedConjugationFactory = abbreviatedConjugationFactory;
         this.detailedConjugationFactory = detailedConjugationFactory;
         this.supplierFactory = supplierFactory;
+        this.executor = executor;
+        this.pipelineDepth = pipelineDepth;
+        this.outputBackend = (outputBackend == null) ? OutputBackend.JAXB : outputBackend;
+        this.compressionLevel = compressionLevel;
+        this.listener = (listener == null) ? DocumentGenerationListener.NO_OP : listener;
+        this.tableFragmentCache = (tableFragmentCache == null) ? new TableFragmentCache(0) : tableFragmentCache;
+        this.precomputedToc = precomputedToc;
+        this.collapseDuplicates = collapseDuplicates;
         this.conjugationTemplate = conjugationTemplate;
         chartConfiguration = (conjugationTemplate == null) ? new ChartConfiguration() :
                 conjugationTemplate.getChartConfiguration();
@@ -45,74 +145,858 @@ public class MorphologicalChartEngine extends DocumentAdapter {
         return chartConfiguration;
     }
 
+    /**
+     * Creates document at given path. Document is first written to a temporary file in the same directory, forced to
+     * the storage device and then atomically replaces the target file, readers never see a partially written document.
+     *
+     * @param path path of the document
+     * @throws Docx4JException if unable to create document
+     */
     public void createDocument(Path path) throws Docx4JException {
-        WmlHelper.createDocument(path, this);
+        writeFile(path, this::createDocument);
+    }
+
+    /**
+     * Updates document created earlier from a previous version of the template. Only entries that were added or whose
+     * inputs have changed, identified by {@link ConjugationData#getId()} and a hash of their inputs, are conjugated
+     * and rendered again, sections of all other entries are copied from the previous document as is.
+     * <p>
+     * Incremental update requires {@link OutputBackend#STAX}, a table of contents that is not pre-computed and
+     * duplicate entries that are not collapsed, if the previous document does not exist, was written by a different
+     * backend or with a different configuration then the whole document is created again.
+     * </p>
+     *
+     * @param previousDocument document created earlier, may be the same as <code>path</code>
+     * @param path             path of the updated document
+     * @throws Docx4JException if unable to create document
+     */
+    public void updateDocument(Path previousDocument, Path path) throws Docx4JException {
+        final IncrementalDocument previous;
+        try {
+            previous = (conjugationTemplate == null || !OutputBackend.STAX.equals(outputBackend) || precomputedToc ||
+                    collapseDuplicates) ? null : IncrementalDocument.read(previousDocument, chartConfiguration);
+        } catch (IOException ex) {
+            throw new Docx4JException(format("Failed to read document {%s}", previousDocument), ex);
+        }
+        if (previous == null) {
+            createDocument(path);
+        } else {
+            writeFile(path, outputStream -> updateDocument(outputStream, previous));
+        }
+    }
+
+    private void writeFile(Path path, DocumentWriter documentWriter) throws Docx4JException {
+        final Path fileName = path.getFileName();
+        final Path tempFile = path.resolveSibling(format(".%s.%s.tmp", fileName, UUID.randomUUID()));
+        try {
+            try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                documentWriter.write(Channels.newOutputStream(channel));
+                // data must be durable before the rename is, otherwise a crash may leave an empty target file
+                channel.force(true);
+            }
+            try {
+                Files.move(tempFile, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(tempFile, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException ex) {
+            throw new Docx4JException(format("Failed to create document {%s}", path), ex);
+        } finally {
+            try {
+                Files.deleteIfExists(tempFile);
+            } catch (IOException ex) {
+                // ignore
+            }
+        }
+    }
+
+    /**
+     * Creates document split into volumes, each volume is a complete document with its own table of contents. A new
+     * volume is started once the current one reaches <code>maxChartsPerVolume</code> charts or its estimated size
+     * would exceed <code>maxVolumeSize</code>. If an executor is configured then volumes are created in parallel, charts
+     * of each volume are then created on the volume's thread.
+     * <p>
+     * Volumes are named <code>baseName-001.docx</code>, <code>baseName-002.docx</code> and so on. An index named
+     * <code>baseName-index.json</code> is written alongside, mapping each entry to its volume and position.
+     * </p>
+     *
+     * @param directory          directory to write volumes to
+     * @param baseName           base name of volume files
+     * @param maxChartsPerVolume maximum number of charts in one volume
+     * @param maxVolumeSize      maximum estimated size of one volume in bytes, zero or negative for no limit
+     * @return paths of created volumes, in order
+     * @throws Docx4JException if unable to create any volume or the index
+     */
+    public List<Path> createVolumes(Path directory, String baseName, int maxChartsPerVolume, long maxVolumeSize)
+            throws Docx4JException {
+        if (maxChartsPerVolume <= 0) {
+            throw new IllegalArgumentException(format("Invalid number of charts per volume {%s}", maxChartsPerVolume));
+        }
+        final List<ConjugationData> data = (conjugationTemplate == null) ? new ArrayList<>() : conjugationTemplate.getData();
+        final List<Integer> volumeStarts = splitVolumes(data.size(), maxChartsPerVolume, maxVolumeSize);
+        final List<Path> volumes = new ArrayList<>(volumeStarts.size());
+        final List<CompletableFuture<Void>> futures = new ArrayList<>(volumeStarts.size());
+        for (int volumeIndex = 0; volumeIndex < volumeStarts.size(); volumeIndex++) {
+            final int fromIndex = volumeStarts.get(volumeIndex);
+            final int toIndex = (volumeIndex + 1 < volumeStarts.size()) ? volumeStarts.get(volumeIndex + 1) : data.size();
+            final Path path = directory.resolve(format("%s-%03d.docx", baseName, volumeIndex + 1));
+            volumes.add(path);
+            final MorphologicalChartEngine volumeEngine = createVolumeEngine(new ArrayList<>(data.subList(fromIndex, toIndex)));
+            if (executor == null) {
+                volumeEngine.createDocument(path);
+            } else {
+                futures.add(CompletableFuture.runAsync(() -> {
+                    try {
+                        volumeEngine.createDocument(path);
+                    } catch (Docx4JException ex) {
+                        throw new CompletionException(ex);
+                    }
+                }, executor));
+            }
+        }
+        Throwable failure = null;
+        for (CompletableFuture<Void> future : futures) {
+            try {
+                future.join();
+            } catch (CompletionException ex) {
+                if (failure == null) {
+                    failure = ex.getCause();
+                }
+            }
+        }
+        if (failure != null) {
+            throw (failure instanceof Docx4JException) ? (Docx4JException) failure :
+                    new Docx4JException("Failed to create volume", failure);
+        }
+        writeVolumeIndex(directory.resolve(format("%s-index.json", baseName)), data, volumeStarts, volumes);
+        return volumes;
+    }
+
+    private List<Integer> splitVolumes(int numOfCharts, int maxChartsPerVolume, long maxVolumeSize) {
+        final ChartConfiguration chartConfiguration = getChartConfiguration();
+        final long estimatedChartSize = (chartConfiguration.isOmitAbbreviatedConjugation() ? 0L : ESTIMATED_ABBREVIATED_CHART_SIZE)
+                + (chartConfiguration.isOmitDetailedConjugation() ? 0L : ESTIMATED_DETAILED_CHART_SIZE);
+        final List<Integer> volumeStarts = new ArrayList<>();
+        volumeStarts.add(0);
+        int chartsInVolume = 0;
+        for (int index = 0; index < numOfCharts; index++) {
+            final boolean full = (chartsInVolume >= maxChartsPerVolume) ||
+                    (maxVolumeSize > 0 && chartsInVolume > 0 && (chartsInVolume + 1) * estimatedChartSize > maxVolumeSize);
+            if (full) {
+                volumeStarts.add(index);
+                chartsInVolume = 0;
+            }
+            chartsInVolume++;
+        }
+        return volumeStarts;
+    }
+
+    /**
+     * Creates engine for a volume with same settings, charts of a volume are created on the volume's thread so that
+     * volume tasks never wait for chart tasks on the same executor.
+     */
+    private MorphologicalChartEngine createVolumeEngine(List<ConjugationData> volumeData) {
+        final ConjugationTemplate volumeTemplate = new ConjugationTemplate();
+        volumeTemplate.setChartConfiguration(chartConfiguration);
+        volumeTemplate.setData(volumeData);
+        return new MorphologicalChartEngine(abbreviatedConjugationFactory, detailedConjugationFactory, supplierFactory,
+                null, pipelineDepth, outputBackend, compressionLevel, listener, tableFragmentCache, precomputedToc,
+                collapseDuplicates, volumeTemplate);
+    }
+
+    private static void writeVolumeIndex(Path path, List<ConjugationData> data, List<Integer> volumeStarts,
+                                         List<Path> volumes) throws Docx4JException {
+        try (JsonWriter writer = new JsonWriter(Files.newBufferedWriter(path, StandardCharsets.UTF_8))) {
+            writer.beginObject().name("volumes").beginArray();
+            for (int volumeIndex = 0; volumeIndex < volumes.size(); volumeIndex++) {
+                final int toIndex = (volumeIndex + 1 < volumeStarts.size()) ? volumeStarts.get(volumeIndex + 1) : data.size();
+                writer.beginObject()
+                        .name("volume").value(volumeIndex + 1)
+                        .name("file").value(volumes.get(volumeIndex).getFileName().toString())
+                        .name("charts").value(toIndex - volumeStarts.get(volumeIndex))
+                        .endObject();
+            }
+            writer.endArray().name("entries").beginArray();
+            int volumeIndex = 0;
+            for (int index = 0; index < data.size(); index++) {
+                while (volumeIndex + 1 < volumeStarts.size() && index >= volumeStarts.get(volumeIndex + 1)) {
+                    volumeIndex++;
+                }
+                final ConjugationData conjugationData = data.get(index);
+                final RootLetters rootLetters = (conjugationData == null) ? null : conjugationData.getRootLetters();
+                writer.beginObject()
+                        .name("index").value(index)
+                        .name("root").value((rootLetters == null) ? null : rootLetters.getDisplayName())
+                        .name("template").value((conjugationData == null) ? null : String.valueOf(conjugationData.getTemplate()))
+                        .name("translation").value((conjugationData == null) ? null : conjugationData.getTranslation())
+                        .name("volume").value(volumeIndex + 1)
+                        .name("chart").value(index - volumeStarts.get(volumeIndex))
+                        .endObject();
+            }
+            writer.endArray().endObject();
+        } catch (IOException ex) {
+            throw new Docx4JException(format("Failed to write volume index {%s}", path), ex);
+        }
+    }
+
+    /**
+     * Writes document to given channel, channel is not closed.
+     *
+     * @param channel channel to write document to
+     * @throws Docx4JException if unable to create document
+     */
+    public void createDocument(WritableByteChannel channel) throws Docx4JException {
+        createDocument(Channels.newOutputStream(channel));
+    }
+
+    /**
+     * Writes document to given stream, stream is flushed but not closed.
+     *
+     * @param outputStream stream to write document to
+     * @throws Docx4JException if unable to create document
+     */
+    public void createDocument(OutputStream outputStream) throws Docx4JException {
+        createDocument(outputStream, new GenerationMonitor(listener));
+    }
+
+    /**
+     * Same as <code>warmUp(1)</code>.
+     *
+     * @see #warmUp(int)
+     */
+    public void warmUp() throws Docx4JException {
+        warmUp(1);
+    }
+
+    /**
+     * Pays the cost of the first document up front: loads docx4j and JAXB contexts, builds the document skeleton of
+     * the chart configuration of this engine and renders one entry of each {@link NamedTemplate} with the settings of
+     * this engine to a discarded document, so that conjugation and rendering code is loaded and compiled.
+     * <p>
+     * Template of this engine is not rendered and nothing is reported to the listener, charts of warm-up entries are
+     * added to the chart cache like any other chart.
+     * </p>
+     *
+     * @param iterations number of times warm-up document is rendered, more iterations give the JIT more to work with
+     * @throws Docx4JException if unable to create warm-up document
+     */
+    public void warmUp(int iterations) throws Docx4JException {
+        WmlHelper.getSkeleton(chartConfiguration);
+        final ConjugationTemplate warmUpTemplate = new ConjugationTemplate();
+        warmUpTemplate.setChartConfiguration(chartConfiguration);
+        for (NamedTemplate namedTemplate : NamedTemplate.values()) {
+            final ConjugationData conjugationData = new ConjugationData();
+            conjugationData.setTemplate(namedTemplate);
+            conjugationData.setRootLetters(new RootLetters(FA, AIN, LAM));
+            conjugationData.setTranslation("To do");
+            warmUpTemplate.withData(conjugationData);
+        }
+        final MorphologicalChartEngine engine = new MorphologicalChartEngine(abbreviatedConjugationFactory,
+                detailedConjugationFactory, supplierFactory, executor, pipelineDepth, outputBackend, compressionLevel,
+                DocumentGenerationListener.NO_OP, tableFragmentCache, precomputedToc, collapseDuplicates,
+                warmUpTemplate);
+        final OutputStream discard = new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        };
+        for (int iteration = 0; iteration < Math.max(1, iterations); iteration++) {
+            engine.createDocument(discard);
+        }
+    }
+
+    /**
+     * Creates document at given path on given executor, see {@link #createDocument(Path)}.
+     * <p>
+     * Generation is cancelled cooperatively, once returned future is cancelled or the deadline passes generation stops
+     * at the next entry or phase, partially built document is discarded and target file is left untouched. If the
+     * deadline passes then returned future completes exceptionally with {@link TimeoutException} right away, even if
+     * generation is in the middle of a phase. If the executor rejects the task then returned future completes
+     * exceptionally with {@link RejectedExecutionException}.
+     * </p>
+     *
+     * @param path     path of the document
+     * @param executor executor to generate document on
+     * @param timeout  maximum time the generation may take, measured from this call, <code>null</code> for no deadline
+     * @return future completed once document is created
+     */
+    public CompletableFuture<Void> createDocumentAsync(Path path, Executor executor, Duration timeout) {
+        return runAsync(executor, timeout, monitor -> writeFile(path, outputStream -> createDocument(outputStream, monitor)));
+    }
+
+    /**
+     * Writes document to given stream on given executor, see {@link #createDocumentAsync(Path, Executor, Duration)}.
+     * If generation is cancelled then stream may hold a partial document.
+     */
+    public CompletableFuture<Void> createDocumentAsync(OutputStream outputStream, Executor executor, Duration timeout) {
+        return runAsync(executor, timeout, monitor -> createDocument(outputStream, monitor));
+    }
+
+    private CompletableFuture<Void> runAsync(Executor executor, Duration timeout, DocumentTask task) {
+        // lowest bit set so that a deadline is never mistaken for "no deadline"
+        final long deadlineNanos = (timeout == null) ? 0L : (System.nanoTime() + timeout.toNanos()) | 1L;
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        final GenerationMonitor monitor = new GenerationMonitor(listener, future::isDone, deadlineNanos);
+        if (timeout != null) {
+            final ScheduledFuture<?> timeoutTask = DeadlineTimer.INSTANCE.schedule(() -> future.completeExceptionally(
+                    new TimeoutException("Document generation deadline exceeded")), Math.max(0L, timeout.toNanos()),
+                    TimeUnit.NANOSECONDS);
+            future.whenComplete((result, ex) -> timeoutTask.cancel(false));
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    monitor.checkCancelled();
+                    task.run(monitor);
+                    future.complete(null);
+                } catch (CancellationException ex) {
+                    if (monitor.isDeadlineExceeded()) {
+                        future.completeExceptionally(new TimeoutException(ex.getMessage()));
+                    } else {
+                        future.completeExceptionally(ex);
+                    }
+                } catch (Throwable ex) {
+                    future.completeExceptionally(ex);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            future.completeExceptionally(ex);
+        }
+        return future;
+    }
+
+    /**
+     * Completes futures of asynchronous generation at their deadline, created on first use.
+     */
+    private static final class DeadlineTimer {
+
+        private static final ScheduledThreadPoolExecutor INSTANCE = createTimer();
+
+        private static ScheduledThreadPoolExecutor createTimer() {
+            final ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+                final Thread thread = new Thread(runnable, "morphological-chart-deadline");
+                thread.setDaemon(true);
+                return thread;
+            });
+            // timeouts of documents finished in time are cancelled, do not keep them until their deadline
+            timer.setRemoveOnCancelPolicy(true);
+            return timer;
+        }
+    }
+
+    private void createDocument(OutputStream outputStream, GenerationMonitor monitor) throws Docx4JException {
+        final GenerationMonitor.Timer timer = monitor.start();
+        final CountingOutputStream countingOutputStream = new CountingOutputStream(outputStream);
+        if (OutputBackend.STAX.equals(outputBackend)) {
+            try {
+                final OutputStream bufferedOutputStream = new BufferedOutputStream(countingOutputStream, 64 * 1024);
+                writeDocument(bufferedOutputStream, monitor);
+                bufferedOutputStream.flush();
+            } catch (IOException | XMLStreamException ex) {
+                throw new Docx4JException("Failed to create document", ex);
+            }
+        } else {
+            WmlHelper.createDocument(countingOutputStream, this, compressionLevel, monitor);
+        }
+        final int chartCount = (conjugationTemplate == null) ? 0 : conjugationTemplate.getData().size();
+        monitor.phaseCompleted(Phase.DOCUMENT, timer, -1, chartCount, countingOutputStream.getCount());
+    }
+
+    /**
+     * Writes charts as HTML tables to given writer, see {@link HtmlChartWriter}. Writer is flushed but not closed.
+     *
+     * @param writer writer to write HTML to
+     * @throws IOException if unable to write
+     */
+    public void createHtml(Writer writer) throws IOException {
+        if (conjugationTemplate == null) {
+            return;
+        }
+        final HtmlChartWriter htmlChartWriter = new HtmlChartWriter(writer, chartConfiguration);
+        renderCharts(new GenerationMonitor(listener), null,
+                (morphologicalChart, index) -> htmlChartWriter.writeMorphologicalChart(morphologicalChart));
+        writer.flush();
+    }
+
+    /**
+     * Exports conjugated forms of all charts as JSON, see {@link MorphologicalChartExporter}. Writer is flushed but not
+     * closed.
+     *
+     * @param writer writer to write JSON to
+     * @throws IOException if unable to write
+     */
+    public void exportJson(Writer writer) throws IOException {
+        export(MorphologicalChartExporter.json(writer));
+    }
+
+    /**
+     * Exports conjugated forms of all charts in binary format, see {@link MorphologicalChartExporter}. Stream is
+     * flushed but not closed.
+     *
+     * @param outputStream stream to write to
+     * @throws IOException if unable to write
+     */
+    public void exportBinary(OutputStream outputStream) throws IOException {
+        export(MorphologicalChartExporter.binary(outputStream));
+    }
+
+    /**
+     * Charts are exported as soon as they are created, at most {@link #EXPORT_WINDOW_SIZE} charts or pipeline depth,
+     * if configured, are held in memory at any time.
+     */
+    private void export(MorphologicalChartExporter exporter) throws IOException {
+        if (conjugationTemplate != null) {
+            final List<ConjugationData> data = conjugationTemplate.getData();
+            forEachMorphologicalChart(data, (pipelineDepth > 0) ? pipelineDepth : EXPORT_WINDOW_SIZE,
+                    new GenerationMonitor(listener), (morphologicalChart, index) -> {
+                        final ConjugationData conjugationData = data.get(index);
+                        exporter.writeChart((conjugationData == null) ? null : conjugationData.getId(),
+                                morphologicalChart);
+                    });
+        }
+        exporter.finish();
+    }
+
+    private void updateDocument(OutputStream outputStream, IncrementalDocument previous) throws Docx4JException {
+        final GenerationMonitor monitor = new GenerationMonitor(listener);
+        final GenerationMonitor.Timer timer = monitor.start();
+        final CountingOutputStream countingOutputStream = new CountingOutputStream(outputStream);
+        final FlightEvents.BuildDocument event = FlightEvents.beginBuildDocument();
+        final List<ConjugationData> data = conjugationTemplate.getData();
+        final IncrementalDocument.Section[] sections = new IncrementalDocument.Section[data.size()];
+        final List<Integer> changedIndices = new ArrayList<>();
+        final List<ConjugationData> changedData = new ArrayList<>();
+        for (int index = 0; index < data.size(); index++) {
+            sections[index] = previous.take(IncrementalDocument.sectionMarker(data.get(index)), index == 0);
+            if (sections[index] == null) {
+                changedIndices.add(index);
+                changedData.add(data.get(index));
+            }
+        }
+        final Map<Integer, MorphologicalChart> charts = new HashMap<>();
+        forEachMorphologicalChart(changedData, (pipelineDepth > 0) ? pipelineDepth : changedData.size(), monitor,
+                (morphologicalChart, index) -> charts.put(changedIndices.get(index), morphologicalChart));
+
+        final boolean addDetailedConjugation = !chartConfiguration.isOmitDetailedConjugation();
+        final boolean addToc = isAddToc(chartConfiguration);
+        try {
+            final OutputStream bufferedOutputStream = new BufferedOutputStream(countingOutputStream, 64 * 1024);
+            final GenerationMonitor.Timer setupTimer = monitor.start();
+            final StaxDocumentWriter documentWriter = new StaxDocumentWriter(WmlHelper.getSkeleton(chartConfiguration));
+            monitor.phaseCompleted(Phase.PACKAGE_SETUP, setupTimer, -1, 0, -1L);
+            documentWriter.write(bufferedOutputStream, compressionLevel, entryOutputStream -> {
+                entryOutputStream.write(previous.getPrefix());
+                documentWriter.writeBodyContent(entryOutputStream, chartConfiguration, previous.getNextBookmarkId(),
+                        chartWriter -> {
+                            for (int index = 0; index < sections.length; index++) {
+                                if (sections[index] == null) {
+                                    writeSection(chartWriter, chartConfiguration, charts.remove(index), index,
+                                            addToc, addDetailedConjugation, null, monitor);
+                                } else {
+                                    chartWriter.writeRaw(sections[index].getContent());
+                                }
+                            }
+                        });
+                entryOutputStream.write(previous.getSuffix());
+            });
+            bufferedOutputStream.flush();
+        } catch (IOException | XMLStreamException ex) {
+            throw new Docx4JException("Failed to update document", ex);
+        }
+        commit(event, OutputBackend.STAX);
+        monitor.phaseCompleted(Phase.DOCUMENT, timer, -1, changedData.size(), countingOutputStream.getCount());
+    }
+
+    private void writeDocument(OutputStream outputStream, GenerationMonitor monitor) throws Docx4JException,
+            IOException, XMLStreamException {
+        final GenerationMonitor.Timer timer = monitor.start();
+        final DocumentSkeleton skeleton = WmlHelper.getSkeleton(chartConfiguration);
+        monitor.phaseCompleted(Phase.PACKAGE_SETUP, timer, -1, 0, -1L);
+        new StaxDocumentWriter(skeleton).write(outputStream, chartConfiguration, compressionLevel,
+                chartWriter -> writeBody(chartWriter, monitor));
     }
 
     @Override
     protected void buildDocument(MainDocumentPart mdp) {
+        buildDocument(mdp, GenerationMonitor.NO_OP);
+    }
+
+    @Override
+    void buildDocument(MainDocumentPart mdp, GenerationMonitor monitor) {
         if (conjugationTemplate == null) {
             return;
         }
+        final FlightEvents.BuildDocument event = FlightEvents.beginBuildDocument();
+        final RenderContext context = new RenderContext();
         final ChartConfiguration chartConfiguration = conjugationTemplate.getChartConfiguration();
         final boolean addDetailedConjugation = !chartConfiguration.isOmitDetailedConjugation();
-        final boolean addToc = !chartConfiguration.isOmitAbbreviatedConjugation() && !chartConfiguration.isOmitToc();
-        final String tocHeading = "Table of Contents";
-        final String bookmarkName = tocHeading.replaceAll(" ", "_").toLowerCase();
+        final boolean addToc = isAddToc(chartConfiguration);
+        final List<MorphologicalChart> charts = (addToc && precomputedToc) ? createMorphologicalCharts(monitor) : null;
+        final DuplicateEntries duplicates = collapseDuplicates ? DuplicateEntries.of(conjugationTemplate.getData()) : null;
         if (addToc) {
-            new TocGenerator()
-                    .tocHeading(tocHeading)
-                    .mainDocumentPart(mdp)
-                    .instruction(" TOC \\o \"1-3\" \\h \\z \\t \"Arabic-Heading1,1\" ")
-                    .tocStyle("TOCArabic")
-                    .generateToc();
-        }
-        final List<MorphologicalChart> charts = createMorphologicalCharts();
-        if (!charts.isEmpty()) {
-            addToDocument(mdp, chartConfiguration, charts.get(0));
-            charts.stream().skip(1).forEach(morphologicalChart -> {
+            final GenerationMonitor.Timer timer = monitor.start();
+            final List<TocEntry> entries = (charts == null) ? Collections.emptyList() : TocEntry.of(charts, duplicates);
+            if (entries.isEmpty()) {
+                new TocGenerator()
+                        .tocHeading(TOC_HEADING)
+                        .mainDocumentPart(mdp)
+                        .instruction(TOC_INSTRUCTION)
+                        .tocStyle(TOC_STYLE)
+                        .generateToc();
+                context.skipBookmarkIds(WmlHelper.getLastBookmarkId(mdp.getContent()));
+            } else {
+                WmlHelper.getToc(context, TOC_HEADING, TOC_BOOKMARK_NAME, TOC_INSTRUCTION, TOC_STYLE, entries)
+                        .forEach(mdp::addObject);
+            }
+            monitor.phaseCompleted(Phase.TOC, timer, -1, 0, -1L);
+        }
+        renderCharts(monitor, charts, (morphologicalChart, index) -> {
+            if (duplicates != null && duplicates.isDuplicate(index)) {
+                final int source = duplicates.getSource(index);
+                addBackLink(mdp, TocEntry.getAnchor(source), format(DUPLICATE_LINK_LABEL, source + 1));
+                return;
+            }
+            if (index > 0) {
                 if (addToc) {
-                    addBackLink(mdp, bookmarkName);
+                    addBackLink(mdp, TOC_BOOKMARK_NAME, BACK_LINK_LABEL);
                 }
                 if (addDetailedConjugation) {
                     mdp.addObject(WmlAdapter.getPageBreak());
                 }
-                addToDocument(mdp, chartConfiguration, morphologicalChart);
-            });
+            }
+            if (charts != null || (duplicates != null && duplicates.hasDuplicates(index))) {
+                WmlHelper.getBodyBookmark(context, TocEntry.getAnchor(index)).forEach(mdp::addObject);
+            }
+            addToDocument(mdp, context, chartConfiguration, morphologicalChart, index, monitor);
+        });
+        commit(event, OutputBackend.JAXB);
+    }
+
+    private void writeBody(StaxChartWriter chartWriter, GenerationMonitor monitor) throws XMLStreamException {
+        if (conjugationTemplate == null) {
+            return;
+        }
+        final FlightEvents.BuildDocument event = FlightEvents.beginBuildDocument();
+        final ChartConfiguration chartConfiguration = conjugationTemplate.getChartConfiguration();
+        final boolean addDetailedConjugation = !chartConfiguration.isOmitDetailedConjugation();
+        final boolean addToc = isAddToc(chartConfiguration);
+        final List<MorphologicalChart> charts = (addToc && precomputedToc) ? createMorphologicalCharts(monitor) : null;
+        final DuplicateEntries duplicates = collapseDuplicates ? DuplicateEntries.of(conjugationTemplate.getData()) : null;
+        chartWriter.writeMarker(IncrementalDocument.documentMarker(chartConfiguration));
+        if (addToc) {
+            final GenerationMonitor.Timer timer = monitor.start();
+            if (charts == null) {
+                chartWriter.writeToc(TOC_HEADING, TOC_BOOKMARK_NAME, TOC_INSTRUCTION, TOC_STYLE);
+            } else {
+                chartWriter.writeToc(TOC_HEADING, TOC_BOOKMARK_NAME, TOC_INSTRUCTION, TOC_STYLE,
+                        TocEntry.of(charts, duplicates));
+            }
+            monitor.phaseCompleted(Phase.TOC, timer, -1, 0, -1L);
+        }
+        renderCharts(monitor, charts, (morphologicalChart, index) -> writeSection(chartWriter, chartConfiguration,
+                morphologicalChart, index, addToc, addDetailedConjugation, duplicates, monitor));
+        commit(event, OutputBackend.STAX);
+    }
+
+    /**
+     * Writes section of one chart, section starts with its marker so that it can be found when document is updated.
+     *
+     * @param duplicates duplicate entries to collapse into a link to their first entry, <code>null</code> to render
+     *                   every entry
+     */
+    private void writeSection(StaxChartWriter chartWriter, ChartConfiguration chartConfiguration,
+                              MorphologicalChart morphologicalChart, int index, boolean addToc,
+                              boolean addDetailedConjugation, DuplicateEntries duplicates, GenerationMonitor monitor)
+            throws XMLStreamException {
+        chartWriter.writeMarker(IncrementalDocument.sectionMarker(conjugationTemplate.getData().get(index)));
+        if (duplicates != null && duplicates.isDuplicate(index)) {
+            final int source = duplicates.getSource(index);
+            chartWriter.writeBackLink(TocEntry.getAnchor(source), format(DUPLICATE_LINK_LABEL, source + 1));
+            return;
+        }
+        if (index > 0) {
+            if (addToc) {
+                chartWriter.writeBackLink(TOC_BOOKMARK_NAME, BACK_LINK_LABEL);
+            }
+            if (addDetailedConjugation) {
+                chartWriter.writePageBreak();
+            }
+        }
+        if ((addToc && precomputedToc) || (duplicates != null && duplicates.hasDuplicates(index))) {
+            chartWriter.writeMarker(TocEntry.getAnchor(index));
+        }
+        writeChart(chartWriter, chartConfiguration, morphologicalChart, index, monitor);
+    }
+
+    private void commit(FlightEvents.BuildDocument event, OutputBackend outputBackend) {
+        if (event.shouldCommit()) {
+            event.commit(conjugationTemplate.getId(), outputBackend.name(), conjugationTemplate.getData().size());
+        }
+    }
+
+    private static boolean isAddToc(ChartConfiguration chartConfiguration) {
+        return !chartConfiguration.isOmitAbbreviatedConjugation() && !chartConfiguration.isOmitToc();
+    }
+
+    /**
+     * Renders charts in input order, if pipelined rendering is enabled then charts are rendered as soon as they are
+     * created, otherwise all charts are created first.
+     *
+     * @param charts charts created already or <code>null</code> if charts are to be created
+     */
+    private <E extends Exception> void renderCharts(GenerationMonitor monitor, List<MorphologicalChart> charts,
+                                                    ChartRenderer<E> chartRenderer) throws E {
+        final List<ConjugationData> data = conjugationTemplate.getData();
+        final ChartRenderer<E> renderer = (morphologicalChart, index) -> {
+            final FlightEvents.RenderChart event = FlightEvents.beginRenderChart();
+            chartRenderer.render(morphologicalChart, index);
+            if (event.shouldCommit()) {
+                final ConjugationData conjugationData = data.get(index);
+                final RootLetters rootLetters = (conjugationData == null) ? null : conjugationData.getRootLetters();
+                event.commit(index, (conjugationData == null) ? null : String.valueOf(conjugationData.getTemplate()),
+                        (rootLetters == null) ? null : rootLetters.getDisplayName());
+            }
+        };
+        if (charts == null && pipelineDepth > 0) {
+            forEachMorphologicalChart(data, pipelineDepth, monitor, renderer);
+        } else {
+            final List<MorphologicalChart> morphologicalCharts = (charts == null) ? createMorphologicalCharts(monitor)
+                    : charts;
+            for (int index = 0; index < morphologicalCharts.size(); index++) {
+                renderer.render(morphologicalCharts.get(index), index);
+            }
+        }
+    }
+
+    private void writeChart(StaxChartWriter chartWriter, ChartConfiguration chartConfiguration,
+                            MorphologicalChart morphologicalChart, int index, GenerationMonitor monitor)
+            throws XMLStreamException {
+        final ConjugationKey conjugationKey = tableFragmentCache.isEnabled() ?
+                ConjugationKey.of(conjugationTemplate.getData().get(index)) : null;
+        final boolean landscape = (conjugationKey != null) && DocumentSkeleton.Key.of(chartConfiguration).isLandscape();
+        final AbbreviatedConjugation abbreviatedConjugation = morphologicalChart.getAbbreviatedConjugation();
+        if (abbreviatedConjugation != null && !chartConfiguration.isOmitAbbreviatedConjugation()) {
+            final GenerationMonitor.Timer timer = monitor.start();
+            final FlightEvents.ChartTable event = FlightEvents.beginChartTable();
+            final int rowCount = chartWriter.getRowCount();
+            final TableFragment.Key key = TableFragment.Key.of(conjugationKey, TableType.ABBREVIATED,
+                    chartConfiguration, landscape);
+            if (key == null) {
+                chartWriter.writeAbbreviatedConjugation(abbreviatedConjugation);
+            } else {
+                TableFragment fragment = tableFragmentCache.get(key);
+                if (fragment == null) {
+                    fragment = chartWriter.captureAbbreviatedConjugation(abbreviatedConjugation);
+                    tableFragmentCache.put(key, fragment);
+                }
+                chartWriter.writeFragment(fragment);
+            }
+            commit(event, AbbreviatedConjugationAdapter.class, chartWriter.getRowCount() - rowCount);
+            monitor.phaseCompleted(Phase.ABBREVIATED_TABLE, timer, index, 1, -1L);
+        }
+        final DetailedConjugation detailedConjugation = morphologicalChart.getDetailedConjugation();
+        if (detailedConjugation != null && !chartConfiguration.isOmitDetailedConjugation()) {
+            final GenerationMonitor.Timer timer = monitor.start();
+            final FlightEvents.ChartTable event = FlightEvents.beginChartTable();
+            final int rowCount = chartWriter.getRowCount();
+            final TableFragment.Key key = TableFragment.Key.of(conjugationKey, TableType.DETAILED,
+                    chartConfiguration, landscape);
+            if (key == null) {
+                chartWriter.writeDetailedConjugation(detailedConjugation);
+            } else {
+                TableFragment fragment = tableFragmentCache.get(key);
+                if (fragment == null) {
+                    fragment = chartWriter.captureDetailedConjugation(detailedConjugation);
+                    tableFragmentCache.put(key, fragment);
+                }
+                chartWriter.writeFragment(fragment);
+            }
+            commit(event, DetailedConjugationAdapter.class, chartWriter.getRowCount() - rowCount);
+            monitor.phaseCompleted(Phase.DETAILED_TABLE, timer, index, 1, -1L);
         }
     }
 
-    private void addToDocument(MainDocumentPart mdp, ChartConfiguration chartConfiguration, MorphologicalChart morphologicalChart) {
+    private static void commit(FlightEvents.ChartTable event, Class<? extends ChartAdapter> tableType, int rowCount) {
+        if (event.shouldCommit()) {
+            event.commit(tableType.getSimpleName(), rowCount);
+        }
+    }
+
+    private void addToDocument(MainDocumentPart mdp, RenderContext context, ChartConfiguration chartConfiguration,
+                               MorphologicalChart morphologicalChart, int index, GenerationMonitor monitor) {
         final AbbreviatedConjugation abbreviatedConjugation = morphologicalChart.getAbbreviatedConjugation();
         final boolean omitAbbreviatedConjugation = (abbreviatedConjugation == null) || chartConfiguration.isOmitAbbreviatedConjugation();
         if (!omitAbbreviatedConjugation) {
-            AbbreviatedConjugationAdapter aca = abbreviatedConjugationFactory.createAbbreviatedConjugationAdapter(
+            final GenerationMonitor.Timer timer = monitor.start();
+            AbbreviatedConjugationAdapter aca = abbreviatedConjugationFactory.createAbbreviatedConjugationAdapter(context,
                     chartConfiguration, morphologicalChart.getAbbreviatedConjugation());
             aca.buildDocument(mdp);
+            monitor.phaseCompleted(Phase.ABBREVIATED_TABLE, timer, index, 1, -1L);
         }
 
         final DetailedConjugation detailedConjugation = morphologicalChart.getDetailedConjugation();
         final boolean omitDetailedConjugation = (detailedConjugation == null) || chartConfiguration.isOmitDetailedConjugation();
         if (!omitDetailedConjugation) {
-            DetailedConjugationAdapter dca = detailedConjugationFactory.createDetailedConjugationAdapter(detailedConjugation);
+            final GenerationMonitor.Timer timer = monitor.start();
+            DetailedConjugationAdapter dca = detailedConjugationFactory.createDetailedConjugationAdapter(context, detailedConjugation);
             dca.buildDocument(mdp);
+            monitor.phaseCompleted(Phase.DETAILED_TABLE, timer, index, 1, -1L);
         }
     }
 
-    private void addBackLink(MainDocumentPart mdp, String bookmarkName) {
-        final P.Hyperlink backLink = WmlAdapter.addHyperlink(bookmarkName, "Back to Top");
+    private void addBackLink(MainDocumentPart mdp, String bookmarkName, String label) {
+        final P.Hyperlink backLink = WmlAdapter.addHyperlink(bookmarkName, label);
         final P p = WmlBuilderFactory.getPBuilder().addContent(backLink).getObject();
         mdp.addObject(p);
     }
 
+    /**
+     * Creates {@link MorphologicalChart} for each entry of the template, the returned list is always in the same order
+     * as {@link ConjugationTemplate#getData()}.
+     * <p>
+     * If an executor is configured, charts are created in parallel. In both modes a failure of any entry aborts the
+     * whole run, remaining work is cancelled and {@link MorphologicalChartException} is thrown for the first failed
+     * entry in input order.
+     * </p>
+     * <p>
+     * Charts served from the chart cache or the chart store are shared by entries with the same inputs and carry no
+     * entry id, see {@link MorphologicalChartSupplier}.
+     * </p>
+     *
+     * @return list of charts
+     * @throws MorphologicalChartException if any chart fails to create
+     */
     public List<MorphologicalChart> createMorphologicalCharts() {
+        return createMorphologicalCharts(new GenerationMonitor(listener));
+    }
+
+    private List<MorphologicalChart> createMorphologicalCharts(GenerationMonitor monitor) {
         final List<ConjugationData> data = conjugationTemplate.getData();
         final List<MorphologicalChart> morphologicalCharts = new ArrayList<>(data.size());
-        for (ConjugationData conjugationData : data) {
-            MorphologicalChartSupplier supplier = supplierFactory.createSupplier(conjugationData);
-            morphologicalCharts.add(supplier.get());
-        }
+        forEachMorphologicalChart(data, data.size(), monitor,
+                (morphologicalChart, index) -> morphologicalCharts.add(morphologicalChart));
         return morphologicalCharts;
     }
 
+    /**
+     * Creates charts for given data and hands them over to the consumer in input order. If an executor is configured
+     * then at most <code>windowSize</code> charts are submitted ahead of the one being consumed, so that consumer can
+     * work while next charts are being created without holding more than <code>windowSize</code> charts in memory.
+     * <p>
+     * Entries with the same {@link ConjugationKey} are conjugated once, duplicates are handed the chart of their
+     * first entry, which is held until its last duplicate is consumed.
+     * </p>
+     */
+    private <E extends Exception> void forEachMorphologicalChart(List<ConjugationData> data, int windowSize,
+                                                                 GenerationMonitor monitor,
+                                                                 ChartRenderer<E> consumer) throws E {
+        final DuplicateEntries duplicates = DuplicateEntries.of(data);
+        if (executor == null || data.size() <= 1) {
+            final Map<Integer, MorphologicalChart> sharedCharts = new HashMap<>();
+            for (int index = 0; index < data.size(); index++) {
+                monitor.checkCancelled();
+                final int source = duplicates.getSource(index);
+                final MorphologicalChart morphologicalChart;
+                if (source == index) {
+                    morphologicalChart = createMorphologicalChart(index, data.get(index), monitor);
+                    if (duplicates.hasDuplicates(index)) {
+                        sharedCharts.put(index, morphologicalChart);
+                    }
+                } else {
+                    morphologicalChart = duplicates.isLast(index) ? sharedCharts.remove(source)
+                            : sharedCharts.get(source);
+                }
+                consumer.render(morphologicalChart, index);
+            }
+            return;
+        }
+        final Deque<CompletableFuture<MorphologicalChart>> window = new ArrayDeque<>(windowSize);
+        final Map<Integer, CompletableFuture<MorphologicalChart>> sharedCharts = new HashMap<>();
+        int nextIndex = 0;
+        try {
+            for (int index = 0; index < data.size(); index++) {
+                while (nextIndex < data.size() && window.size() < windowSize) {
+                    final int chartIndex = nextIndex;
+                    final int source = duplicates.getSource(chartIndex);
+                    if (source != chartIndex) {
+                        window.addLast(duplicates.isLast(chartIndex) ? sharedCharts.remove(source)
+                                : sharedCharts.get(source));
+                        nextIndex++;
+                        continue;
+                    }
+                    final ConjugationData conjugationData = data.get(chartIndex);
+                    final MorphologicalChartSupplier supplier = supplierFactory.createSupplier(conjugationData);
+                    final CompletableFuture<MorphologicalChart> future = CompletableFuture.supplyAsync(() -> {
+                        if (monitor.isCancelled()) {
+                            return null;
+                        }
+                        final GenerationMonitor.Timer timer = monitor.start();
+                        final MorphologicalChart morphologicalChart = supplier.get();
+                        monitor.chartConjugated(chartIndex, conjugationData, timer);
+                        return morphologicalChart;
+                    }, executor);
+                    if (duplicates.hasDuplicates(chartIndex)) {
+                        sharedCharts.put(chartIndex, future);
+                    }
+                    window.addLast(future);
+                    nextIndex++;
+                }
+                final MorphologicalChart morphologicalChart;
+                try {
+                    morphologicalChart = window.removeFirst().join();
+                } catch (CompletionException ex) {
+                    throw new MorphologicalChartException(index, data.get(index), ex.getCause());
+                }
+                monitor.checkCancelled();
+                consumer.render(morphologicalChart, index);
+            }
+        } finally {
+            window.forEach(future -> future.cancel(false));
+        }
+    }
+
+    private MorphologicalChart createMorphologicalChart(int index, ConjugationData conjugationData,
+                                                        GenerationMonitor monitor) {
+        final GenerationMonitor.Timer timer = monitor.start();
+        MorphologicalChartSupplier supplier = supplierFactory.createSupplier(conjugationData);
+        try {
+            final MorphologicalChart morphologicalChart = supplier.get();
+            monitor.chartConjugated(index, conjugationData, timer);
+            return morphologicalChart;
+        } catch (RuntimeException ex) {
+            throw new MorphologicalChartException(index, conjugationData, ex);
+        }
+    }
+
+    /**
+     * Generates document with given monitor.
+     */
+    @FunctionalInterface
+    private interface DocumentTask {
+
+        void run(GenerationMonitor monitor) throws Docx4JException;
+    }
+
+    /**
+     * Writes complete document to given stream.
+     */
+    @FunctionalInterface
+    private interface DocumentWriter {
+
+        void write(OutputStream outputStream) throws Docx4JException;
+    }
+
+    /**
+     * Consumes created charts in input order.
+     */
+    @FunctionalInterface
+    private interface ChartRenderer<E extends Exception> {
+
+        void render(MorphologicalChart morphologicalChart, int index) throws E;
+    }
+
 }
@@ -0,0 +1,45 @@
+package com.alphasystem.app.morphologicalengine.docx;
+
+import com.alphasystem.morphologicalanalysis.morphology.model.ConjugationData;
+import com.alphasystem.morphologicalanalysis.morphology.model.RootLetters;
+
+import static java.lang.String.format;
+
+/**
+ * Thrown when a {@link com.alphasystem.morphologicalengine.model.MorphologicalChart} could not be created for one of the entries of a
+ * {@link com.alphasystem.morphologicalanalysis.morphology.model.ConjugationTemplate}.
+ *
+ * @author sali
+ */
+public class MorphologicalChartException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int index;
+    private final transient ConjugationData conjugationData;
+
+    MorphologicalChartException(int index, ConjugationData conjugationData, Throwable cause) {
+        super(format("Unable to create chart for entry %s {%s}", index, toString(conjugationData)), cause);
+        this.index = index;
+        this.conjugationData = conjugationData;
+    }
+
+    private static String toString(ConjugationData conjugationData) {
+        if (conjugationData == null) {
+            return null;
+        }
+        final RootLetters rootLetters = conjugationData.getRootLetters();
+        return format("%s:%s", conjugationData.getTemplate(), (rootLetters == null) ? null : rootLetters.getDisplayName());
+    }
+
+    /**
+     * @return index of the failed entry in {@link com.alphasystem.morphologicalanalysis.morphology.model.ConjugationTemplate#getData()}
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public ConjugationData getConjugationData() {
+        return conjugationData;
+    }
+}
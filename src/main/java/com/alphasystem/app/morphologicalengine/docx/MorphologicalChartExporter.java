@@ -0,0 +1,362 @@
+package com.alphasystem.app.morphologicalengine.docx;
+
+import com.alphasystem.morphologicalanalysis.morphology.model.support.SarfTermType;
+import com.alphasystem.morphologicalengine.model.AbbreviatedConjugation;
+import com.alphasystem.morphologicalengine.model.AbbreviatedRecord;
+import com.alphasystem.morphologicalengine.model.ConjugationHeader;
+import com.alphasystem.morphologicalengine.model.ConjugationTuple;
+import com.alphasystem.morphologicalengine.model.DetailedConjugation;
+import com.alphasystem.morphologicalengine.model.MorphologicalChart;
+import com.alphasystem.morphologicalengine.model.NounConjugationGroup;
+import com.alphasystem.morphologicalengine.model.VerbConjugationGroup;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.function.BiConsumer;
+
+import static java.lang.String.format;
+
+/**
+ * Writes conjugated forms of {@link MorphologicalChart}s one chart at a time, either as JSON or as a compact binary
+ * format. Nothing is retained between charts, memory stays flat for any number of charts.
+ * <p>
+ * JSON is an object with a single array <code>charts</code>, each chart holds its id, abbreviated and detailed
+ * conjugation with the same field names as the model. Binary format starts with magic number <code>MCX2</code>,
+ * each chart is preceded by byte <code>1</code> and the stream ends with byte <code>0</code>. A chart is its id,
+ * followed by byte <code>0</code> if there is no chart, otherwise by byte <code>1</code>, its translation and its
+ * fields encoded by {@link MorphologicalChartCodec}, the encoding of {@link MorphologicalChartStore}. Strings are
+ * preceded by byte <code>1</code> or written as byte <code>0</code> if <code>null</code> and are in modified UTF-8.
+ * Binary exports are read back with {@link #readBinary(InputStream, BiConsumer)}.
+ * </p>
+ *
+ * @author sali
+ */
+public class MorphologicalChartExporter {
+
+    static final int BINARY_MAGIC = 0x4D435832;
+
+    private final Encoder encoder;
+
+    private MorphologicalChartExporter(Encoder encoder) throws IOException {
+        this.encoder = encoder;
+        encoder.begin();
+    }
+
+    /**
+     * @param writer writer to write JSON to, flushed but not closed by {@link #finish()}
+     */
+    public static MorphologicalChartExporter json(Writer writer) throws IOException {
+        return new MorphologicalChartExporter(new JsonEncoder(writer));
+    }
+
+    /**
+     * @param outputStream stream to write binary format to, flushed but not closed by {@link #finish()}
+     */
+    public static MorphologicalChartExporter binary(OutputStream outputStream) throws IOException {
+        return new MorphologicalChartExporter(new BinaryEncoder(outputStream));
+    }
+
+    /**
+     * Reads charts written in binary format, one chart at a time.
+     *
+     * @param inputStream stream to read binary format from, not closed
+     * @param consumer    receives id and chart of each chart in the order they were written, chart is a read-only view
+     *                    and is <code>null</code> if <code>null</code> was written
+     * @throws IOException if unable to read or stream is not in binary format
+     */
+    public static void readBinary(InputStream inputStream, BiConsumer<String, MorphologicalChart> consumer)
+            throws IOException {
+        final DataInputStream input = new DataInputStream(new BufferedInputStream(inputStream, 8192));
+        final int magic = input.readInt();
+        if (magic != BINARY_MAGIC) {
+            throw new IOException(format("Invalid magic number {%08X}", magic));
+        }
+        while (readPresence(input)) {
+            final String id = readString(input);
+            MorphologicalChart morphologicalChart = null;
+            if (readPresence(input)) {
+                morphologicalChart = MorphologicalChartCodec.read(input, readString(input));
+            }
+            consumer.accept(id, morphologicalChart);
+        }
+    }
+
+    private static boolean readPresence(DataInputStream input) throws IOException {
+        final byte presence = input.readByte();
+        if (presence != 0 && presence != 1) {
+            throw new IOException(format("Invalid presence byte {%s}", presence));
+        }
+        return presence == 1;
+    }
+
+    private static String readString(DataInputStream input) throws IOException {
+        return readPresence(input) ? input.readUTF() : null;
+    }
+
+    /**
+     * Writes given chart.
+     *
+     * @param id                 id of the entry of the chart, may be <code>null</code>
+     * @param morphologicalChart chart to write
+     */
+    public void writeChart(String id, MorphologicalChart morphologicalChart) throws IOException {
+        encoder.writeChart(id, morphologicalChart);
+    }
+
+    /**
+     * Ends the export and flushes underlying writer or stream.
+     */
+    public void finish() throws IOException {
+        encoder.end();
+    }
+
+    /**
+     * Encodes charts in one format.
+     */
+    private interface Encoder {
+
+        void begin() throws IOException;
+
+        void writeChart(String id, MorphologicalChart morphologicalChart) throws IOException;
+
+        void end() throws IOException;
+    }
+
+    private static final class JsonEncoder implements Encoder {
+
+        private final JsonWriter writer;
+
+        private JsonEncoder(Writer writer) {
+            this.writer = new JsonWriter(writer);
+        }
+
+        @Override
+        public void begin() throws IOException {
+            writer.beginObject().name("charts").beginArray();
+        }
+
+        @Override
+        public void writeChart(String id, MorphologicalChart morphologicalChart) throws IOException {
+            writer.beginObject();
+            string("id", id);
+            writeAbbreviatedConjugation((morphologicalChart == null) ? null :
+                    morphologicalChart.getAbbreviatedConjugation());
+            writeDetailedConjugation((morphologicalChart == null) ? null : morphologicalChart.getDetailedConjugation());
+            endObject();
+        }
+
+        @Override
+        public void end() throws IOException {
+            writer.endArray().endObject().flush();
+        }
+
+        private void writeAbbreviatedConjugation(AbbreviatedConjugation abbreviatedConjugation) throws IOException {
+            final String name = "abbreviatedConjugation";
+            if (abbreviatedConjugation == null) {
+                nullValue(name);
+                return;
+            }
+            beginObject(name);
+            writeConjugationHeader(abbreviatedConjugation.getConjugationHeader());
+            writeRecord("pastTense", abbreviatedConjugation.getPastTense());
+            writeRecord("presentTense", abbreviatedConjugation.getPresentTense());
+            writeRecords("verbalNouns", abbreviatedConjugation.getVerbalNouns());
+            writeRecord("activeParticipleMasculine", abbreviatedConjugation.getActiveParticipleMasculine());
+            writeRecord("pastPassiveTense", abbreviatedConjugation.getPastPassiveTense());
+            writeRecord("presentPassiveTense", abbreviatedConjugation.getPresentPassiveTense());
+            writeRecord("passiveParticipleMasculine", abbreviatedConjugation.getPassiveParticipleMasculine());
+            writeRecord("imperative", abbreviatedConjugation.getImperative());
+            writeRecord("forbidding", abbreviatedConjugation.getForbidding());
+            writeRecords("adverbs", abbreviatedConjugation.getAdverbs());
+            endObject();
+        }
+
+        private void writeConjugationHeader(ConjugationHeader conjugationHeader) throws IOException {
+            final String name = "conjugationHeader";
+            if (conjugationHeader == null) {
+                nullValue(name);
+                return;
+            }
+            beginObject(name);
+            string("title", conjugationHeader.getTitle());
+            string("translation", conjugationHeader.getTranslation());
+            string("typeLabel1", conjugationHeader.getTypeLabel1());
+            string("typeLabel2", conjugationHeader.getTypeLabel2());
+            string("typeLabel3", conjugationHeader.getTypeLabel3());
+            endObject();
+        }
+
+        private void writeRecord(String name, AbbreviatedRecord abbreviatedRecord) throws IOException {
+            string(name, (abbreviatedRecord == null) ? null : abbreviatedRecord.getLabel());
+        }
+
+        private void writeRecords(String name, AbbreviatedRecord[] abbreviatedRecords) throws IOException {
+            final int size = (abbreviatedRecords == null) ? 0 : abbreviatedRecords.length;
+            beginArray(name);
+            for (int index = 0; index < size; index++) {
+                writeRecord(null, abbreviatedRecords[index]);
+            }
+            endArray();
+        }
+
+        private void writeDetailedConjugation(DetailedConjugation detailedConjugation) throws IOException {
+            final String name = "detailedConjugation";
+            if (detailedConjugation == null) {
+                nullValue(name);
+                return;
+            }
+            beginObject(name);
+            writeVerbGroup("pastTense", detailedConjugation.getPastTense());
+            writeVerbGroup("presentTense", detailedConjugation.getPresentTense());
+            writeNounGroup("activeParticipleMasculine", detailedConjugation.getActiveParticipleMasculine());
+            writeNounGroup("activeParticipleFeminine", detailedConjugation.getActiveParticipleFeminine());
+            writeNounGroups("verbalNouns", detailedConjugation.getVerbalNouns());
+            writeVerbGroup("pastPassiveTense", detailedConjugation.getPastPassiveTense());
+            writeVerbGroup("presentPassiveTense", detailedConjugation.getPresentPassiveTense());
+            writeNounGroup("passiveParticipleMasculine", detailedConjugation.getPassiveParticipleMasculine());
+            writeNounGroup("passiveParticipleFeminine", detailedConjugation.getPassiveParticipleFeminine());
+            writeVerbGroup("imperative", detailedConjugation.getImperative());
+            writeVerbGroup("forbidding", detailedConjugation.getForbidding());
+            writeNounGroups("adverbs", detailedConjugation.getAdverbs());
+            endObject();
+        }
+
+        private void writeVerbGroup(String name, VerbConjugationGroup group) throws IOException {
+            if (group == null) {
+                nullValue(name);
+                return;
+            }
+            beginObject(name);
+            writeTermType(group.getTermType());
+            writeTuple("masculineThirdPerson", group.getMasculineThirdPerson());
+            writeTuple("feminineThirdPerson", group.getFeminineThirdPerson());
+            writeTuple("masculineSecondPerson", group.getMasculineSecondPerson());
+            writeTuple("feminineSecondPerson", group.getFeminineSecondPerson());
+            writeTuple("firstPerson", group.getFirstPerson());
+            endObject();
+        }
+
+        private void writeNounGroup(String name, NounConjugationGroup group) throws IOException {
+            if (group == null) {
+                nullValue(name);
+                return;
+            }
+            beginObject(name);
+            writeTermType(group.getTermType());
+            writeTuple("nominative", group.getNominative());
+            writeTuple("accusative", group.getAccusative());
+            writeTuple("genitive", group.getGenitive());
+            endObject();
+        }
+
+        private void writeNounGroups(String name, NounConjugationGroup[] groups) throws IOException {
+            final int size = (groups == null) ? 0 : groups.length;
+            beginArray(name);
+            for (int index = 0; index < size; index++) {
+                writeNounGroup(null, groups[index]);
+            }
+            endArray();
+        }
+
+        private void writeTermType(SarfTermType termType) throws IOException {
+            string("termType", (termType == null) ? null : termType.name());
+        }
+
+        private void writeTuple(String name, ConjugationTuple tuple) throws IOException {
+            if (tuple == null) {
+                nullValue(name);
+                return;
+            }
+            beginObject(name);
+            string("singular", tuple.getSingular());
+            string("dual", tuple.getDual());
+            string("plural", tuple.getPlural());
+            endObject();
+        }
+
+        // names are null for elements of arrays
+        private void beginObject(String name) throws IOException {
+            name(name);
+            writer.beginObject();
+        }
+
+        private void endObject() throws IOException {
+            writer.endObject();
+        }
+
+        private void beginArray(String name) throws IOException {
+            name(name);
+            writer.beginArray();
+        }
+
+        private void endArray() throws IOException {
+            writer.endArray();
+        }
+
+        private void string(String name, String value) throws IOException {
+            name(name);
+            writer.value(value);
+        }
+
+        private void nullValue(String name) throws IOException {
+            string(name, null);
+        }
+
+        private void name(String name) throws IOException {
+            if (name != null) {
+                writer.name(name);
+            }
+        }
+    }
+
+    private static final class BinaryEncoder implements Encoder {
+
+        private final DataOutputStream outputStream;
+
+        private BinaryEncoder(OutputStream outputStream) {
+            this.outputStream = new DataOutputStream(new BufferedOutputStream(outputStream, 8192));
+        }
+
+        @Override
+        public void begin() throws IOException {
+            outputStream.writeInt(BINARY_MAGIC);
+        }
+
+        @Override
+        public void writeChart(String id, MorphologicalChart morphologicalChart) throws IOException {
+            outputStream.writeByte(1);
+            writeString(id);
+            if (morphologicalChart == null) {
+                outputStream.writeByte(0);
+                return;
+            }
+            outputStream.writeByte(1);
+            final AbbreviatedConjugation abbreviatedConjugation = morphologicalChart.getAbbreviatedConjugation();
+            final ConjugationHeader conjugationHeader = (abbreviatedConjugation == null) ? null :
+                    abbreviatedConjugation.getConjugationHeader();
+            writeString((conjugationHeader == null) ? null : conjugationHeader.getTranslation());
+            MorphologicalChartCodec.write(outputStream, morphologicalChart);
+        }
+
+        @Override
+        public void end() throws IOException {
+            outputStream.writeByte(0);
+            outputStream.flush();
+        }
+
+        private void writeString(String value) throws IOException {
+            if (value == null) {
+                outputStream.writeByte(0);
+            } else {
+                outputStream.writeByte(1);
+                outputStream.writeUTF(value);
+            }
+        }
+    }
+}
@@ -0,0 +1,413 @@
+package com.alphasystem.app.morphologicalengine.docx;
+
+import com.alphasystem.app.morphologicalengine.conjugation.builder.ConjugationBuilder;
+import com.alphasystem.morphologicalanalysis.morphology.model.ChartConfiguration;
+import com.alphasystem.morphologicalanalysis.morphology.model.ConjugationTemplate;
+import com.alphasystem.morphologicalengine.model.MorphologicalChart;
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.Deflater;
+
+/**
+ * Long lived, thread safe entry point to render {@link ConjugationTemplate}s, a single instance is meant to serve
+ * concurrent requests for the life time of the application.
+ * <p>
+ * Renderer only holds immutable settings and shared infrastructure, that is executor, chart and fragment caches,
+ * document skeletons and formatting pools, all of which are safe for concurrent use. State of a single document,
+ * such as table adapters and id allocators, is created per call and never shared between calls. Templates passed in
+ * must not be modified while they are being rendered.
+ * </p>
+ * <p>
+ * Outside of Spring a renderer is created with {@link #builder(ConjugationBuilder)}, which wires the same components as
+ * {@link MorphologicalChartConfiguration} with the same defaults. Call {@link #warmUp(ChartConfiguration, int)} before
+ * serving the first request to take class loading, JAXB context creation and JIT compilation off its path. Such a
+ * renderer must be closed once it is no longer needed, closing releases the thread pool and the chart store it created
+ * but never an executor or a store passed to the builder.
+ * </p>
+ *
+ * @author sali
+ */
+public class MorphologicalChartRenderer implements MorphologicalChartEngineFactory, AutoCloseable {
+
+    /**
+     * Default maximum number of cached charts, caching is off unless enabled.
+     */
+    static final int DEFAULT_CACHE_SIZE = 0;
+
+    /**
+     * Default maximum number of cached tables of {@link OutputBackend#STAX}.
+     */
+    static final int DEFAULT_FRAGMENT_CACHE_SIZE = 256;
+
+    private final AbbreviatedConjugationFactory abbreviatedConjugationFactory;
+    private final DetailedConjugationFactory detailedConjugationFactory;
+    private final SupplierFactory supplierFactory;
+    private final Executor executor;
+    private final int pipelineDepth;
+    private final OutputBackend outputBackend;
+    private final int compressionLevel;
+    private final DocumentGenerationListener listener;
+    private final TableFragmentCache tableFragmentCache;
+    private final boolean precomputedToc;
+    private final boolean collapseDuplicates;
+    private final ExecutorService ownedExecutor;
+    private final MorphologicalChartStore ownedStore;
+
+    /**
+     * @param ownedExecutor executor created for this renderer, shut down when renderer is closed
+     * @param ownedStore    store opened for this renderer, closed when renderer is closed
+     * @see MorphologicalChartEngine
+     */
+    private MorphologicalChartRenderer(AbbreviatedConjugationFactory abbreviatedConjugationFactory,
+                                       DetailedConjugationFactory detailedConjugationFactory,
+                                       SupplierFactory supplierFactory,
+                                       Executor executor,
+                                       int pipelineDepth,
+                                       OutputBackend outputBackend,
+                                       int compressionLevel,
+                                       DocumentGenerationListener listener,
+                                       TableFragmentCache tableFragmentCache,
+                                       boolean precomputedToc,
+                                       boolean collapseDuplicates,
+                                       ExecutorService ownedExecutor,
+                                       MorphologicalChartStore ownedStore) {
+        this.abbreviatedConjugationFactory = abbreviatedConjugationFactory;
+        this.detailedConjugationFactory = detailedConjugationFactory;
+        this.supplierFactory = supplierFactory;
+        this.executor = executor;
+        this.pipelineDepth = pipelineDepth;
+        this.outputBackend = outputBackend;
+        this.compressionLevel = compressionLevel;
+        this.listener = listener;
+        this.tableFragmentCache = tableFragmentCache;
+        this.precomputedToc = precomputedToc;
+        this.collapseDuplicates = collapseDuplicates;
+        this.ownedExecutor = ownedExecutor;
+        this.ownedStore = ownedStore;
+    }
+
+    /**
+     * Creates engine for given template, engine is cheap to create and shares infrastructure of this renderer. An
+     * engine must only be used by one thread at a time.
+     */
+    @Override
+    public MorphologicalChartEngine createMorphologicalChartEngine(ConjugationTemplate conjugationTemplate) {
+        return new MorphologicalChartEngine(abbreviatedConjugationFactory, detailedConjugationFactory, supplierFactory,
+                executor, pipelineDepth, outputBackend, compressionLevel, listener, tableFragmentCache, precomputedToc,
+                collapseDuplicates, conjugationTemplate);
+    }
+
+    /**
+     * Writes document of given template to given stream, stream is flushed but not closed.
+     *
+     * @see MorphologicalChartEngine#createDocument(OutputStream)
+     */
+    public void render(ConjugationTemplate conjugationTemplate, OutputStream outputStream) throws Docx4JException {
+        createMorphologicalChartEngine(conjugationTemplate).createDocument(outputStream);
+    }
+
+    /**
+     * @see MorphologicalChartEngine#createDocument(Path)
+     */
+    public void render(ConjugationTemplate conjugationTemplate, Path path) throws Docx4JException {
+        createMorphologicalChartEngine(conjugationTemplate).createDocument(path);
+    }
+
+    /**
+     * @see MorphologicalChartEngine#createDocumentAsync(Path, Executor, Duration)
+     */
+    public CompletableFuture<Void> renderAsync(ConjugationTemplate conjugationTemplate, Path path, Executor executor,
+                                               Duration timeout) {
+        return createMorphologicalChartEngine(conjugationTemplate).createDocumentAsync(path, executor, timeout);
+    }
+
+    /**
+     * @see MorphologicalChartEngine#createDocumentAsync(OutputStream, Executor, Duration)
+     */
+    public CompletableFuture<Void> renderAsync(ConjugationTemplate conjugationTemplate, OutputStream outputStream,
+                                               Executor executor, Duration timeout) {
+        return createMorphologicalChartEngine(conjugationTemplate).createDocumentAsync(outputStream, executor, timeout);
+    }
+
+    /**
+     * @see MorphologicalChartEngine#updateDocument(Path, Path)
+     */
+    public void update(ConjugationTemplate conjugationTemplate, Path previousDocument, Path path)
+            throws Docx4JException {
+        createMorphologicalChartEngine(conjugationTemplate).updateDocument(previousDocument, path);
+    }
+
+    /**
+     * @see MorphologicalChartEngine#createHtml(Writer)
+     */
+    public void renderHtml(ConjugationTemplate conjugationTemplate, Writer writer) throws IOException {
+        createMorphologicalChartEngine(conjugationTemplate).createHtml(writer);
+    }
+
+    /**
+     * @see MorphologicalChartEngine#exportJson(Writer)
+     */
+    public void exportJson(ConjugationTemplate conjugationTemplate, Writer writer) throws IOException {
+        createMorphologicalChartEngine(conjugationTemplate).exportJson(writer);
+    }
+
+    /**
+     * @see MorphologicalChartEngine#exportBinary(OutputStream)
+     */
+    public void exportBinary(ConjugationTemplate conjugationTemplate, OutputStream outputStream) throws IOException {
+        createMorphologicalChartEngine(conjugationTemplate).exportBinary(outputStream);
+    }
+
+    /**
+     * @see MorphologicalChartEngine#createMorphologicalCharts()
+     */
+    public List<MorphologicalChart> createMorphologicalCharts(ConjugationTemplate conjugationTemplate) {
+        return createMorphologicalChartEngine(conjugationTemplate).createMorphologicalCharts();
+    }
+
+    /**
+     * Warms up this renderer for documents with given configuration.
+     *
+     * @see MorphologicalChartEngine#warmUp(int)
+     */
+    public void warmUp(ChartConfiguration chartConfiguration, int iterations) throws Docx4JException {
+        final ConjugationTemplate conjugationTemplate = new ConjugationTemplate();
+        conjugationTemplate.setChartConfiguration(chartConfiguration);
+        createMorphologicalChartEngine(conjugationTemplate).warmUp(iterations);
+    }
+
+    /**
+     * Shuts down the thread pool and closes the chart store this renderer created, charts already submitted are still
+     * created but documents rendered afterwards fail if they need the pool. Executor and store passed to the builder
+     * or by Spring are left open.
+     */
+    @Override
+    public void close() {
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdown();
+        }
+        if (ownedStore != null) {
+            ownedStore.close();
+        }
+    }
+
+    /**
+     * @param conjugationBuilder builder used to conjugate charts
+     * @return builder of a renderer that does not require Spring
+     */
+    public static Builder builder(ConjugationBuilder conjugationBuilder) {
+        return new Builder(conjugationBuilder);
+    }
+
+    /**
+     * Wires a {@link MorphologicalChartRenderer}, defaults are the same as those of
+     * {@link MorphologicalChartConfiguration}, which wires its renderer with this builder as well.
+     */
+    public static final class Builder {
+
+        private final ConjugationBuilder conjugationBuilder;
+        private AbbreviatedConjugationFactory abbreviatedConjugationFactory = AbbreviatedConjugationAdapter::new;
+        private DetailedConjugationFactory detailedConjugationFactory = DetailedConjugationAdapter::new;
+        private SupplierFactory supplierFactory;
+        private TableFragmentCache tableFragmentCache;
+        private int cacheSize = DEFAULT_CACHE_SIZE;
+        private int fragmentCacheSize = DEFAULT_FRAGMENT_CACHE_SIZE;
+        private Executor executor;
+        private int parallelism;
+        private boolean parallel;
+        private int pipelineDepth;
+        private OutputBackend outputBackend = OutputBackend.JAXB;
+        private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+        private DocumentGenerationListener listener = DocumentGenerationListener.NO_OP;
+        private boolean precomputedToc;
+        private boolean collapseDuplicates;
+        private MorphologicalChartStore morphologicalChartStore = MorphologicalChartStore.empty();
+        private Path storePath;
+        private boolean allowUnknownStoreVersion;
+
+        private Builder(ConjugationBuilder conjugationBuilder) {
+            if (conjugationBuilder == null) {
+                throw new IllegalArgumentException("conjugationBuilder must not be null");
+            }
+            this.conjugationBuilder = conjugationBuilder;
+        }
+
+        /**
+         * Applies <code>morphological.chart.*</code> system properties that are set, see
+         * {@link MorphologicalChartConfiguration}. Store of <code>morphological.chart.store</code> is opened by each
+         * {@link #build()} and closed with the renderer built.
+         */
+        public Builder systemProperties() {
+            cacheSize = Integer.getInteger("morphological.chart.cache.size", cacheSize);
+            fragmentCacheSize = Integer.getInteger("morphological.chart.fragment.cache.size", fragmentCacheSize);
+            parallelism = Integer.getInteger("morphological.chart.parallelism", parallelism);
+            parallel = Boolean.parseBoolean(System.getProperty("morphological.chart.parallel", String.valueOf(parallel)));
+            pipelineDepth = Integer.getInteger("morphological.chart.pipeline.depth", pipelineDepth);
+            final String backend = System.getProperty("morphological.chart.output.backend");
+            if (backend != null) {
+                outputBackend = OutputBackend.valueOf(backend);
+            }
+            compressionLevel = Integer.getInteger("morphological.chart.compression.level", compressionLevel);
+            if (Boolean.getBoolean("morphological.chart.metrics.enabled")) {
+                listener = new DocumentGenerationMetrics(Integer.getInteger("morphological.chart.metrics.slowest", 0));
+            }
+            precomputedToc = Boolean.parseBoolean(System.getProperty("morphological.chart.toc.precomputed",
+                    String.valueOf(precomputedToc)));
+            collapseDuplicates = Boolean.parseBoolean(System.getProperty("morphological.chart.duplicates.collapse",
+                    String.valueOf(collapseDuplicates)));
+            final String storePath = System.getProperty("morphological.chart.store");
+            if (storePath != null && !storePath.isEmpty()) {
+                this.storePath = Paths.get(storePath);
+                allowUnknownStoreVersion = Boolean.getBoolean("morphological.chart.store.unknown.version.allowed");
+            }
+            return this;
+        }
+
+        /**
+         * Components shared with other beans of {@link MorphologicalChartConfiguration}, supplier factory takes the
+         * place of {@link #cacheSize(int)} and {@link #store(MorphologicalChartStore)} and table fragment cache the
+         * place of {@link #fragmentCacheSize(int)}.
+         */
+        Builder components(AbbreviatedConjugationFactory abbreviatedConjugationFactory,
+                           DetailedConjugationFactory detailedConjugationFactory, SupplierFactory supplierFactory,
+                           TableFragmentCache tableFragmentCache) {
+            this.abbreviatedConjugationFactory = abbreviatedConjugationFactory;
+            this.detailedConjugationFactory = detailedConjugationFactory;
+            this.supplierFactory = supplierFactory;
+            this.tableFragmentCache = tableFragmentCache;
+            return this;
+        }
+
+        /**
+         * @param cacheSize maximum number of cached charts, zero, the default, turns caching off
+         */
+        public Builder cacheSize(int cacheSize) {
+            this.cacheSize = cacheSize;
+            return this;
+        }
+
+        /**
+         * @param fragmentCacheSize maximum number of cached tables of {@link OutputBackend#STAX}, zero turns caching off
+         */
+        public Builder fragmentCacheSize(int fragmentCacheSize) {
+            this.fragmentCacheSize = fragmentCacheSize;
+            return this;
+        }
+
+        /**
+         * @param executor executor to create charts on, owned by the caller, if not set and charts are created in
+         *                 parallel then a pool of daemon threads is created and shut down when renderer is closed
+         */
+        public Builder executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * @param parallelism number of threads of the pool created when no executor is set, zero for number of
+         *                    available processors
+         */
+        public Builder parallelism(int parallelism) {
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        public Builder parallel(boolean parallel) {
+            this.parallel = parallel;
+            return this;
+        }
+
+        public Builder pipelineDepth(int pipelineDepth) {
+            this.pipelineDepth = pipelineDepth;
+            return this;
+        }
+
+        public Builder outputBackend(OutputBackend outputBackend) {
+            this.outputBackend = outputBackend;
+            return this;
+        }
+
+        public Builder compressionLevel(int compressionLevel) {
+            this.compressionLevel = compressionLevel;
+            return this;
+        }
+
+        public Builder listener(DocumentGenerationListener listener) {
+            this.listener = listener;
+            return this;
+        }
+
+        public Builder precomputedToc(boolean precomputedToc) {
+            this.precomputedToc = precomputedToc;
+            return this;
+        }
+
+        public Builder collapseDuplicates(boolean collapseDuplicates) {
+            this.collapseDuplicates = collapseDuplicates;
+            return this;
+        }
+
+        /**
+         * @param morphologicalChartStore store of pre-conjugated charts, charts missing from it are conjugated, owned
+         *                                by the caller. Replaces store of <code>morphological.chart.store</code>.
+         */
+        public Builder store(MorphologicalChartStore morphologicalChartStore) {
+            this.morphologicalChartStore = (morphologicalChartStore == null) ? MorphologicalChartStore.empty()
+                    : morphologicalChartStore;
+            this.storePath = null;
+            return this;
+        }
+
+        /**
+         * Builds a renderer, each renderer has its own thread pool and store if they are created by the builder, so
+         * closing one renderer never affects another one.
+         *
+         * @throws UncheckedIOException if unable to open store of <code>morphological.chart.store</code>
+         */
+        public MorphologicalChartRenderer build() {
+            SupplierFactory chartSupplierFactory = supplierFactory;
+            MorphologicalChartStore ownedStore = null;
+            if (chartSupplierFactory == null) {
+                MorphologicalChartStore store = morphologicalChartStore;
+                if (storePath != null) {
+                    try {
+                        ownedStore = MorphologicalChartStore.open(storePath, allowUnknownStoreVersion);
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                    store = ownedStore;
+                }
+                final MorphologicalChartStore chartStore = store;
+                final MorphologicalChartCache morphologicalChartCache = new MorphologicalChartCache(cacheSize);
+                chartSupplierFactory = conjugationData -> new MorphologicalChartSupplier(conjugationData,
+                        conjugationBuilder, morphologicalChartCache, chartStore);
+            }
+            Executor chartExecutor = null;
+            ExecutorService ownedExecutor = null;
+            if (parallel || pipelineDepth > 0) {
+                if (executor == null) {
+                    ownedExecutor = MorphologicalChartConfiguration.newFixedThreadPool("morphological-chart-",
+                            parallelism);
+                    chartExecutor = ownedExecutor;
+                } else {
+                    chartExecutor = executor;
+                }
+            }
+            return new MorphologicalChartRenderer(abbreviatedConjugationFactory, detailedConjugationFactory,
+                    chartSupplierFactory, chartExecutor, pipelineDepth, outputBackend, compressionLevel, listener,
+                    (tableFragmentCache == null) ? new TableFragmentCache(fragmentCacheSize) : tableFragmentCache,
+                    precomputedToc, collapseDuplicates, ownedExecutor, ownedStore);
+        }
+    }
+}
@@ -0,0 +1,343 @@
+package com.alphasystem.app.morphologicalengine.docx;
+
+import com.alphasystem.app.morphologicalengine.conjugation.builder.ConjugationBuilder;
+import com.alphasystem.morphologicalanalysis.morphology.model.ConjugationData;
+import com.alphasystem.morphologicalengine.model.MorphologicalChart;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import static java.lang.String.format;
+
+/**
+ * Read-only store of pre-conjugated {@link MorphologicalChart}s, memory-mapped from a file written by
+ * {@link #write(Path, Iterable, ConjugationBuilder)}. Pages of the file are shared by all JVMs on a host that map it,
+ * a lookup costs a binary search and decoding of one chart.
+ * <p>
+ * Charts are keyed by the conjugation inputs of {@link ConjugationKey}, without translation, which is applied to the
+ * header of a chart when it is read, so entries that only differ in translation share one chart. A chart is stored
+ * field by field with {@link MorphologicalChartCodec} and compressed. An entry that can not be read counts as a miss
+ * and is conjugated instead. A store written by a different version of the conjugation builder is ignored, so that
+ * stale charts are never served. Unless explicitly allowed, so is a store when either version is unknown.
+ * </p>
+ * <p>
+ * Closing a store drops its mapping, every lookup afterwards is a miss. JDK has no way to unmap a file explicitly, so
+ * pages are released once the mapping is garbage collected.
+ * </p>
+ * <p>
+ * Layout: magic number <code>MCS2</code> and builder version, then entries of key and compressed chart, then index of
+ * key hash and entry offset sorted by hash, and finally offset of the index, number of entries and magic number.
+ * </p>
+ *
+ * @author sali
+ */
+public final class MorphologicalChartStore implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MorphologicalChartStore.class);
+    private static final int MAGIC = 0x4D435332;
+    private static final int INDEX_ENTRY_SIZE = 16;
+    private static final int FOOTER_SIZE = 16;
+    private static final String UNKNOWN_VERSION = "unknown";
+    private static final MorphologicalChartStore EMPTY = new MorphologicalChartStore(null, null, 0, 0);
+
+    private final Path path;
+    private volatile ByteBuffer buffer;
+    private final int indexOffset;
+    private final int size;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    private MorphologicalChartStore(Path path, ByteBuffer buffer, int indexOffset, int size) {
+        this.path = path;
+        this.buffer = buffer;
+        this.indexOffset = indexOffset;
+        this.size = size;
+    }
+
+    /**
+     * @return store without any chart
+     */
+    public static MorphologicalChartStore empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Maps given store file, file is not locked and may be replaced by a new store while mapped.
+     *
+     * @param path store file
+     * @return store of given file or empty store if file was written by a different or an unknown version of the
+     * builder
+     * @throws IOException if unable to read the file or file is not a store
+     */
+    public static MorphologicalChartStore open(Path path) throws IOException {
+        return open(path, false);
+    }
+
+    /**
+     * Maps given store file, file is not locked and may be replaced by a new store while mapped.
+     *
+     * @param path                store file
+     * @param allowUnknownVersion if <code>true</code> then a store is also served when version of the builder is not
+     *                            known, which is the case for builds without <code>Implementation-Version</code> in
+     *                            their manifest. Only safe if store is written again whenever the builder changes.
+     * @return store of given file or empty store if file was written by a different version of the builder
+     * @throws IOException if unable to read the file or file is not a store
+     */
+    public static MorphologicalChartStore open(Path path, boolean allowUnknownVersion) throws IOException {
+        final MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long fileSize = channel.size();
+            if (fileSize > Integer.MAX_VALUE) {
+                throw new IOException(format("Store {%s} is larger than 2GB", path));
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+        }
+        final int fileSize = buffer.capacity();
+        if (fileSize < 4 + FOOTER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(fileSize - 4) != MAGIC) {
+            throw new IOException(format("File {%s} is not a chart store", path));
+        }
+        final long indexOffset = buffer.getLong(fileSize - FOOTER_SIZE);
+        final int size = buffer.getInt(fileSize - FOOTER_SIZE + 8);
+        if (indexOffset < 4 || size < 0 || indexOffset + (long) size * INDEX_ENTRY_SIZE != fileSize - FOOTER_SIZE) {
+            throw new IOException(format("Store {%s} is corrupt", path));
+        }
+        final String version = new DataInputStream(new ByteBufferInputStream(buffer, 4, fileSize)).readUTF();
+        if (!allowUnknownVersion && (UNKNOWN_VERSION.equals(version) || UNKNOWN_VERSION.equals(getBuilderVersion()))) {
+            LOGGER.warn("Ignoring store {}, version of conjugation builder is unknown, store was written by {} and " +
+                    "current version is {}", path, version, getBuilderVersion());
+            return EMPTY;
+        }
+        if (!version.equals(getBuilderVersion())) {
+            LOGGER.warn("Ignoring store {} written by conjugation builder {}, current version is {}", path, version,
+                    getBuilderVersion());
+            return EMPTY;
+        }
+        return new MorphologicalChartStore(path, buffer, (int) indexOffset, size);
+    }
+
+    /**
+     * Conjugates given entries and writes them to a store at given path, entries with equal conjugation inputs are
+     * written once. Store is first written to a temporary file in the same directory which then replaces the target
+     * file, JVMs that have the previous store mapped keep reading it until they open the new one.
+     *
+     * @param path               path of the store
+     * @param data               entries to conjugate
+     * @param conjugationBuilder builder to conjugate entries with
+     * @return number of charts written
+     * @throws IOException if unable to write the store
+     */
+    public static int write(Path path, Iterable<ConjugationData> data, ConjugationBuilder conjugationBuilder)
+            throws IOException {
+        final Path directory = path.toAbsolutePath().getParent();
+        final Path tempFile = Files.createTempFile(directory, "." + path.getFileName(), ".tmp");
+        final List<long[]> index = new ArrayList<>();
+        try {
+            try (CountingOutputStream countingOutputStream = new CountingOutputStream(Files.newOutputStream(tempFile));
+                 DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(countingOutputStream,
+                         64 * 1024))) {
+                outputStream.writeInt(MAGIC);
+                outputStream.writeUTF(getBuilderVersion());
+                final Set<String> keys = new HashSet<>();
+                final ByteArrayOutputStream chartBytes = new ByteArrayOutputStream(16 * 1024);
+                for (ConjugationData conjugationData : data) {
+                    final ConjugationKey key = ConjugationKey.of(conjugationData);
+                    final String conjugationInputs = (key == null) ? null : key.conjugationInputs();
+                    if (conjugationInputs == null || !keys.add(conjugationInputs)) {
+                        continue;
+                    }
+                    final MorphologicalChart morphologicalChart = new MorphologicalChartSupplier(conjugationData,
+                            conjugationBuilder).get();
+                    chartBytes.reset();
+                    try (DataOutputStream chartOutputStream = new DataOutputStream(
+                            new DeflaterOutputStream(chartBytes))) {
+                        MorphologicalChartCodec.write(chartOutputStream, morphologicalChart);
+                    }
+                    outputStream.flush();
+                    index.add(new long[]{ConjugationKey.fnv1a64(conjugationInputs), countingOutputStream.getCount()});
+                    outputStream.writeUTF(conjugationInputs);
+                    outputStream.writeInt(chartBytes.size());
+                    chartBytes.writeTo(outputStream);
+                }
+                outputStream.flush();
+                final long indexOffset = countingOutputStream.getCount();
+                index.sort((e1, e2) -> Long.compare(e1[0], e2[0]));
+                for (long[] entry : index) {
+                    outputStream.writeLong(entry[0]);
+                    outputStream.writeLong(entry[1]);
+                }
+                outputStream.writeLong(indexOffset);
+                outputStream.writeInt(index.size());
+                outputStream.writeInt(MAGIC);
+            }
+            try {
+                Files.move(tempFile, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(tempFile, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+        return index.size();
+    }
+
+    private static String getBuilderVersion() {
+        final Package builderPackage = ConjugationBuilder.class.getPackage();
+        final String version = (builderPackage == null) ? null : builderPackage.getImplementationVersion();
+        return (version == null) ? UNKNOWN_VERSION : version;
+    }
+
+    /**
+     * @param conjugationData entry to look up
+     * @return stored chart of given entry with its translation or <code>null</code> if there is none or stored chart
+     * can not be read
+     */
+    MorphologicalChart get(ConjugationData conjugationData) {
+        if (size == 0) {
+            return null;
+        }
+        final ConjugationKey key = ConjugationKey.of(conjugationData);
+        if (key == null) {
+            return null;
+        }
+        final ByteBuffer buffer = this.buffer;
+        if (buffer == null) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        final String conjugationInputs = key.conjugationInputs();
+        final long hash = ConjugationKey.fnv1a64(conjugationInputs);
+        try {
+            for (int position = findFirst(buffer, hash); position < size && getHash(buffer, position) == hash;
+                 position++) {
+                final int offset = (int) buffer.getLong(indexOffset + position * INDEX_ENTRY_SIZE + 8);
+                final DataInputStream inputStream = new DataInputStream(new ByteBufferInputStream(buffer, offset,
+                        indexOffset));
+                if (conjugationInputs.equals(inputStream.readUTF())) {
+                    final int length = inputStream.readInt();
+                    final int chartOffset = indexOffset - inputStream.available();
+                    if (length < 0 || length > inputStream.available()) {
+                        throw new IOException(format("Invalid chart length {%s}", length));
+                    }
+                    final MorphologicalChart morphologicalChart = readChart(new InflaterInputStream(
+                            new ByteBufferInputStream(buffer, chartOffset, chartOffset + length)),
+                            conjugationData.getTranslation());
+                    hitCount.incrementAndGet();
+                    return morphologicalChart;
+                }
+            }
+        } catch (IOException | RuntimeException ex) {
+            LOGGER.warn("Unable to read chart {} from store {}, conjugating it instead", key, path, ex);
+        }
+        missCount.incrementAndGet();
+        return null;
+    }
+
+    private int findFirst(ByteBuffer buffer, long hash) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (getHash(buffer, middle) < hash) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private long getHash(ByteBuffer buffer, int position) {
+        return buffer.getLong(indexOffset + position * INDEX_ENTRY_SIZE);
+    }
+
+    private static MorphologicalChart readChart(InputStream inputStream, String translation) throws IOException {
+        try (DataInputStream dataInputStream = new DataInputStream(inputStream)) {
+            final MorphologicalChart morphologicalChart = MorphologicalChartCodec.read(dataInputStream, translation);
+            if (dataInputStream.read() != -1) {
+                throw new IOException("Unexpected data after chart");
+            }
+            return morphologicalChart;
+        }
+    }
+
+    /**
+     * Drops mapping of the store file, lookups afterwards are misses.
+     */
+    @Override
+    public void close() {
+        buffer = null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return format("MorphologicalChartStore{path=%s, size=%s, hits=%s, misses=%s}", path, size, getHitCount(),
+                getMissCount());
+    }
+
+    /**
+     * Reads a range of a buffer without changing the buffer, safe to use concurrently with other readers.
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer, int offset, int limit) {
+            this.buffer = buffer.duplicate();
+            this.buffer.limit(limit).position(offset);
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? (buffer.get() & 0xFF) : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            final int count = Math.min(len, buffer.remaining());
+            buffer.get(b, off, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
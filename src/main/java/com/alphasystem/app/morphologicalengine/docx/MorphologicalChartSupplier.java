@@ -10,19 +10,47 @@ import com.alphasystem.morphologicalengine.model.MorphologicalChart;
 import java.util.function.Supplier;
 
 /**
+ * Creates chart of one entry, from the chart cache or the chart store if it holds one.
+ * <p>
+ * Cached and stored charts are shared by all entries with the same inputs, so they are conjugated without the id of
+ * the entry they were first created for, use {@link ConjugationData#getId()} of the entry instead.
+ * </p>
+ *
  * @author sali
  */
 public class MorphologicalChartSupplier implements Supplier<MorphologicalChart> {
 
     private final ConjugationBuilder conjugationBuilder;
     private final ConjugationData conjugationData;
+    private final MorphologicalChartCache morphologicalChartCache;
+    private final MorphologicalChartStore morphologicalChartStore;
 
     MorphologicalChartSupplier(ConjugationData conjugationData, ConjugationBuilder conjugationBuilder) {
+        this(conjugationData, conjugationBuilder, null);
+    }
+
+    MorphologicalChartSupplier(ConjugationData conjugationData, ConjugationBuilder conjugationBuilder,
+                               MorphologicalChartCache morphologicalChartCache) {
+        this(conjugationData, conjugationBuilder, morphologicalChartCache, null);
+    }
+
+    /**
+     * @param morphologicalChartStore store of pre-conjugated charts looked up before conjugating, may be
+     *                                <code>null</code>
+     */
+    MorphologicalChartSupplier(ConjugationData conjugationData, ConjugationBuilder conjugationBuilder,
+                               MorphologicalChartCache morphologicalChartCache,
+                               MorphologicalChartStore morphologicalChartStore) {
         this.conjugationData = conjugationData;
         this.conjugationBuilder = conjugationBuilder;
+        this.morphologicalChartCache = morphologicalChartCache;
+        this.morphologicalChartStore = morphologicalChartStore;
     }
 
-    private MorphologicalChart createChart() {
+    /**
+     * @param id id to conjugate chart with, <code>null</code> for a chart shared by entries with the same inputs
+     */
+    private MorphologicalChart createChart(String id) {
         if (conjugationData == null) {
             return null;
         }
@@ -30,13 +58,32 @@ public class MorphologicalChartSupplier implements Supplier<MorphologicalChart>
         if (rootLetters == null) {
             return null;
         }
+        final MorphologicalChart storedChart = (morphologicalChartStore == null) ? null :
+                morphologicalChartStore.get(conjugationData);
+        if (storedChart != null) {
+            return storedChart;
+        }
         final ConjugationRoots conjugationRoots = ConjugationHelper.getConjugationRoots(conjugationData);
-        return conjugationBuilder.doConjugation(conjugationData.getId(), conjugationRoots);
+        return conjugationBuilder.doConjugation(id, conjugationRoots);
     }
 
     @Override
     public MorphologicalChart get() {
-        return createChart();
+        final FlightEvents.Conjugation event = FlightEvents.beginConjugation();
+        final boolean cacheEnabled = morphologicalChartCache != null && morphologicalChartCache.isEnabled();
+        final ConjugationKey key = cacheEnabled ? ConjugationKey.of(conjugationData) : null;
+        final MorphologicalChart morphologicalChart;
+        if (key == null) {
+            morphologicalChart = createChart((conjugationData == null) ? null : conjugationData.getId());
+        } else {
+            morphologicalChart = morphologicalChartCache.get(key, () -> createChart(null));
+        }
+        if (event.shouldCommit() && conjugationData != null) {
+            final RootLetters rootLetters = conjugationData.getRootLetters();
+            event.commit(String.valueOf(conjugationData.getTemplate()),
+                    (rootLetters == null) ? null : rootLetters.getDisplayName(), cacheEnabled);
+        }
+        return morphologicalChart;
     }
 
     @Override
@@ -0,0 +1,20 @@
+package com.alphasystem.app.morphologicalengine.docx;
+
+/**
+ * Backend used to write <code>word/document.xml</code> of generated documents.
+ *
+ * @author sali
+ */
+public enum OutputBackend {
+
+    /**
+     * Builds docx4j object tree through {@link AbbreviatedConjugationAdapter} and {@link DetailedConjugationAdapter}
+     * and marshals it on save.
+     */
+    JAXB,
+
+    /**
+     * Streams WordprocessingML directly to the output without building object tree, see {@link StaxChartWriter}.
+     */
+    STAX
+}
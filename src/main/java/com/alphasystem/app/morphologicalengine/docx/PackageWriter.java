@@ -0,0 +1,120 @@
+package com.alphasystem.app.morphologicalengine.docx;
+
+import org.docx4j.Docx4J;
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.openpackaging.parts.JaxbXmlPart;
+import org.docx4j.openpackaging.parts.Part;
+import org.docx4j.openpackaging.parts.WordprocessingML.BinaryPart;
+
+import javax.xml.bind.JAXBException;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Saves a package created from a {@link DocumentSkeleton} through {@link ZipStreamWriter}. Parts which are never
+ * changed after skeleton is built, see {@link DocumentSkeleton#isImmutable(Part)}, are copied pre-compressed from the
+ * skeleton, all other parts and content types are marshalled and compressed.
+ *
+ * @author sali
+ */
+final class PackageWriter {
+
+    static final String CONTENT_TYPES_ENTRY_NAME = "[Content_Types].xml";
+
+    private PackageWriter() {
+    }
+
+    static void write(WordprocessingMLPackage wordMLPackage, DocumentSkeleton skeleton, int compressionLevel,
+                      OutputStream outputStream) throws Docx4JException, IOException {
+        final Map<String, Part> packageParts = getPackageParts(wordMLPackage);
+        final Map<String, ZipPart> staticParts = skeleton.getParts(compressionLevel);
+        for (Map.Entry<String, Part> entry : packageParts.entrySet()) {
+            final Part part = entry.getValue();
+            if (!staticParts.containsKey(entry.getKey()) && !(part instanceof JaxbXmlPart) && !(part instanceof BinaryPart)) {
+                // unknown part type, let docx4j handle it
+                save(wordMLPackage, outputStream);
+                return;
+            }
+        }
+
+        try (ZipStreamWriter zipWriter = new ZipStreamWriter(outputStream, compressionLevel)) {
+            writeContentTypes(wordMLPackage, zipWriter);
+            for (Map.Entry<String, ZipPart> entry : staticParts.entrySet()) {
+                final String name = entry.getKey();
+                final Part part = packageParts.get(name);
+                if (part == null || !DocumentSkeleton.isImmutable(part)) {
+                    continue;
+                }
+                packageParts.remove(name);
+                zipWriter.writePart(entry.getValue());
+            }
+            // parts which may have changed while building the document and any part added by it
+            for (Map.Entry<String, Part> entry : packageParts.entrySet()) {
+                writePart(zipWriter, entry.getKey(), entry.getValue());
+            }
+            zipWriter.finish();
+        } catch (JAXBException ex) {
+            throw new Docx4JException("Failed to marshal part", ex);
+        }
+    }
+
+    /**
+     * Saves given package with docx4j, which may close the stream it writes to, given stream is flushed but not
+     * closed.
+     */
+    static void save(WordprocessingMLPackage wordMLPackage, OutputStream outputStream) throws Docx4JException {
+        Docx4J.save(wordMLPackage, new FilterOutputStream(outputStream) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        }, Docx4J.FLAG_NONE);
+    }
+
+    private static Map<String, Part> getPackageParts(WordprocessingMLPackage wordMLPackage) {
+        final Map<String, Part> result = new LinkedHashMap<>();
+        addPart(result, wordMLPackage.getRelationshipsPart());
+        for (Part part : wordMLPackage.getParts().getParts().values()) {
+            addPart(result, part);
+            addPart(result, part.getRelationshipsPart());
+        }
+        return result;
+    }
+
+    private static void addPart(Map<String, Part> parts, Part part) {
+        if (part != null) {
+            parts.put(getEntryName(part), part);
+        }
+    }
+
+    private static String getEntryName(Part part) {
+        final String name = part.getPartName().getName();
+        return name.startsWith("/") ? name.substring(1) : name;
+    }
+
+    private static void writeContentTypes(WordprocessingMLPackage wordMLPackage, ZipStreamWriter zipWriter)
+            throws IOException, Docx4JException {
+        try (OutputStream outputStream = zipWriter.startEntry(CONTENT_TYPES_ENTRY_NAME)) {
+            wordMLPackage.getContentTypeManager().marshal(outputStream);
+        }
+    }
+
+    private static void writePart(ZipStreamWriter zipWriter, String name, Part part) throws IOException, JAXBException {
+        try (OutputStream outputStream = zipWriter.startEntry(name)) {
+            if (part instanceof JaxbXmlPart) {
+                ((JaxbXmlPart<?>) part).marshal(outputStream);
+            } else {
+                ((BinaryPart) part).writeDataToOutputStream(outputStream);
+            }
+        }
+    }
+}
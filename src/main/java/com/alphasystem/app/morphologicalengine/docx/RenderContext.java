@@ -0,0 +1,57 @@
+package com.alphasystem.app.morphologicalengine.docx;
+
+import java.math.BigInteger;
+
+/**
+ * Per-document state of conjugation tables, ids of the document and its {@link FormattingPool}. Bookmark ids are a
+ * sequence of their own, separate from revision ids, so that every bookmark of the document has a distinct id. A
+ * context is created for each document, is used by the one thread building that document and is not thread safe.
+ *
+ * @author sali
+ */
+public final class RenderContext {
+
+    private final IdAllocator ids;
+    private final FormattingPool formattingPool = new FormattingPool();
+    private int nextBookmarkId;
+
+    public RenderContext() {
+        this(new IdAllocator());
+    }
+
+    /**
+     * @param ids allocator of revision and paragraph ids of the document
+     */
+    public RenderContext(IdAllocator ids) {
+        this.ids = ids;
+    }
+
+    /**
+     * @return allocator of revision and paragraph ids of the document
+     */
+    IdAllocator getIds() {
+        return ids;
+    }
+
+    /**
+     * @return formatting objects of the document
+     */
+    FormattingPool getFormattingPool() {
+        return formattingPool;
+    }
+
+    /**
+     * @return id of the next bookmark of the document
+     */
+    BigInteger nextBookmarkId() {
+        return BigInteger.valueOf(nextBookmarkId++);
+    }
+
+    /**
+     * Makes sure ids of bookmarks added from now on are greater than given id, used after content holding bookmarks
+     * not drawn from this context has been added to the document.
+     */
+    void skipBookmarkIds(int lastUsedId) {
+        nextBookmarkId = Math.max(nextBookmarkId, lastUsedId + 1);
+    }
+}
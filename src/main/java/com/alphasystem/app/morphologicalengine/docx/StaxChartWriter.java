@@ -0,0 +1,658 @@
+package com.alphasystem.app.morphologicalengine.docx;
+
+import com.alphasystem.morphologicalanalysis.morphology.model.ChartConfiguration;
+import com.alphasystem.morphologicalanalysis.morphology.model.support.SarfTermType;
+import com.alphasystem.morphologicalengine.model.AbbreviatedConjugation;
+import com.alphasystem.morphologicalengine.model.ConjugationHeader;
+import com.alphasystem.morphologicalengine.model.ConjugationTuple;
+import com.alphasystem.morphologicalengine.model.DetailedConjugation;
+import com.alphasystem.morphologicalengine.model.NounConjugationGroup;
+import com.alphasystem.morphologicalengine.model.VerbConjugationGroup;
+import org.apache.commons.lang3.StringUtils;
+
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.util.List;
+
+import static com.alphasystem.app.morphologicalengine.docx.WmlHelper.*;
+import static org.apache.commons.lang3.ArrayUtils.isEmpty;
+
+/**
+ * Writes WordprocessingML of abbreviated and detailed conjugation charts directly to a {@link XMLStreamWriter},
+ * without building docx4j object tree. Layout of the tables is the same as the one created by
+ * {@link AbbreviatedConjugationAdapter} and {@link DetailedConjugationAdapter}. Revision ids (rsid) are optional in
+ * WordprocessingML and are not written.
+ * <p>
+ * Tables can also be captured as {@link TableFragment}s and spliced back as is, bypassing the XML writer.
+ * </p>
+ *
+ * @author sali
+ */
+final class StaxChartWriter {
+
+    static final String WML_NAMESPACE = "http://schemas.openxmlformats.org/wordprocessingml/2006/main";
+    private static final String PREFIX = "w";
+    private static final double[] ABBREVIATED_COLUMN_WIDTHS = {25.0, 25.0, 25.0, 25.0};
+    private static final double[] DETAILED_COLUMN_WIDTHS = {16.24, 16.24, 16.24, 2.56, 16.24, 16.24, 16.24};
+    private static final int NUM_OF_DETAILED_COLUMNS = DETAILED_COLUMN_WIDTHS.length;
+
+    private static final XMLOutputFactory XML_OUTPUT_FACTORY = XMLOutputFactory.newFactory();
+
+    private final XMLStreamWriter writer;
+    private final OutputStream rawOutputStream;
+    private final boolean capture;
+    private final ChartConfiguration chartConfiguration;
+    private final long textWidth;
+    private double[] columnWidths;
+    private int bookmarkId;
+    private int rowCount;
+
+    /**
+     * @param writer          UTF-8 writer to write XML to
+     * @param rawOutputStream stream underlying given XML writer, used to splice fragments
+     * @param textWidth       width between page margins in twentieths of a point, see
+     *                        {@link DocumentSkeleton#getTextWidth()}
+     */
+    StaxChartWriter(XMLStreamWriter writer, OutputStream rawOutputStream, ChartConfiguration chartConfiguration,
+                    long textWidth) {
+        this(writer, rawOutputStream, chartConfiguration, textWidth, false);
+    }
+
+    private StaxChartWriter(XMLStreamWriter writer, OutputStream rawOutputStream, ChartConfiguration chartConfiguration,
+                            long textWidth, boolean capture) {
+        this.writer = writer;
+        this.rawOutputStream = rawOutputStream;
+        this.capture = capture;
+        this.chartConfiguration = (chartConfiguration == null) ? new ChartConfiguration() : chartConfiguration;
+        this.textWidth = textWidth;
+    }
+
+    /**
+     * @return number of table rows written so far
+     */
+    int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Sets id of the next bookmark, used when content is added to a document already holding bookmarks.
+     */
+    void setNextBookmarkId(int bookmarkId) {
+        this.bookmarkId = bookmarkId;
+    }
+
+    // Fragments
+
+    /**
+     * Captures abbreviated conjugation table as a fragment without writing it.
+     */
+    TableFragment captureAbbreviatedConjugation(AbbreviatedConjugation abbreviatedConjugation) throws XMLStreamException {
+        return capture(fragmentWriter -> fragmentWriter.writeAbbreviatedConjugation(abbreviatedConjugation));
+    }
+
+    /**
+     * Captures detailed conjugation table as a fragment without writing it.
+     */
+    TableFragment captureDetailedConjugation(DetailedConjugation detailedConjugation) throws XMLStreamException {
+        return capture(fragmentWriter -> fragmentWriter.writeDetailedConjugation(detailedConjugation));
+    }
+
+    /**
+     * Captures body content written by given writer as a fragment without writing it.
+     */
+    TableFragment capture(StaxDocumentWriter.BodyWriter bodyWriter) throws XMLStreamException {
+        final StringWriter stringWriter = new StringWriter();
+        final XMLStreamWriter xmlWriter = XML_OUTPUT_FACTORY.createXMLStreamWriter(stringWriter);
+        xmlWriter.setPrefix(PREFIX, WML_NAMESPACE);
+        final StaxChartWriter fragmentWriter = new StaxChartWriter(xmlWriter, null, chartConfiguration, textWidth, true);
+        bodyWriter.write(fragmentWriter);
+        xmlWriter.flush();
+        xmlWriter.close();
+        return TableFragment.of(stringWriter.toString(), fragmentWriter.bookmarkId, fragmentWriter.rowCount);
+    }
+
+    /**
+     * Splices given fragment into the document, bookmarks of the fragment are renumbered.
+     */
+    void writeFragment(TableFragment fragment) throws XMLStreamException {
+        flushPending();
+        try {
+            fragment.write(rawOutputStream, bookmarkId);
+        } catch (IOException ex) {
+            throw new XMLStreamException("Failed to write fragment", ex);
+        }
+        bookmarkId += fragment.getNumOfBookmarks();
+        rowCount += fragment.getRowCount();
+    }
+
+    /**
+     * Writes given UTF-8 encoded markup as is, bookmark ids of the markup must not overlap with the ids of this writer.
+     */
+    void writeRaw(byte[] markup) throws XMLStreamException {
+        flushPending();
+        try {
+            rawOutputStream.write(markup);
+        } catch (IOException ex) {
+            throw new XMLStreamException("Failed to write markup", ex);
+        }
+    }
+
+    private void flushPending() throws XMLStreamException {
+        // closes pending start tag, if any, before writing directly to underlying stream
+        writer.writeCharacters("");
+        writer.flush();
+    }
+
+    // Document level content
+
+    /**
+     * Writes an empty bookmark used to find content of the document when it is updated.
+     */
+    void writeMarker(String name) throws XMLStreamException {
+        writeBookmarkStart(name);
+        writeBookmarkEnd();
+    }
+
+    void writeToc(String tocHeading, String bookmarkName, String instruction, String tocStyle) throws XMLStreamException {
+        writeTocHeading(tocHeading, bookmarkName);
+        start("p");
+        start("pPr");
+        emptyElement("pStyle", "val", tocStyle);
+        end();
+        writeFieldChar("begin", true);
+        writeInstruction(instruction);
+        writeFieldChar("separate", false);
+        writeFieldChar("end", false);
+        end();
+    }
+
+    /**
+     * Writes table of contents with given entries as result of the TOC field, entries link to their charts and have
+     * no page numbers, field is not marked dirty so that document can be displayed without updating fields.
+     */
+    void writeToc(String tocHeading, String bookmarkName, String instruction, String tocStyle, List<TocEntry> entries)
+            throws XMLStreamException {
+        if (entries.isEmpty()) {
+            writeToc(tocHeading, bookmarkName, instruction, tocStyle);
+            return;
+        }
+        writeTocHeading(tocHeading, bookmarkName);
+        for (int index = 0; index < entries.size(); index++) {
+            final TocEntry entry = entries.get(index);
+            start("p");
+            start("pPr");
+            emptyElement("pStyle", "val", tocStyle);
+            emptyElement("bidi");
+            end();
+            if (index == 0) {
+                writeFieldChar("begin", false);
+                writeInstruction(instruction);
+                writeFieldChar("separate", false);
+            }
+            start("hyperlink");
+            attribute("anchor", entry.getAnchor());
+            attribute("history", "1");
+            writeArabicRun(null, entry.getTitle(), false);
+            end();
+            if (index == entries.size() - 1) {
+                writeFieldChar("end", false);
+            }
+            end();
+        }
+    }
+
+    private void writeTocHeading(String tocHeading, String bookmarkName) throws XMLStreamException {
+        start("p");
+        start("pPr");
+        emptyElement("pStyle", "val", TOC_HEADING_STYLE);
+        end();
+        writeBookmarkStart(bookmarkName);
+        start("r");
+        writeText(tocHeading, false);
+        end();
+        writeBookmarkEnd();
+        end();
+    }
+
+    private void writeFieldChar(String fieldCharType, boolean dirty) throws XMLStreamException {
+        start("r");
+        if (dirty) {
+            emptyElement("fldChar", "fldCharType", fieldCharType, "dirty", "true");
+        } else {
+            emptyElement("fldChar", "fldCharType", fieldCharType);
+        }
+        end();
+    }
+
+    private void writeInstruction(String instruction) throws XMLStreamException {
+        start("r");
+        start("instrText");
+        writer.writeAttribute("xml", XMLConstants.XML_NS_URI, "space", "preserve");
+        writer.writeCharacters(instruction);
+        end();
+        end();
+    }
+
+    void writeBackLink(String bookmarkName, String label) throws XMLStreamException {
+        start("p");
+        start("hyperlink");
+        attribute("anchor", bookmarkName);
+        attribute("history", "1");
+        start("r");
+        start("rPr");
+        emptyElement("rStyle", "val", "Hyperlink");
+        end();
+        writeText(label, false);
+        end();
+        end();
+        end();
+    }
+
+    void writePageBreak() throws XMLStreamException {
+        start("p");
+        start("r");
+        emptyElement("br", "type", "page");
+        end();
+        end();
+    }
+
+    // Abbreviated conjugation
+
+    void writeAbbreviatedConjugation(AbbreviatedConjugation... abbreviatedConjugations) throws XMLStreamException {
+        if (isEmpty(abbreviatedConjugations)) {
+            return;
+        }
+        startTable(ABBREVIATED_COLUMN_WIDTHS);
+        for (AbbreviatedConjugation abbreviatedConjugation : abbreviatedConjugations) {
+            if (!chartConfiguration.isOmitTitle()) {
+                writeTitleRow(abbreviatedConjugation);
+            }
+            if (!chartConfiguration.isOmitHeader()) {
+                writeHeaderRow(abbreviatedConjugation.getConjugationHeader());
+            }
+            writeActiveLineRow(abbreviatedConjugation);
+            if (abbreviatedConjugation.hasPassiveLine()) {
+                writePassiveLineRow(abbreviatedConjugation);
+            }
+            writeCommandLineRow(abbreviatedConjugation);
+            writeAdverbLineRow(abbreviatedConjugation);
+            writeSeparatorRow(4);
+        }
+        end();
+    }
+
+    private void writeTitleRow(AbbreviatedConjugation abbreviatedConjugation) throws XMLStreamException {
+        start("tr");
+        startCell(0, 4, true, null);
+        writeTitlePara(abbreviatedConjugation.getConjugationHeader().getTitle());
+        end();
+        end();
+
+        // if there is no header and if there is translation then display translation
+        final String translation = abbreviatedConjugation.getConjugationHeader().getTranslation();
+        if (chartConfiguration.isOmitHeader() && StringUtils.isNotBlank(translation)) {
+            start("tr");
+            startCell(0, 4, true, null);
+            writeTranslationPara(translation);
+            end();
+            end();
+            start("tr");
+            startCell(0, 4, true, null);
+            writeNoSpacingPara();
+            end();
+            end();
+        }
+    }
+
+    private void writeTitlePara(String title) throws XMLStreamException {
+        start("p");
+        start("pPr");
+        emptyElement("pStyle", "val", ARABIC_HEADING_STYLE);
+        emptyElement("bidi");
+        emptyElement("rPr");
+        end();
+        final String bookmarkName = "_Chart" + getBookmarkId();
+        writeBookmarkStart(bookmarkName);
+        writeArabicRun(null, title, false);
+        writeBookmarkEnd();
+        end();
+    }
+
+    private void writeHeaderRow(ConjugationHeader conjugationHeader) throws XMLStreamException {
+        start("tr");
+        startCell(0, 2, false, null);
+        emptyElement("p");
+        writeTranslationPara(conjugationHeader.getTranslation());
+        end();
+        startCell(2, 2, false, null);
+        writeHeaderLabelPara(conjugationHeader.getTypeLabel1());
+        writeHeaderLabelPara(conjugationHeader.getTypeLabel2());
+        writeHeaderLabelPara(conjugationHeader.getTypeLabel3());
+        end();
+        end();
+    }
+
+    private void writeTranslationPara(String translation) throws XMLStreamException {
+        final String translationFontFamily = chartConfiguration.getTranslationFontFamily();
+        final String translationFontSize = String.valueOf(chartConfiguration.getTranslationFontSize() * 2);
+        start("p");
+        start("pPr");
+        emptyElement("jc", "val", "center");
+        start("rPr");
+        emptyElement("rFonts", "ascii", translationFontFamily, "hAnsi", translationFontFamily);
+        end();
+        end();
+        start("r");
+        start("rPr");
+        emptyElement("rFonts", "ascii", translationFontFamily, "hAnsi", translationFontFamily);
+        emptyElement("sz", "val", translationFontSize);
+        emptyElement("szCs", "val", translationFontSize);
+        end();
+        writeText((translation == null) ? "" : translation, false);
+        end();
+        end();
+    }
+
+    private void writeHeaderLabelPara(String label) throws XMLStreamException {
+        final String arabicFontSize = String.valueOf(chartConfiguration.getArabicFontSize() * 2);
+        start("p");
+        start("pPr");
+        emptyElement("pStyle", "val", ARABIC_NORMAL_STYLE);
+        emptyElement("bidi");
+        start("rPr");
+        emptyElement("sz", "val", arabicFontSize);
+        emptyElement("szCs", "val", arabicFontSize);
+        end();
+        end();
+        start("r");
+        start("rPr");
+        emptyElement("rFonts", "hint", "cs");
+        emptyElement("sz", "val", arabicFontSize);
+        emptyElement("szCs", "val", arabicFontSize);
+        end();
+        writeText(label, false);
+        end();
+        end();
+    }
+
+    private void writeActiveLineRow(AbbreviatedConjugation abbreviatedConjugation) throws XMLStreamException {
+        start("tr");
+        writeCell(0, 1, PARTICIPLE_PREFIX_TEXT, abbreviatedConjugation.getActiveParticipleMasculine().getLabel());
+        writeCell(1, 1, null, getMultiWord(abbreviatedConjugation.getVerbalNouns()));
+        writeCell(2, 1, null, abbreviatedConjugation.getPresentTense().getLabel());
+        writeCell(3, 1, null, abbreviatedConjugation.getPastTense().getLabel());
+        end();
+    }
+
+    private void writePassiveLineRow(AbbreviatedConjugation abbreviatedConjugation) throws XMLStreamException {
+        start("tr");
+        writeCell(0, 1, PARTICIPLE_PREFIX_TEXT, abbreviatedConjugation.getPassiveParticipleMasculine().getLabel());
+        writeCell(1, 1, null, getMultiWord(abbreviatedConjugation.getVerbalNouns()));
+        writeCell(2, 1, null, abbreviatedConjugation.getPresentPassiveTense().getLabel());
+        writeCell(3, 1, null, abbreviatedConjugation.getPastPassiveTense().getLabel());
+        end();
+    }
+
+    private void writeCommandLineRow(AbbreviatedConjugation abbreviatedConjugation) throws XMLStreamException {
+        start("tr");
+        writeCell(0, 2, FORBIDDING_PREFIX_TEXT, abbreviatedConjugation.getForbidding().getLabel());
+        writeCell(2, 2, COMMAND_PREFIX_TEXT, abbreviatedConjugation.getImperative().getLabel());
+        end();
+    }
+
+    private void writeAdverbLineRow(AbbreviatedConjugation abbreviatedConjugation) throws XMLStreamException {
+        start("tr");
+        writeCell(0, 4, ADVERB_PREFIX_TEXT, getMultiWord(abbreviatedConjugation.getAdverbs()));
+        end();
+    }
+
+    private void writeCell(int columnIndex, int gridSpan, String prefixText, String value) throws XMLStreamException {
+        startCell(columnIndex, gridSpan, false, null);
+        writeArabicTextP(prefixText, value, ARABIC_TABLE_CENTER_STYLE);
+        end();
+    }
+
+    // Detailed conjugation
+
+    void writeDetailedConjugation(DetailedConjugation... detailedConjugations) throws XMLStreamException {
+        if (isEmpty(detailedConjugations)) {
+            return;
+        }
+        startTable(DETAILED_COLUMN_WIDTHS);
+        for (DetailedConjugation detailedConjugation : detailedConjugations) {
+            writeTensePair(detailedConjugation.getPresentTense(), detailedConjugation.getPastTense());
+            writeNounPair(detailedConjugation.getActiveParticipleFeminine(), detailedConjugation.getActiveParticipleMasculine());
+            writeNounPairs(detailedConjugation.getVerbalNouns());
+            writeTensePair(detailedConjugation.getPresentPassiveTense(), detailedConjugation.getPastPassiveTense());
+            writeNounPair(detailedConjugation.getPassiveParticipleFeminine(), detailedConjugation.getPassiveParticipleMasculine());
+            writeTensePair(detailedConjugation.getForbidding(), detailedConjugation.getImperative());
+            writeNounPairs(detailedConjugation.getAdverbs());
+        }
+        end();
+    }
+
+    private void writeTensePair(VerbConjugationGroup left, VerbConjugationGroup right) throws XMLStreamException {
+        writeCaptionRow((left == null) ? null : left.getTermType(), (right == null) ? null : right.getTermType());
+        writeConjugationRow((left == null) ? null : left.getMasculineThirdPerson(),
+                (right == null) ? null : right.getMasculineThirdPerson());
+        writeConjugationRow((left == null) ? null : left.getFeminineThirdPerson(),
+                (right == null) ? null : right.getFeminineThirdPerson());
+        writeConjugationRow((left == null) ? null : left.getMasculineSecondPerson(),
+                (right == null) ? null : right.getMasculineSecondPerson());
+        writeConjugationRow((left == null) ? null : left.getFeminineSecondPerson(),
+                (right == null) ? null : right.getFeminineSecondPerson());
+        writeConjugationRow((left == null) ? null : left.getFirstPerson(), (right == null) ? null : right.getFirstPerson());
+        writeSeparatorRow(NUM_OF_DETAILED_COLUMNS);
+    }
+
+    private void writeNounPair(NounConjugationGroup left, NounConjugationGroup right) throws XMLStreamException {
+        writeCaptionRow((left == null) ? null : left.getTermType(), (right == null) ? null : right.getTermType());
+        writeConjugationRow((left == null) ? null : left.getNominative(), (right == null) ? null : right.getNominative());
+        writeConjugationRow((left == null) ? null : left.getAccusative(), (right == null) ? null : right.getAccusative());
+        writeConjugationRow((left == null) ? null : left.getGenitive(), (right == null) ? null : right.getGenitive());
+        writeSeparatorRow(NUM_OF_DETAILED_COLUMNS);
+    }
+
+    private void writeNounPairs(NounConjugationGroup[] conjugationPairs) throws XMLStreamException {
+        if (isEmpty(conjugationPairs)) {
+            return;
+        }
+        for (int index = 0; index < conjugationPairs.length; index += 2) {
+            final NounConjugationGroup right = conjugationPairs[index];
+            final NounConjugationGroup left = (index + 1 < conjugationPairs.length) ? conjugationPairs[index + 1] : null;
+            writeNounPair(left, right);
+        }
+    }
+
+    private void writeCaptionRow(SarfTermType leftSideCaption, SarfTermType rightSideCaption) throws XMLStreamException {
+        start("tr");
+        startCell(0, 3, leftSideCaption == null, null);
+        writeArabicTextP(null, FormattingPool.getLabel(leftSideCaption), ARABIC_CAPTION_STYLE);
+        end();
+        startCell(3, 1, true, "restart");
+        writeNoSpacingPara();
+        end();
+        startCell(4, 3, rightSideCaption == null, null);
+        writeArabicTextP(null, FormattingPool.getLabel(rightSideCaption), ARABIC_CAPTION_STYLE);
+        end();
+        end();
+    }
+
+    private void writeConjugationRow(ConjugationTuple left, ConjugationTuple right) throws XMLStreamException {
+        if (left == null && right == null) {
+            return;
+        }
+        start("tr");
+        writeConjugationColumns(left, 0);
+        startCell(3, 1, true, "continue");
+        writeNoSpacingPara();
+        end();
+        writeConjugationColumns(right, 4);
+        end();
+    }
+
+    private void writeConjugationColumns(ConjugationTuple conjugationTuple, int beginColumnIndex) throws XMLStreamException {
+        if (conjugationTuple == null) {
+            for (int columnIndex = beginColumnIndex; columnIndex < beginColumnIndex + 3; columnIndex++) {
+                startCell(columnIndex, 1, true, null);
+                writeArabicTextP(null, null, ARABIC_TABLE_CENTER_STYLE);
+                end();
+            }
+            return;
+        }
+        final String dualValue = conjugationTuple.getDual();
+        final int gridSpan = (dualValue == null) ? 2 : 1;
+        writeCell(beginColumnIndex, gridSpan, null, conjugationTuple.getPlural());
+        if (dualValue != null) {
+            writeCell(beginColumnIndex + 1, 1, null, dualValue);
+        }
+        writeCell(beginColumnIndex + 2, 1, null, conjugationTuple.getSingular());
+    }
+
+    // Common
+
+    private void writeSeparatorRow(int gridSpan) throws XMLStreamException {
+        start("tr");
+        startCell(0, gridSpan, true, null);
+        writeNoSpacingPara();
+        end();
+        end();
+    }
+
+    private void startTable(double[] columnWidths) throws XMLStreamException {
+        this.columnWidths = columnWidths;
+        start("tbl");
+        start("tblPr");
+        emptyElement("tblStyle", "val", "TableGrid");
+        emptyElement("bidiVisual");
+        emptyElement("tblW", "w", "5000", "type", "pct");
+        start("tblBorders");
+        for (String side : new String[]{"top", "left", "bottom", "right", "insideH", "insideV"}) {
+            emptyElement(side, "val", "single", "sz", "4", "space", "0", "color", "auto");
+        }
+        end();
+        emptyElement("tblLook", "val", "04A0");
+        end();
+        start("tblGrid");
+        for (double columnWidth : columnWidths) {
+            emptyElement("gridCol", "w", String.valueOf(Math.round(textWidth * columnWidth / 100)));
+        }
+        end();
+    }
+
+    private void startCell(int columnIndex, int gridSpan, boolean nilBorders, String verticalMerge) throws XMLStreamException {
+        double width = 0;
+        for (int index = columnIndex; index < columnIndex + gridSpan && index < columnWidths.length; index++) {
+            width += columnWidths[index];
+        }
+        start("tc");
+        start("tcPr");
+        emptyElement("tcW", "w", String.valueOf(Math.round(width * 50)), "type", "pct");
+        if (gridSpan > 1) {
+            emptyElement("gridSpan", "val", String.valueOf(gridSpan));
+        }
+        if (verticalMerge != null) {
+            emptyElement("vMerge", "val", verticalMerge);
+        }
+        if (nilBorders) {
+            start("tcBorders");
+            for (String side : new String[]{"top", "left", "bottom", "right"}) {
+                emptyElement(side, "val", "nil");
+            }
+            end();
+        }
+        end();
+    }
+
+    private void writeArabicTextP(String prefixText, String value, String pStyle) throws XMLStreamException {
+        start("p");
+        start("pPr");
+        emptyElement("pStyle", "val", pStyle);
+        end();
+        if (prefixText != null) {
+            writeArabicRun(ARABIC_PREFIX_STYLE, prefixText, true);
+        }
+        writeArabicRun(null, (value == null) ? WORD_SPACE_TEXT : value, false);
+        end();
+    }
+
+    private void writeArabicRun(String rStyle, String value, boolean preserveSpace) throws XMLStreamException {
+        start("r");
+        start("rPr");
+        if (rStyle != null) {
+            emptyElement("rStyle", "val", rStyle);
+        }
+        emptyElement("rFonts", "hint", "cs");
+        emptyElement("rtl");
+        end();
+        writeText(value, preserveSpace);
+        end();
+    }
+
+    private void writeNoSpacingPara() throws XMLStreamException {
+        start("p");
+        start("pPr");
+        emptyElement("pStyle", "val", NO_SPACING_STYLE);
+        end();
+        end();
+    }
+
+    private void writeText(String value, boolean preserveSpace) throws XMLStreamException {
+        start("t");
+        if (preserveSpace) {
+            writer.writeAttribute("xml", XMLConstants.XML_NS_URI, "space", "preserve");
+        }
+        if (value != null) {
+            writer.writeCharacters(value);
+        }
+        end();
+    }
+
+    private void writeBookmarkStart(String bookmarkName) throws XMLStreamException {
+        emptyElement("bookmarkStart", "id", getBookmarkId(), "name", bookmarkName);
+    }
+
+    private void writeBookmarkEnd() throws XMLStreamException {
+        emptyElement("bookmarkEnd", "id", getBookmarkId());
+        bookmarkId++;
+    }
+
+    /**
+     * @return current bookmark id, or its placeholder while capturing a fragment
+     */
+    private String getBookmarkId() {
+        return capture ? TableFragment.PLACEHOLDER_DELIMITER + String.valueOf(bookmarkId) +
+                TableFragment.PLACEHOLDER_DELIMITER : String.valueOf(bookmarkId);
+    }
+
+    // XML primitives
+
+    private void start(String localName) throws XMLStreamException {
+        if ("tr".equals(localName)) {
+            rowCount++;
+        }
+        writer.writeStartElement(PREFIX, localName, WML_NAMESPACE);
+    }
+
+    private void end() throws XMLStreamException {
+        writer.writeEndElement();
+    }
+
+    private void attribute(String localName, String value) throws XMLStreamException {
+        writer.writeAttribute(PREFIX, WML_NAMESPACE, localName, value);
+    }
+
+    private void emptyElement(String localName, String... attributes) throws XMLStreamException {
+        writer.writeEmptyElement(PREFIX, localName, WML_NAMESPACE);
+        for (int index = 0; index + 1 < attributes.length; index += 2) {
+            if (attributes[index + 1] != null) {
+                attribute(attributes[index], attributes[index + 1]);
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.alphasystem.app.morphologicalengine.docx;
+
+import com.alphasystem.morphologicalanalysis.morphology.model.ChartConfiguration;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+
+import static com.alphasystem.app.morphologicalengine.docx.StaxChartWriter.WML_NAMESPACE;
+
+/**
+ * Writes docx package by copying pre-compressed parts of a {@link DocumentSkeleton} and streaming
+ * <code>word/document.xml</code> through {@link StaxChartWriter}, section properties are copied from the skeleton.
+ *
+ * @author sali
+ */
+final class StaxDocumentWriter {
+
+    static final String DOCUMENT_ENTRY_NAME = "word/document.xml";
+    private static final XMLOutputFactory XML_OUTPUT_FACTORY = XMLOutputFactory.newFactory();
+
+    private final DocumentSkeleton skeleton;
+
+    StaxDocumentWriter(DocumentSkeleton skeleton) {
+        this.skeleton = skeleton;
+    }
+
+    void write(OutputStream outputStream, ChartConfiguration chartConfiguration, int compressionLevel,
+               BodyWriter bodyWriter) throws IOException, XMLStreamException {
+        write(outputStream, compressionLevel,
+                entryOutputStream -> writeDocumentPart(entryOutputStream, chartConfiguration, bodyWriter));
+    }
+
+    /**
+     * Writes docx package, <code>word/document.xml</code> is written by given writer as is.
+     */
+    void write(OutputStream outputStream, int compressionLevel, DocumentPartWriter documentPartWriter)
+            throws IOException, XMLStreamException {
+        try (ZipStreamWriter zipWriter = new ZipStreamWriter(outputStream, compressionLevel)) {
+            for (Map.Entry<String, ZipPart> entry : skeleton.getParts(compressionLevel).entrySet()) {
+                if (DOCUMENT_ENTRY_NAME.equals(entry.getKey())) {
+                    try (OutputStream entryOutputStream = zipWriter.startEntry(DOCUMENT_ENTRY_NAME)) {
+                        documentPartWriter.write(entryOutputStream);
+                    }
+                } else {
+                    zipWriter.writePart(entry.getValue());
+                }
+            }
+            zipWriter.finish();
+        }
+    }
+
+    /**
+     * Writes body content in the middle of <code>word/document.xml</code>, markup before and after it is written by
+     * the caller.
+     *
+     * @param firstBookmarkId id of the first bookmark written by given writer
+     */
+    void writeBodyContent(OutputStream outputStream, ChartConfiguration chartConfiguration, int firstBookmarkId,
+                          BodyWriter bodyWriter) throws XMLStreamException {
+        final XMLStreamWriter writer = XML_OUTPUT_FACTORY.createXMLStreamWriter(outputStream, "UTF-8");
+        writer.setPrefix("w", WML_NAMESPACE);
+        final StaxChartWriter chartWriter = new StaxChartWriter(writer, outputStream, chartConfiguration,
+                skeleton.getTextWidth());
+        chartWriter.setNextBookmarkId(firstBookmarkId);
+        bodyWriter.write(chartWriter);
+        writer.flush();
+        writer.close();
+    }
+
+    private void writeDocumentPart(OutputStream outputStream, ChartConfiguration chartConfiguration,
+                                   BodyWriter bodyWriter) throws XMLStreamException {
+        final XMLStreamWriter writer = XML_OUTPUT_FACTORY.createXMLStreamWriter(outputStream, "UTF-8");
+        writer.writeStartDocument("UTF-8", "1.0");
+        writer.writeStartElement("w", "document", WML_NAMESPACE);
+        writer.writeNamespace("w", WML_NAMESPACE);
+        writer.writeStartElement("w", "body", WML_NAMESPACE);
+        final StaxChartWriter chartWriter = new StaxChartWriter(writer, outputStream, chartConfiguration,
+                skeleton.getTextWidth());
+        bodyWriter.write(chartWriter);
+        chartWriter.writeRaw(skeleton.getSectionProperties());
+        writer.writeEndElement();
+        writer.writeEndElement();
+        writer.writeEndDocument();
+        writer.flush();
+        writer.close();
+    }
+
+    /**
+     * Writes content of the document body.
+     */
+    @FunctionalInterface
+    interface BodyWriter {
+
+        void write(StaxChartWriter chartWriter) throws XMLStreamException;
+    }
+
+    /**
+     * Writes complete content of <code>word/document.xml</code>.
+     */
+    @FunctionalInterface
+    interface DocumentPartWriter {
+
+        void write(OutputStream outputStream) throws IOException, XMLStreamException;
+    }
+}
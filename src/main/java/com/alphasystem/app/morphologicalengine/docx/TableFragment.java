@@ -0,0 +1,139 @@
+package com.alphasystem.app.morphologicalengine.docx;
+
+import com.alphasystem.morphologicalanalysis.morphology.model.ChartConfiguration;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * UTF-8 encoded WordprocessingML of a single conjugation table. Bookmark ids are left as placeholders and are renumbered
+ * every time the fragment is written, so that the same fragment can be spliced into any document.
+ *
+ * @author sali
+ */
+final class TableFragment {
+
+    /**
+     * Delimits a bookmark placeholder in captured XML, a character from private use area never written by charts.
+     */
+    static final char PLACEHOLDER_DELIMITER = '\uE000';
+
+    private final byte[][] segments;
+    private final int[] bookmarkOffsets;
+    private final int numOfBookmarks;
+    private final int rowCount;
+
+    private TableFragment(byte[][] segments, int[] bookmarkOffsets, int numOfBookmarks, int rowCount) {
+        this.segments = segments;
+        this.bookmarkOffsets = bookmarkOffsets;
+        this.numOfBookmarks = numOfBookmarks;
+        this.rowCount = rowCount;
+    }
+
+    /**
+     * @param xml            captured XML, bookmark ids are written as offsets enclosed in {@link #PLACEHOLDER_DELIMITER}
+     * @param numOfBookmarks number of bookmarks in the table
+     * @param rowCount       number of rows in the table
+     */
+    static TableFragment of(String xml, int numOfBookmarks, int rowCount) {
+        final String[] tokens = xml.split(String.valueOf(PLACEHOLDER_DELIMITER), -1);
+        final byte[][] segments = new byte[(tokens.length + 1) / 2][];
+        final int[] bookmarkOffsets = new int[tokens.length / 2];
+        for (int index = 0; index < tokens.length; index++) {
+            if (index % 2 == 0) {
+                segments[index / 2] = tokens[index].getBytes(StandardCharsets.UTF_8);
+            } else {
+                bookmarkOffsets[index / 2] = Integer.parseInt(tokens[index]);
+            }
+        }
+        return new TableFragment(segments, bookmarkOffsets, numOfBookmarks, rowCount);
+    }
+
+    /**
+     * Writes this fragment, bookmarks are numbered starting from given id.
+     */
+    void write(OutputStream outputStream, int firstBookmarkId) throws IOException {
+        for (int index = 0; index < segments.length; index++) {
+            outputStream.write(segments[index]);
+            if (index < bookmarkOffsets.length) {
+                outputStream.write(Integer.toString(firstBookmarkId + bookmarkOffsets[index]).getBytes(StandardCharsets.US_ASCII));
+            }
+        }
+    }
+
+    int getNumOfBookmarks() {
+        return numOfBookmarks;
+    }
+
+    int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Type of a conjugation table.
+     */
+    enum TableType {
+        ABBREVIATED, DETAILED
+    }
+
+    /**
+     * Identifies a fragment by the inputs of its chart and configuration fields used to write the table.
+     */
+    static final class Key {
+
+        private final ConjugationKey conjugationKey;
+        private final TableType tableType;
+        private final boolean landscape;
+        private final boolean omitTitle;
+        private final boolean omitHeader;
+        private final String translationFontFamily;
+        private final long translationFontSize;
+        private final long arabicFontSize;
+        private final int hashCode;
+
+        private Key(ConjugationKey conjugationKey, TableType tableType, ChartConfiguration chartConfiguration,
+                    boolean landscape) {
+            this.conjugationKey = conjugationKey;
+            this.tableType = tableType;
+            this.landscape = landscape;
+            this.omitTitle = chartConfiguration.isOmitTitle();
+            this.omitHeader = chartConfiguration.isOmitHeader();
+            this.translationFontFamily = chartConfiguration.getTranslationFontFamily();
+            this.translationFontSize = chartConfiguration.getTranslationFontSize();
+            this.arabicFontSize = chartConfiguration.getArabicFontSize();
+            this.hashCode = Objects.hash(conjugationKey, tableType, landscape, omitTitle, omitHeader,
+                    translationFontFamily, translationFontSize, arabicFontSize);
+        }
+
+        /**
+         * @return key or <code>null</code> if conjugation key is <code>null</code>
+         */
+        static Key of(ConjugationKey conjugationKey, TableType tableType, ChartConfiguration chartConfiguration,
+                      boolean landscape) {
+            return (conjugationKey == null) ? null : new Key(conjugationKey, tableType, chartConfiguration, landscape);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            final Key other = (Key) o;
+            return hashCode == other.hashCode && landscape == other.landscape && omitTitle == other.omitTitle &&
+                    omitHeader == other.omitHeader && translationFontSize == other.translationFontSize &&
+                    arabicFontSize == other.arabicFontSize && tableType == other.tableType &&
+                    Objects.equals(translationFontFamily, other.translationFontFamily) &&
+                    conjugationKey.equals(other.conjugationKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
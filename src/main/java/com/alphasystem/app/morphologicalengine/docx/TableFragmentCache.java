@@ -0,0 +1,98 @@
+package com.alphasystem.app.morphologicalengine.docx;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.lang.String.format;
+
+/**
+ * Thread safe, size bounded cache of serialized conjugation tables used by {@link OutputBackend#STAX}. Least recently
+ * used fragment is evicted once the cache reaches its maximum size. A cache with maximum size of zero is disabled.
+ *
+ * @author sali
+ */
+public class TableFragmentCache {
+
+    private final int maximumSize;
+    private final Map<TableFragment.Key, TableFragment> fragments;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    public TableFragmentCache(int maximumSize) {
+        this.maximumSize = Math.max(0, maximumSize);
+        this.fragments = new LinkedHashMap<TableFragment.Key, TableFragment>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<TableFragment.Key, TableFragment> eldest) {
+                final boolean evict = size() > TableFragmentCache.this.maximumSize;
+                if (evict) {
+                    evictionCount.incrementAndGet();
+                }
+                return evict;
+            }
+        };
+    }
+
+    public boolean isEnabled() {
+        return maximumSize > 0;
+    }
+
+    /**
+     * @return cached fragment or <code>null</code> if there is none
+     */
+    TableFragment get(TableFragment.Key key) {
+        TableFragment fragment;
+        synchronized (fragments) {
+            fragment = fragments.get(key);
+        }
+        if (fragment == null) {
+            missCount.incrementAndGet();
+        } else {
+            hitCount.incrementAndGet();
+        }
+        return fragment;
+    }
+
+    void put(TableFragment.Key key, TableFragment fragment) {
+        if (isEnabled()) {
+            synchronized (fragments) {
+                fragments.put(key, fragment);
+            }
+        }
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public int size() {
+        synchronized (fragments) {
+            return fragments.size();
+        }
+    }
+
+    public void clear() {
+        synchronized (fragments) {
+            fragments.clear();
+        }
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return format("TableFragmentCache{size=%s, maximumSize=%s, hits=%s, misses=%s, evictions=%s}", size(),
+                maximumSize, getHitCount(), getMissCount(), getEvictionCount());
+    }
+}
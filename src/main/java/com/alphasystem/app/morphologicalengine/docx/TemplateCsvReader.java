@@ -0,0 +1,157 @@
+package com.alphasystem.app.morphologicalengine.docx;
+
+import com.alphasystem.arabic.model.ArabicLetterType;
+import com.alphasystem.arabic.model.NamedTemplate;
+import com.alphasystem.morphologicalanalysis.morphology.model.ChartConfiguration;
+import com.alphasystem.morphologicalanalysis.morphology.model.ConjugationData;
+import com.alphasystem.morphologicalanalysis.morphology.model.ConjugationTemplate;
+import com.alphasystem.morphologicalanalysis.morphology.model.RootLetters;
+import com.alphasystem.morphologicalanalysis.morphology.model.support.NounOfPlaceAndTime;
+import com.alphasystem.morphologicalanalysis.morphology.model.support.VerbalNoun;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.lang.String.format;
+
+/**
+ * Reads templates from CSV, one entry per line with columns <code>output,template,root,translation,verbalNouns,adverbs</code>.
+ * <p>
+ * Entries with the same output form one template, in the order of their lines. Template is a {@link NamedTemplate}
+ * name, root is three or four {@link ArabicLetterType} names separated by spaces, verbal nouns and adverbs are
+ * optional {@link VerbalNoun} and {@link NounOfPlaceAndTime} names separated by spaces. Fields may be quoted with
+ * double quotes, empty lines, lines starting with <code>#</code> and a header line starting with <code>output</code>
+ * are skipped.
+ * </p>
+ *
+ * @author sali
+ */
+final class TemplateCsvReader {
+
+    private final ChartConfiguration chartConfiguration;
+
+    /**
+     * @param chartConfiguration configuration of all templates read
+     */
+    TemplateCsvReader(ChartConfiguration chartConfiguration) {
+        this.chartConfiguration = chartConfiguration;
+    }
+
+    /**
+     * @param path          CSV file to read
+     * @param baseDirectory directory relative outputs are resolved against
+     * @return templates by output path, in the order of their first entry
+     * @throws IOException              if unable to read the file
+     * @throws IllegalArgumentException if a line is invalid
+     */
+    Map<Path, ConjugationTemplate> read(Path path, Path baseDirectory) throws IOException {
+        final Map<Path, ConjugationTemplate> templates = new LinkedHashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (StringUtils.isBlank(line) || line.startsWith("#") || (lineNumber == 1 && line.startsWith("output"))) {
+                    continue;
+                }
+                final List<String> fields = split(line);
+                try {
+                    final Path output = baseDirectory.resolve(field(fields, 0));
+                    templates.computeIfAbsent(output, key -> newTemplate()).withData(toConjugationData(fields));
+                } catch (RuntimeException ex) {
+                    throw new IllegalArgumentException(format("Invalid entry at %s:%s, %s", path, lineNumber,
+                            ex.getMessage()), ex);
+                }
+            }
+        }
+        return templates;
+    }
+
+    private ConjugationTemplate newTemplate() {
+        final ConjugationTemplate conjugationTemplate = new ConjugationTemplate();
+        conjugationTemplate.setChartConfiguration(chartConfiguration);
+        return conjugationTemplate;
+    }
+
+    private static ConjugationData toConjugationData(List<String> fields) {
+        final ConjugationData conjugationData = new ConjugationData();
+        conjugationData.setTemplate(NamedTemplate.valueOf(field(fields, 1)));
+        conjugationData.setRootLetters(toRootLetters(field(fields, 2)));
+        final String translation = field(fields, 3);
+        conjugationData.setTranslation(translation.isEmpty() ? null : translation);
+        final List<VerbalNoun> verbalNouns = new ArrayList<>();
+        for (String name : StringUtils.split(field(fields, 4))) {
+            verbalNouns.add(VerbalNoun.valueOf(name));
+        }
+        if (!verbalNouns.isEmpty()) {
+            conjugationData.setVerbalNouns(verbalNouns);
+        }
+        final List<NounOfPlaceAndTime> adverbs = new ArrayList<>();
+        for (String name : StringUtils.split(field(fields, 5))) {
+            adverbs.add(NounOfPlaceAndTime.valueOf(name));
+        }
+        if (!adverbs.isEmpty()) {
+            conjugationData.setAdverbs(adverbs);
+        }
+        return conjugationData;
+    }
+
+    private static RootLetters toRootLetters(String value) {
+        final String[] names = StringUtils.split(value);
+        final ArabicLetterType[] letters = new ArabicLetterType[names.length];
+        for (int index = 0; index < names.length; index++) {
+            letters[index] = ArabicLetterType.valueOf(names[index]);
+        }
+        if (letters.length == 3) {
+            return new RootLetters(letters[0], letters[1], letters[2]);
+        } else if (letters.length == 4) {
+            return new RootLetters(letters[0], letters[1], letters[2], letters[3]);
+        }
+        throw new IllegalArgumentException(format("root must have three or four letters: {%s}", value));
+    }
+
+    private static String field(List<String> fields, int index) {
+        return (index < fields.size()) ? fields.get(index).trim() : "";
+    }
+
+    /**
+     * Splits a line into fields, a quoted field may contain commas and escapes double quotes by doubling them.
+     */
+    static List<String> split(String line) {
+        final List<String> fields = new ArrayList<>();
+        final StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int index = 0; index < line.length(); index++) {
+            final char c = line.charAt(index);
+            if (quoted) {
+                if (c == '"') {
+                    if (index + 1 < line.length() && line.charAt(index + 1) == '"') {
+                        field.append('"');
+                        index++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,70 @@
+package com.alphasystem.app.morphologicalengine.docx;
+
+import com.alphasystem.morphologicalengine.model.AbbreviatedConjugation;
+import com.alphasystem.morphologicalengine.model.MorphologicalChart;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.lang.String.format;
+
+/**
+ * Entry of a pre-computed table of contents, title of a chart and name of the bookmark in front of the chart.
+ *
+ * @author sali
+ */
+final class TocEntry {
+
+    private final String title;
+    private final String anchor;
+
+    private TocEntry(String title, String anchor) {
+        this.title = title;
+        this.anchor = anchor;
+    }
+
+    /**
+     * @return name of the bookmark in front of the chart at given index
+     */
+    static String getAnchor(int index) {
+        return format("_TocChart%d", index);
+    }
+
+    /**
+     * @return entries of given charts, charts without title are skipped
+     */
+    static List<TocEntry> of(List<MorphologicalChart> morphologicalCharts) {
+        return of(morphologicalCharts, null);
+    }
+
+    /**
+     * @param duplicates if not <code>null</code> then charts of duplicate entries are skipped
+     * @return entries of given charts, charts without title are skipped
+     */
+    static List<TocEntry> of(List<MorphologicalChart> morphologicalCharts, DuplicateEntries duplicates) {
+        final List<TocEntry> entries = new ArrayList<>(morphologicalCharts.size());
+        for (int index = 0; index < morphologicalCharts.size(); index++) {
+            if (duplicates != null && duplicates.isDuplicate(index)) {
+                continue;
+            }
+            final MorphologicalChart morphologicalChart = morphologicalCharts.get(index);
+            final AbbreviatedConjugation abbreviatedConjugation = (morphologicalChart == null) ? null :
+                    morphologicalChart.getAbbreviatedConjugation();
+            final String title = (abbreviatedConjugation == null || abbreviatedConjugation.getConjugationHeader() == null)
+                    ? null : abbreviatedConjugation.getConjugationHeader().getTitle();
+            if (StringUtils.isNotBlank(title)) {
+                entries.add(new TocEntry(title, getAnchor(index)));
+            }
+        }
+        return entries;
+    }
+
+    String getTitle() {
+        return title;
+    }
+
+    String getAnchor() {
+        return anchor;
+    }
+}
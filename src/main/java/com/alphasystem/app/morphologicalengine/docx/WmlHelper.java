@@ -1,12 +1,13 @@
 package com.alphasystem.app.morphologicalengine.docx;
 
+import com.alphasystem.app.morphologicalengine.docx.GenerationEvent.Phase;
 import com.alphasystem.arabic.model.ArabicWord;
 import com.alphasystem.morphologicalanalysis.morphology.model.ChartConfiguration;
-import com.alphasystem.morphologicalanalysis.morphology.model.support.PageOrientation;
 import com.alphasystem.morphologicalengine.model.AbbreviatedRecord;
 import com.alphasystem.openxml.builder.wml.*;
 import com.alphasystem.openxml.builder.wml.table.TableAdapter;
-import com.alphasystem.util.IdGenerator;
+import org.docx4j.TraversalUtil;
+import org.docx4j.XmlUtils;
 import org.docx4j.jaxb.Context;
 import org.docx4j.openpackaging.exceptions.Docx4JException;
 import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
@@ -14,17 +15,25 @@ import org.docx4j.openpackaging.parts.WordprocessingML.DocumentSettingsPart;
 import org.docx4j.openpackaging.parts.WordprocessingML.MainDocumentPart;
 import org.docx4j.wml.*;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.Deflater;
 
 import static com.alphasystem.arabic.model.ArabicLetterType.*;
 import static com.alphasystem.arabic.model.ArabicLetters.WORD_SPACE;
 import static com.alphasystem.arabic.model.ArabicWord.getWord;
 import static com.alphasystem.openxml.builder.wml.WmlAdapter.*;
 import static com.alphasystem.openxml.builder.wml.WmlBuilderFactory.*;
-import static com.alphasystem.util.IdGenerator.nextId;
+import static java.lang.String.format;
 import static org.apache.commons.lang3.ArrayUtils.isNotEmpty;
 import static org.docx4j.wml.JcEnumeration.CENTER;
-import static org.docx4j.wml.STHint.CS;
 import static org.docx4j.wml.STThemeColor.ACCENT_1;
 
 /**
@@ -35,22 +44,87 @@ public final class WmlHelper {
     static final String ARABIC_HEADING_STYLE = "Arabic-Heading1";
     static final String ARABIC_NORMAL_STYLE = "Arabic-Normal";
     static final String ARABIC_CAPTION_STYLE = "Arabic-Caption";
-    private static final String ARABIC_TABLE_CENTER_STYLE = "Arabic-Table-Center";
-    private static final String ARABIC_PREFIX_STYLE = "Arabic-PrefixChar";
-    private static final String NO_SPACING_STYLE = "NoSpacing";
+    static final String ARABIC_TABLE_CENTER_STYLE = "Arabic-Table-Center";
+    static final String ARABIC_PREFIX_STYLE = "Arabic-PrefixChar";
+    static final String NO_SPACING_STYLE = "NoSpacing";
+    static final String TOC_HEADING_STYLE = "TOCHeading";
     static final ArabicWord PARTICIPLE_PREFIX = getWord(FA, HA, WAW);
     static final ArabicWord COMMAND_PREFIX = getWord(ALIF, LAM, ALIF_HAMZA_ABOVE, MEEM, RA, SPACE, MEEM, NOON, HA);
     static final ArabicWord FORBIDDING_PREFIX = getWord(WAW, NOON, HA, YA, SPACE, AIN, NOON, HA);
     static final ArabicWord ADVERB_PREFIX = getWord(WAW, ALIF, LAM, DTHA, RA, FA, SPACE, MEEM, NOON, HA);
+    static final String PARTICIPLE_PREFIX_TEXT = PARTICIPLE_PREFIX.toUnicode() + " ";
+    static final String COMMAND_PREFIX_TEXT = COMMAND_PREFIX.toUnicode() + " ";
+    static final String FORBIDDING_PREFIX_TEXT = FORBIDDING_PREFIX.toUnicode() + " ";
+    static final String ADVERB_PREFIX_TEXT = ADVERB_PREFIX.toUnicode() + " ";
+    static final String WORD_SPACE_TEXT = WORD_SPACE.toUnicode();
+    private static final String WORD_SEPARATOR = " " + WAW.toUnicode() + " ";
+
+    private static final DocumentSkeletonCache SKELETON_CACHE = new DocumentSkeletonCache(16);
 
     public static void createDocument(Path path, DocumentAdapter documentAdapter) throws Docx4JException {
-        final ChartConfiguration chartConfiguration = documentAdapter.getChartConfiguration();
-        final String fontFamily = chartConfiguration.getArabicFontFamily();
-        long normalFontSize = chartConfiguration.getArabicFontSize() * 2;
-        long headingFontSize = chartConfiguration.getHeadingFontSize() * 2;
-        final PageOrientation orientation = chartConfiguration.getPageOption().getOrientation();
-        boolean landscape = PageOrientation.LANDSCAPE.equals(orientation);
+        createDocument(path, documentAdapter, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * @param compressionLevel {@link Deflater} compression level, <code>0</code> writes parts without compression
+     */
+    public static void createDocument(Path path, DocumentAdapter documentAdapter, int compressionLevel)
+            throws Docx4JException {
+        try (OutputStream outputStream = Files.newOutputStream(path)) {
+            createDocument(outputStream, documentAdapter, compressionLevel);
+        } catch (IOException ex) {
+            throw new Docx4JException(format("Failed to save document {%s}", path), ex);
+        }
+    }
 
+    /**
+     * Writes document to given stream, stream is flushed but not closed.
+     *
+     * @param compressionLevel {@link Deflater} compression level, <code>0</code> writes parts without compression
+     */
+    public static void createDocument(OutputStream outputStream, DocumentAdapter documentAdapter, int compressionLevel)
+            throws Docx4JException {
+        createDocument(outputStream, documentAdapter, compressionLevel, GenerationMonitor.NO_OP);
+    }
+
+    static void createDocument(OutputStream outputStream, DocumentAdapter documentAdapter, int compressionLevel,
+                               GenerationMonitor monitor) throws Docx4JException {
+        GenerationMonitor.Timer timer = monitor.start();
+        final DocumentSkeleton skeleton = getSkeleton(documentAdapter.getChartConfiguration());
+        final WordprocessingMLPackage wordMLPackage = skeleton.newPackage();
+        monitor.phaseCompleted(Phase.PACKAGE_SETUP, timer, -1, 0, -1L);
+
+        documentAdapter.buildDocument(wordMLPackage.getMainDocumentPart(), monitor);
+
+        timer = monitor.start();
+        final FlightEvents.SaveDocument event = FlightEvents.beginSaveDocument();
+        try {
+            final CountingOutputStream countingOutputStream = new CountingOutputStream(
+                    new BufferedOutputStream(outputStream, 64 * 1024));
+            PackageWriter.write(wordMLPackage, skeleton, compressionLevel, countingOutputStream);
+            countingOutputStream.flush();
+            monitor.phaseCompleted(Phase.SAVE, timer, -1, 0, countingOutputStream.getCount());
+            if (event.shouldCommit()) {
+                event.commit(compressionLevel, countingOutputStream.getCount());
+            }
+        } catch (IOException ex) {
+            throw new Docx4JException("Failed to save document", ex);
+        }
+    }
+
+    /**
+     * Creates new package for given configuration from cached skeleton.
+     */
+    static WordprocessingMLPackage createPackage(ChartConfiguration chartConfiguration) throws Docx4JException {
+        return getSkeleton(chartConfiguration).newPackage();
+    }
+
+    static DocumentSkeleton getSkeleton(ChartConfiguration chartConfiguration) throws Docx4JException {
+        return SKELETON_CACHE.get(chartConfiguration);
+    }
+
+    static WordprocessingMLPackage buildPackage(String fontFamily, long normalFontSize, long headingFontSize,
+                                                boolean landscape) throws Docx4JException {
         final WordprocessingMLPackage wordMLPackage = WmlPackageBuilder.createPackage(landscape).styles(
                 createStyles(fontFamily, normalFontSize, headingFontSize)).getPackage();
         final MainDocumentPart mainDocumentPart = wordMLPackage.getMainDocumentPart();
@@ -65,21 +139,20 @@ public final class WmlHelper {
         }
 
         updateDocumentCompatibility(mainDocumentPart);
-        documentAdapter.buildDocument(mainDocumentPart);
-        save(path.toFile(), wordMLPackage);
+        return wordMLPackage;
     }
 
-    static void addSeparatorRow(TableAdapter tableAdapter, Integer gridSpan) {
+    static void addSeparatorRow(TableAdapter tableAdapter, RenderContext context, Integer gridSpan) {
         final TcPr tcPr = getTcPrBuilder().withTcBorders(getNilBorders()).getObject();
         tableAdapter.startRow()
-                .addColumn(0, gridSpan, tcPr, createNoSpacingStyleP())
+                .addColumn(0, gridSpan, tcPr, createNoSpacingStyleP(context))
                 .endRow();
     }
 
-    static P createNoSpacingStyleP() {
-        PPr ppr = getPPrBuilder().withPStyle(NO_SPACING_STYLE).getObject();
-        return getPBuilder().withRsidR(nextId()).withRsidP(nextId())
-                .withRsidRDefault(nextId()).withPPr(ppr).getObject();
+    static P createNoSpacingStyleP(RenderContext context) {
+        PPr ppr = context.getFormattingPool().getParagraphProperties(NO_SPACING_STYLE);
+        return getPBuilder().withRsidR(context.getIds().nextId()).withRsidP(context.getIds().nextId())
+                .withRsidRDefault(context.getIds().nextId()).withPPr(ppr).getObject();
     }
 
     static String getMultiWord(AbbreviatedRecord[] words) {
@@ -87,59 +160,167 @@ public final class WmlHelper {
         if (isNotEmpty(words)) {
             builder.append(words[0].getLabel());
             for (int i = 1; i < words.length; i++) {
-                builder.append(" ").append(WAW.toUnicode()).append(" ").append(words[i].getLabel());
+                builder.append(WORD_SEPARATOR).append(words[i].getLabel());
             }
         }
         return builder.toString();
     }
 
-    static P getArabicTextP(String value) {
-        return getArabicTextPWithStyle(value, ARABIC_TABLE_CENTER_STYLE);
+    static P getArabicTextP(RenderContext context, String value) {
+        return getArabicTextPWithStyle(context, value, ARABIC_TABLE_CENTER_STYLE);
     }
 
-    private static P getArabicTextP(ArabicWord prefix, String value, String pStyle, String prefixStyle) {
-        if (prefix == null) {
-            return getArabicTextPWithStyle(value, pStyle);
+    private static P getArabicTextP(RenderContext context, String prefixText, String value, String pStyle,
+                                    String prefixStyle) {
+        if (prefixText == null) {
+            return getArabicTextPWithStyle(context, value, pStyle);
         }
-        String rsidr = nextId();
-        PPr ppr = getPPrBuilder().withPStyle(pStyle).getObject();
-
+        String rsidr = context.getIds().nextId();
+        PPr ppr = context.getFormattingPool().getParagraphProperties(pStyle);
 
-        RFonts rFonts = getRFontsBuilder().withHint(CS).getObject();
-        RPr rpr = getRPrBuilder().withRFonts(rFonts).withRStyle(prefixStyle).withRtl(BOOLEAN_DEFAULT_TRUE_TRUE).getObject();
-        Text text = getText(prefix.toUnicode() + " ", "preserve");
-        String id = nextId();
-        R prefixRun = getRBuilder().withRsidRPr(id).withRPr(rpr).addContent(text).getObject();
+        Text text = getText(prefixText, "preserve");
+        String id = context.getIds().nextId();
+        R prefixRun = getRBuilder().withRsidRPr(id)
+                .withRPr(context.getFormattingPool().getPrefixRunProperties(prefixStyle))
+                .addContent(text).getObject();
 
-        String word = (value == null) ? WORD_SPACE.toUnicode() : value;
+        String word = (value == null) ? WORD_SPACE_TEXT : value;
         text = getText(word, null);
-        id = nextId();
-        rFonts = getRFontsBuilder().withHint(CS).getObject();
-        rpr = getRPrBuilder().withRFonts(rFonts).withRtl(BOOLEAN_DEFAULT_TRUE_TRUE).getObject();
-        R mainRun = getRBuilder().withRsidRPr(id).withRPr(rpr).addContent(text).getObject();
+        id = context.getIds().nextId();
+        R mainRun = getRBuilder().withRsidRPr(id).withRPr(context.getFormattingPool().getArabicRunProperties())
+                .addContent(text).getObject();
 
         return getPBuilder().withRsidR(rsidr).withRsidRDefault(rsidr).withRsidRPr(id).withRsidP(id).withPPr(ppr)
                 .addContent(prefixRun, mainRun)
                 .getObject();
     }
 
-    static P getArabicTextP(ArabicWord prefix, String value) {
-        return getArabicTextP(prefix, value, ARABIC_TABLE_CENTER_STYLE, ARABIC_PREFIX_STYLE);
+    /**
+     * @param prefixText pre-computed prefix text including trailing space, such as {@link #PARTICIPLE_PREFIX_TEXT}
+     */
+    static P getArabicTextP(RenderContext context, String prefixText, String value) {
+        return getArabicTextP(context, prefixText, value, ARABIC_TABLE_CENTER_STYLE, ARABIC_PREFIX_STYLE);
     }
 
-    static P getArabicTextPWithStyle(String value, String pStyle) {
-        String rsidr = nextId();
-        PPr ppr = getPPrBuilder().withPStyle(pStyle).getObject();
-        final RFonts rFonts = getRFontsBuilder().withHint(CS).getObject();
-        RPr rpr = getRPrBuilder().withRFonts(rFonts).withRtl(BOOLEAN_DEFAULT_TRUE_TRUE).getObject();
-        String word = (value == null) ? WORD_SPACE.toUnicode() : value;
+    static P getArabicTextPWithStyle(RenderContext context, String value, String pStyle) {
+        String rsidr = context.getIds().nextId();
+        PPr ppr = context.getFormattingPool().getParagraphProperties(pStyle);
+        String word = (value == null) ? WORD_SPACE_TEXT : value;
         Text text = getText(word, null);
-        String id = nextId();
-        R r = getRBuilder().withRsidRPr(id).withRPr(rpr).addContent(text).getObject();
+        String id = context.getIds().nextId();
+        R r = getRBuilder().withRsidRPr(id).withRPr(context.getFormattingPool().getArabicRunProperties())
+                .addContent(text).getObject();
         return getPBuilder().withRsidR(rsidr).withRsidRDefault(rsidr).withRsidRPr(id).withRsidP(id).withPPr(ppr).addContent(r)
                 .getObject();
     }
 
+    /**
+     * Creates table of contents with given entries as result of the TOC field, entries link to their charts and have
+     * no page numbers, field is not marked dirty so that document can be displayed without updating fields.
+     *
+     * @param entries entries of the table of contents, must not be empty
+     * @return heading paragraph followed by one paragraph per entry
+     */
+    static List<P> getToc(RenderContext context, String tocHeading, String bookmarkName, String instruction,
+                          String tocStyle, List<TocEntry> entries) {
+        final ObjectFactory objectFactory = Context.getWmlObjectFactory();
+        final List<P> paragraphs = new ArrayList<>(entries.size() + 1);
+
+        final BigInteger bookmarkId = context.nextBookmarkId();
+        final P headingP = getPBuilder().withPPr(context.getFormattingPool().getParagraphProperties(TOC_HEADING_STYLE))
+                .getObject();
+        headingP.getContent().add(objectFactory.createPBookmarkStart(getBookmarkStart(bookmarkId, bookmarkName)));
+        headingP.getContent().add(getRBuilder().addContent(getText(tocHeading)).getObject());
+        headingP.getContent().add(objectFactory.createPBookmarkEnd(getBookmarkEnd(bookmarkId)));
+        paragraphs.add(headingP);
+
+        final PPr ppr = getPPrBuilder().withPStyle(tocStyle).withBidi(BOOLEAN_DEFAULT_TRUE_TRUE).getObject();
+        for (int index = 0; index < entries.size(); index++) {
+            final TocEntry entry = entries.get(index);
+            final P p = getPBuilder().withPPr(ppr).getObject();
+            if (index == 0) {
+                p.getContent().add(getFieldCharR(STFldCharType.BEGIN));
+                final Text instructionText = objectFactory.createText();
+                instructionText.setValue(instruction);
+                instructionText.setSpace("preserve");
+                p.getContent().add(getRBuilder().addContent(objectFactory.createRInstrText(instructionText)).getObject());
+                p.getContent().add(getFieldCharR(STFldCharType.SEPARATE));
+            }
+            final P.Hyperlink hyperlink = objectFactory.createPHyperlink();
+            hyperlink.setAnchor(entry.getAnchor());
+            hyperlink.setHistory(true);
+            hyperlink.getContent().add(getRBuilder().withRPr(context.getFormattingPool().getArabicRunProperties())
+                    .addContent(getText(entry.getTitle())).getObject());
+            p.getContent().add(hyperlink);
+            if (index == entries.size() - 1) {
+                p.getContent().add(getFieldCharR(STFldCharType.END));
+            }
+            paragraphs.add(p);
+        }
+        return paragraphs;
+    }
+
+    /**
+     * @return start and end of an empty bookmark placed directly in the body
+     */
+    static List<Object> getBodyBookmark(RenderContext context, String bookmarkName) {
+        final ObjectFactory objectFactory = Context.getWmlObjectFactory();
+        final BigInteger bookmarkId = context.nextBookmarkId();
+        return Arrays.asList(objectFactory.createBodyBookmarkStart(getBookmarkStart(bookmarkId, bookmarkName)),
+                objectFactory.createBodyBookmarkEnd(getBookmarkEnd(bookmarkId)));
+    }
+
+    /**
+     * Encloses content of given paragraph in a bookmark with given name.
+     */
+    static void addBookmark(RenderContext context, P p, String bookmarkName) {
+        final ObjectFactory objectFactory = Context.getWmlObjectFactory();
+        final BigInteger bookmarkId = context.nextBookmarkId();
+        p.getContent().add(0, objectFactory.createPBookmarkStart(getBookmarkStart(bookmarkId, bookmarkName)));
+        p.getContent().add(objectFactory.createPBookmarkEnd(getBookmarkEnd(bookmarkId)));
+    }
+
+    /**
+     * @return greatest id of bookmarks in given content, <code>-1</code> if content has no bookmarks
+     */
+    static int getLastBookmarkId(List<Object> content) {
+        final int[] lastBookmarkId = {-1};
+        new TraversalUtil(content, new TraversalUtil.CallbackImpl() {
+            @Override
+            public List<Object> apply(Object o) {
+                final Object value = XmlUtils.unwrap(o);
+                if (value instanceof CTBookmark) {
+                    final BigInteger id = ((CTBookmark) value).getId();
+                    if (id != null) {
+                        lastBookmarkId[0] = Math.max(lastBookmarkId[0], id.intValue());
+                    }
+                }
+                return null;
+            }
+        });
+        return lastBookmarkId[0];
+    }
+
+    private static CTBookmark getBookmarkStart(BigInteger bookmarkId, String bookmarkName) {
+        final CTBookmark bookmark = Context.getWmlObjectFactory().createCTBookmark();
+        bookmark.setId(bookmarkId);
+        bookmark.setName(bookmarkName);
+        return bookmark;
+    }
+
+    private static CTMarkupRange getBookmarkEnd(BigInteger bookmarkId) {
+        final CTMarkupRange markupRange = Context.getWmlObjectFactory().createCTMarkupRange();
+        markupRange.setId(bookmarkId);
+        return markupRange;
+    }
+
+    private static R getFieldCharR(STFldCharType fieldCharType) {
+        final ObjectFactory objectFactory = Context.getWmlObjectFactory();
+        final FldChar fldChar = objectFactory.createFldChar();
+        fldChar.setFldCharType(fieldCharType);
+        return getRBuilder().addContent(objectFactory.createRFldChar(fldChar)).getObject();
+    }
+
     static TcPr getNilBorderColumnProperties() {
         return getTcPrBuilder().withTcBorders(getNilBorders()).getObject();
     }
@@ -235,7 +416,7 @@ public final class WmlHelper {
                 .withEastAsiaTheme(STTheme.MAJOR_EAST_ASIA).getObject();
         final RPr rpr = getRPrBuilder().withRFonts(rFonts).getObject();
         return getStyleBuilder().withType("paragraph").withStyleId("TOCArabic").withCustomStyle(true)
-                .withName("TOCArabic").withBasedOn("TOC1").withQFormat(true).withRsid(IdGenerator.nextId())
+                .withName("TOCArabic").withBasedOn("TOC1").withQFormat(true).withRsid(new IdAllocator().nextId())
                 .withPPr(ppr).withRPr(rpr).getObject();
     }
 
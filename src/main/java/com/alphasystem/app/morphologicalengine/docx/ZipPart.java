@@ -0,0 +1,79 @@
+package com.alphasystem.app.morphologicalengine.docx;
+
+import java.io.ByteArrayOutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Zip entry whose data has already been compressed, used to write static parts of a package without compressing
+ * them again.
+ *
+ * @author sali
+ */
+final class ZipPart {
+
+    static final int STORED = 0;
+    static final int DEFLATED = 8;
+
+    private final String name;
+    private final int method;
+    private final long crc;
+    private final long size;
+    private final byte[] data;
+
+    private ZipPart(String name, int method, long crc, long size, byte[] data) {
+        this.name = name;
+        this.method = method;
+        this.crc = crc;
+        this.size = size;
+        this.data = data;
+    }
+
+    /**
+     * @param name             entry name
+     * @param content          uncompressed content
+     * @param compressionLevel {@link Deflater} compression level, <code>0</code> stores content without compression
+     * @return zip part
+     */
+    static ZipPart of(String name, byte[] content, int compressionLevel) {
+        final CRC32 crc32 = new CRC32();
+        crc32.update(content, 0, content.length);
+        if (compressionLevel == Deflater.NO_COMPRESSION) {
+            return new ZipPart(name, STORED, crc32.getValue(), content.length, content);
+        }
+        final Deflater deflater = new Deflater(compressionLevel, true);
+        try {
+            deflater.setInput(content);
+            deflater.finish();
+            final byte[] buffer = new byte[Math.max(64, content.length / 2)];
+            final ByteArrayOutputStream outputStream = new ByteArrayOutputStream(buffer.length);
+            while (!deflater.finished()) {
+                final int length = deflater.deflate(buffer);
+                outputStream.write(buffer, 0, length);
+            }
+            return new ZipPart(name, DEFLATED, crc32.getValue(), content.length, outputStream.toByteArray());
+        } finally {
+            deflater.end();
+        }
+    }
+
+    String getName() {
+        return name;
+    }
+
+    int getMethod() {
+        return method;
+    }
+
+    long getCrc() {
+        return crc;
+    }
+
+    long getSize() {
+        return size;
+    }
+
+    byte[] getData() {
+        return data;
+    }
+}
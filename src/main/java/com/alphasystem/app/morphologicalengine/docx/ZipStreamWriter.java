@@ -0,0 +1,239 @@
+package com.alphasystem.app.morphologicalengine.docx;
+
+import java.io.Closeable;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Minimal zip writer which streams entries directly to the underlying stream. Unlike
+ * {@link java.util.zip.ZipOutputStream} it can write already compressed {@link ZipPart}s as is.
+ * <p>
+ * Streamed entries are always deflated using given compression level and are followed by a data descriptor, with
+ * compression level <code>0</code> they are written as non compressed deflate blocks so that they can still be
+ * streamed. Zip64 is not supported, entries and archive must be smaller than 4GB. Entries are written with a fixed
+ * timestamp so that same content produces same bytes.
+ * </p>
+ * <p>
+ * Writer must be closed, closing a writer which is not finished aborts it, leaving an incomplete archive.
+ * </p>
+ *
+ * @author sali
+ */
+final class ZipStreamWriter implements Closeable {
+
+    private static final int LOCAL_FILE_HEADER_SIGNATURE = 0x04034b50;
+    private static final int DATA_DESCRIPTOR_SIGNATURE = 0x08074b50;
+    private static final int CENTRAL_FILE_HEADER_SIGNATURE = 0x02014b50;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+    private static final int VERSION = 20;
+    private static final int FLAG_DATA_DESCRIPTOR = 1 << 3;
+    private static final int FLAG_UTF8 = 1 << 11;
+    // 1980-01-01 00:00:00
+    private static final int DOS_TIME = 0;
+    private static final int DOS_DATE = (1 << 5) | 1;
+
+    private final CountingOutputStream outputStream;
+    private final Deflater deflater;
+    private final List<Entry> entries = new ArrayList<>();
+    private boolean entryOpen;
+    private boolean finished;
+
+    ZipStreamWriter(OutputStream outputStream, int compressionLevel) {
+        this.outputStream = new CountingOutputStream(outputStream);
+        this.deflater = new Deflater(compressionLevel, true);
+    }
+
+    /**
+     * Writes already compressed part.
+     */
+    void writePart(ZipPart part) throws IOException {
+        checkState();
+        final Entry entry = new Entry(part.getName(), part.getMethod(), FLAG_UTF8, outputStream.getCount());
+        entry.crc = part.getCrc();
+        entry.size = part.getSize();
+        entry.compressedSize = part.getData().length;
+        writeLocalFileHeader(entry);
+        outputStream.write(part.getData());
+        entries.add(entry);
+    }
+
+    /**
+     * Starts a new streamed entry, returned stream must be closed before next entry is written.
+     */
+    OutputStream startEntry(String name) throws IOException {
+        checkState();
+        final Entry entry = new Entry(name, ZipPart.DEFLATED, FLAG_UTF8 | FLAG_DATA_DESCRIPTOR, outputStream.getCount());
+        writeLocalFileHeader(entry);
+        entryOpen = true;
+        return new EntryOutputStream(entry);
+    }
+
+    /**
+     * Writes central directory, underlying stream is flushed but not closed.
+     */
+    void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        checkState();
+        final long centralDirectoryOffset = outputStream.getCount();
+        for (Entry entry : entries) {
+            final byte[] name = entry.name.getBytes(StandardCharsets.UTF_8);
+            writeInt(CENTRAL_FILE_HEADER_SIGNATURE);
+            writeShort(VERSION);
+            writeShort(VERSION);
+            writeShort(entry.flags);
+            writeShort(entry.method);
+            writeShort(DOS_TIME);
+            writeShort(DOS_DATE);
+            writeInt(entry.crc);
+            writeInt(entry.compressedSize);
+            writeInt(entry.size);
+            writeShort(name.length);
+            writeShort(0); // extra field length
+            writeShort(0); // comment length
+            writeShort(0); // disk number
+            writeShort(0); // internal attributes
+            writeInt(0); // external attributes
+            writeInt(entry.offset);
+            outputStream.write(name);
+        }
+        final long centralDirectorySize = outputStream.getCount() - centralDirectoryOffset;
+        writeInt(END_OF_CENTRAL_DIRECTORY_SIGNATURE);
+        writeShort(0);
+        writeShort(0);
+        writeShort(entries.size());
+        writeShort(entries.size());
+        writeInt(centralDirectorySize);
+        writeInt(centralDirectoryOffset);
+        writeShort(0);
+        outputStream.flush();
+        deflater.end();
+        finished = true;
+    }
+
+    /**
+     * Releases the deflater, writer which is not finished is aborted without writing central directory. Underlying
+     * stream is not closed.
+     */
+    @Override
+    public void close() {
+        if (!finished) {
+            finished = true;
+            deflater.end();
+        }
+    }
+
+    private void checkState() {
+        if (finished) {
+            throw new IllegalStateException("Zip stream is already finished");
+        }
+        if (entryOpen) {
+            throw new IllegalStateException("Previous entry is not closed");
+        }
+    }
+
+    private void writeLocalFileHeader(Entry entry) throws IOException {
+        final byte[] name = entry.name.getBytes(StandardCharsets.UTF_8);
+        writeInt(LOCAL_FILE_HEADER_SIGNATURE);
+        writeShort(VERSION);
+        writeShort(entry.flags);
+        writeShort(entry.method);
+        writeShort(DOS_TIME);
+        writeShort(DOS_DATE);
+        writeInt(entry.crc);
+        writeInt(entry.compressedSize);
+        writeInt(entry.size);
+        writeShort(name.length);
+        writeShort(0);
+        outputStream.write(name);
+    }
+
+    private void writeShort(int value) throws IOException {
+        outputStream.write(value & 0xff);
+        outputStream.write((value >>> 8) & 0xff);
+    }
+
+    private void writeInt(long value) throws IOException {
+        writeShort((int) (value & 0xffff));
+        writeShort((int) ((value >>> 16) & 0xffff));
+    }
+
+    private static final class Entry {
+
+        private final String name;
+        private final int method;
+        private final int flags;
+        private final long offset;
+        private long crc;
+        private long size;
+        private long compressedSize;
+
+        private Entry(String name, int method, int flags, long offset) {
+            this.name = name;
+            this.method = method;
+            this.flags = flags;
+            this.offset = offset;
+        }
+    }
+
+    private final class EntryOutputStream extends OutputStream {
+
+        private final Entry entry;
+        private final CRC32 crc32 = new CRC32();
+        private final DeflaterOutputStream deflaterOutputStream;
+        private final long dataOffset;
+        private boolean closed;
+
+        private EntryOutputStream(Entry entry) {
+            this.entry = entry;
+            this.dataOffset = outputStream.getCount();
+            // shield underlying stream, deflater output stream is only ever finished, never closed
+            this.deflaterOutputStream = new DeflaterOutputStream(new FilterOutputStream(outputStream) {
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                }
+            }, deflater, 8192);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            crc32.update(b);
+            entry.size++;
+            deflaterOutputStream.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            crc32.update(b, off, len);
+            entry.size += len;
+            deflaterOutputStream.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            deflaterOutputStream.finish();
+            deflater.reset();
+            entry.crc = crc32.getValue();
+            entry.compressedSize = outputStream.getCount() - dataOffset;
+            writeInt(DATA_DESCRIPTOR_SIGNATURE);
+            writeInt(entry.crc);
+            writeInt(entry.compressedSize);
+            writeInt(entry.size);
+            entries.add(entry);
+            entryOpen = false;
+        }
+    }
+}
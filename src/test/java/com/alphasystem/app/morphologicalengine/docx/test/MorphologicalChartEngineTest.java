@@ -1,5 +1,6 @@
 package com.alphasystem.app.morphologicalengine.docx.test;
 
+import com.alphasystem.app.morphologicalengine.conjugation.builder.ConjugationBuilder;
 import com.alphasystem.app.morphologicalengine.docx.*;
 import com.alphasystem.app.morphologicalengine.spring.MorphologicalEngineConfiguration;
 import com.alphasystem.arabic.model.NamedTemplate;
@@ -9,19 +10,58 @@ import com.alphasystem.morphologicalanalysis.morphology.model.ConjugationData;
 import com.alphasystem.morphologicalanalysis.morphology.model.ConjugationTemplate;
 import com.alphasystem.morphologicalanalysis.morphology.model.RootLetters;
 import com.alphasystem.morphologicalanalysis.morphology.model.support.VerbalNoun;
+import com.alphasystem.morphologicalengine.model.MorphologicalChart;
 import org.apache.commons.lang3.ArrayUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.docx4j.openpackaging.exceptions.Docx4JException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.testng.AbstractTestNGSpringContextTests;
 import org.testng.Assert;
 import org.testng.annotations.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
 
+import javax.xml.parsers.DocumentBuilderFactory;
 import java.awt.*;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
 
 import static com.alphasystem.arabic.model.ArabicLetterType.*;
 import static com.alphasystem.arabic.model.NamedTemplate.*;
@@ -36,9 +76,16 @@ import static org.testng.Reporter.log;
  * @author sali
  */
 @ContextConfiguration(classes = {MorphologicalEngineConfiguration.class, MorphologicalChartConfiguration.class})
+@TestPropertySource(properties = "morphological.chart.cache.size=1000")
 public class MorphologicalChartEngineTest extends AbstractTestNGSpringContextTests {
 
     private static final Path parentDocDir;
+    private static final Pattern SECTION_MARKER_PATTERN = Pattern.compile(
+            "<w:bookmarkStart\\s+w:id=\"\\d+\"\\s+w:name=\"(_MC[0-9A-F]{24})\"\\s*/>");
+    private static final Pattern BOOKMARK_START_PATTERN = Pattern.compile(
+            "<w:bookmarkStart\\s+w:id=\"(\\d+)\"\\s+w:name=\"([^\"]+)\"");
+    private static final Pattern ANCHOR_PATTERN = Pattern.compile("<w:hyperlink\\b[^>]*\\sw:anchor=\"([^\"]+)\"");
+    private static final Pattern BOOKMARK_END_PATTERN = Pattern.compile("<w:bookmarkEnd\\s+w:id=\"(\\d+)\"");
 
     static {
         parentDocDir = get(getProperty("target.dir"), "docs");
@@ -60,6 +107,18 @@ public class MorphologicalChartEngineTest extends AbstractTestNGSpringContextTes
     @Autowired
     private MorphologicalChartEngineFactory morphologicalChartEngineFactory;
 
+    @Autowired
+    private MorphologicalChartCache morphologicalChartCache;
+
+    @Autowired
+    private MorphologicalChartBatchService morphologicalChartBatchService;
+
+    @Autowired
+    private MorphologicalChartRenderer morphologicalChartRenderer;
+
+    @Autowired
+    private ConjugationBuilder conjugationBuilder;
+
     @Test
     public void testCreateEmptyDocument() {
         final Path path = get(parentDocDir.toString(), "mydoc.docx");
@@ -114,6 +173,730 @@ public class MorphologicalChartEngineTest extends AbstractTestNGSpringContextTes
         openFile(path);
     }
 
+    @Test(dependsOnMethods = {"runConjugationBuilder"})
+    public void writeToOutputStream() {
+        final ConjugationTemplate conjugationTemplate = getConjugationTemplate(getChartConfiguration());
+        MorphologicalChartEngine morphologicalChartEngine = morphologicalChartEngineFactory.createMorphologicalChartEngine(conjugationTemplate);
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try {
+            morphologicalChartEngine.createDocument(outputStream);
+        } catch (Docx4JException e) {
+            fail("Failed to write document", e);
+        }
+        final byte[] bytes = outputStream.toByteArray();
+        Assert.assertTrue(bytes.length > 4);
+        Assert.assertEquals(bytes[0], (byte) 'P');
+        Assert.assertEquals(bytes[1], (byte) 'K');
+    }
+
+    @Test(dependsOnMethods = {"buildDetailConjugations"})
+    public void verifyChartCache() {
+        log(format("Chart Cache: %s", morphologicalChartCache), true);
+        Assert.assertTrue(morphologicalChartCache.getHitCount() > 0);
+        Assert.assertTrue(morphologicalChartCache.size() <= morphologicalChartCache.getMaximumSize());
+    }
+
+    @Test(dependsOnMethods = {"runConjugationBuilder"})
+    public void renderBatch() {
+        final List<MorphologicalChartBatchService.Job> jobs = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            jobs.add(MorphologicalChartBatchService.Job.of(getConjugationTemplate(getChartConfiguration()),
+                    get(parentDocDir.toString(), format("batch-%s.docx", i))));
+        }
+        try {
+            final List<MorphologicalChartBatchService.Result> results = morphologicalChartBatchService.render(jobs, null);
+            Assert.assertEquals(results.size(), jobs.size());
+            for (MorphologicalChartBatchService.Result result : results) {
+                Assert.assertTrue(result.isSuccess(), format("Failed to create document {%s}", result.getDestination()));
+                Assert.assertTrue(Files.exists(result.getDestination()));
+            }
+        } catch (InterruptedException e) {
+            fail("Batch interrupted", e);
+        }
+    }
+
+    @Test(dependsOnMethods = {"runConjugationBuilder"})
+    public void renderBatchWithFailingConsumer() {
+        final List<MorphologicalChartBatchService.Job> jobs = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            jobs.add(MorphologicalChartBatchService.Job.of(getConjugationTemplate(getChartConfiguration()),
+                    get(parentDocDir.toString(), format("batch-consumer-%s.docx", i))));
+        }
+        final long consumerFailureCount = morphologicalChartBatchService.getConsumerFailureCount();
+        try {
+            final List<MorphologicalChartBatchService.Result> results = morphologicalChartBatchService.render(jobs,
+                    result -> {
+                        throw new IllegalStateException("Consumer failure");
+                    });
+            Assert.assertEquals(results.size(), jobs.size());
+            results.forEach(result -> Assert.assertTrue(result.isSuccess()));
+            Assert.assertEquals(morphologicalChartBatchService.getConsumerFailureCount() - consumerFailureCount,
+                    (long) jobs.size());
+        } catch (InterruptedException e) {
+            fail("Batch interrupted", e);
+        }
+    }
+
+    @Test(dependsOnMethods = {"runConjugationBuilder"})
+    public void createVolumes() {
+        final ConjugationTemplate conjugationTemplate = getConjugationTemplate(getChartConfiguration());
+        MorphologicalChartEngine morphologicalChartEngine = morphologicalChartEngineFactory.createMorphologicalChartEngine(conjugationTemplate);
+        try {
+            final List<Path> volumes = morphologicalChartEngine.createVolumes(parentDocDir, "volume", 2, 0);
+            Assert.assertEquals(volumes.size(), (conjugationTemplate.getData().size() + 1) / 2);
+            volumes.forEach(path -> Assert.assertTrue(Files.exists(path)));
+            Assert.assertTrue(Files.exists(get(parentDocDir.toString(), "volume-index.json")));
+        } catch (Docx4JException e) {
+            fail("Failed to create volumes", e);
+        }
+    }
+
+    @Test(dependsOnMethods = {"runConjugationBuilder"})
+    public void updateDocument() {
+        final Path path = get(parentDocDir.toString(), "updated-conjugations.docx");
+        final ConjugationTemplate conjugationTemplate = getConjugationTemplate(getChartConfiguration());
+        try (MorphologicalChartRenderer renderer = MorphologicalChartRenderer.builder(conjugationBuilder)
+                .outputBackend(OutputBackend.STAX).build()) {
+            renderer.render(conjugationTemplate, path);
+            final Map<String, String> previousSections = getSectionsByMarker(path);
+            Assert.assertEquals(previousSections.size(), conjugationTemplate.getData().size());
+
+            conjugationTemplate.getData().get(1).setTranslation("To Speak");
+            renderer.update(conjugationTemplate, path, path);
+            final Map<String, String> sections = getSectionsByMarker(path);
+            Assert.assertEquals(sections.size(), previousSections.size());
+            int numOfReusedSections = 0;
+            for (Map.Entry<String, String> entry : sections.entrySet()) {
+                final String previousSection = previousSections.get(entry.getKey());
+                if (previousSection == null) {
+                    Assert.assertTrue(entry.getValue().contains("To Speak"), "Changed section not rebuilt");
+                } else {
+                    Assert.assertEquals(entry.getValue(), previousSection, "Unchanged section not reused as is");
+                    numOfReusedSections++;
+                }
+            }
+            Assert.assertEquals(numOfReusedSections, previousSections.size() - 1);
+        } catch (Docx4JException | IOException e) {
+            fail(format("Failed to update document {%s}", path), e);
+        }
+    }
+
+    @Test(dependsOnMethods = {"runConjugationBuilder"})
+    public void spliceTableFragments() {
+        final Path path = get(parentDocDir.toString(), "spliced-conjugations.docx");
+        final ConjugationTemplate conjugationTemplate = new ConjugationTemplate();
+        conjugationTemplate.setChartConfiguration(getChartConfiguration());
+        conjugationTemplate.withData(getConjugationData(FORM_II_TEMPLATE, "To know", new RootLetters(AIN, LAM, MEEM)));
+        // same root twice, second one is spliced from the fragment cache
+        for (int i = 0; i < 2; i++) {
+            conjugationTemplate.withData(getConjugationData(FORM_I_CATEGORY_A_GROUP_U_TEMPLATE, "To Help",
+                    new RootLetters(NOON, SAD, RA), VERBAL_NOUN_V1));
+        }
+        try {
+            render(MorphologicalChartRenderer.builder(conjugationBuilder).outputBackend(OutputBackend.STAX),
+                    conjugationTemplate, path);
+            final String xml = getDocumentXml(path);
+            final Set<String> ids = new HashSet<>();
+            final Set<String> names = new HashSet<>();
+            int numOfBookmarks = 0;
+            final Matcher startMatcher = BOOKMARK_START_PATTERN.matcher(xml);
+            while (startMatcher.find()) {
+                numOfBookmarks++;
+                Assert.assertTrue(ids.add(startMatcher.group(1)), format("Duplicate bookmark id %s", startMatcher.group(1)));
+                if (!startMatcher.group(2).startsWith("_MC")) {
+                    Assert.assertTrue(names.add(startMatcher.group(2)),
+                            format("Duplicate bookmark name %s", startMatcher.group(2)));
+                }
+            }
+            final Set<String> endIds = new HashSet<>();
+            final Matcher endMatcher = BOOKMARK_END_PATTERN.matcher(xml);
+            while (endMatcher.find()) {
+                Assert.assertTrue(endIds.add(endMatcher.group(1)), format("Duplicate bookmark end %s", endMatcher.group(1)));
+            }
+            Assert.assertEquals(endIds, ids);
+            Assert.assertTrue(numOfBookmarks > conjugationTemplate.getData().size());
+
+            // apart from bookmark ids, spliced section is identical to the one it was captured from
+            final List<String> sections = getSections(xml);
+            Assert.assertEquals(sections.size(), 3);
+            Assert.assertEquals(maskBookmarkIds(sections.get(2)), maskBookmarkIds(sections.get(1)));
+        } catch (Docx4JException | IOException e) {
+            fail(format("Failed to create document {%s}", path), e);
+        }
+    }
+
+    @Test(dependsOnMethods = {"runConjugationBuilder"})
+    public void precomputedTocBookmarkIds() {
+        final Path path = get(parentDocDir.toString(), "precomputed-toc-conjugations.docx");
+        final ConjugationTemplate conjugationTemplate = getConjugationTemplate(getChartConfiguration());
+        // duplicate entry adds a body bookmark in front of the chart it links back to
+        conjugationTemplate.withData(getConjugationData(FORM_I_CATEGORY_A_GROUP_U_TEMPLATE, "To Help",
+                new RootLetters(NOON, SAD, RA), VERBAL_NOUN_V1));
+        try (MorphologicalChartRenderer renderer = MorphologicalChartRenderer.builder(conjugationBuilder)
+                .outputBackend(OutputBackend.JAXB).precomputedToc(true).collapseDuplicates(true).build()) {
+            renderer.render(conjugationTemplate, path);
+            final List<String> names = getBookmarkNames(getDocumentXml(path));
+            // TOC heading, chart titles and chart anchors all draw from the bookmark sequence of the document
+            Assert.assertTrue(names.size() > conjugationTemplate.getData().size(), names.toString());
+        } catch (Docx4JException | IOException e) {
+            fail(format("Failed to create document {%s}", path), e);
+        }
+    }
+
+    @Test(dependsOnMethods = {"runConjugationBuilder"})
+    public void precomputedTocAnchors() {
+        final ConjugationTemplate conjugationTemplate = getConjugationTemplate(getChartConfiguration());
+        final int numOfEntries = conjugationTemplate.getData().size();
+        for (OutputBackend outputBackend : OutputBackend.values()) {
+            final Path path = get(parentDocDir.toString(), format("precomputed-toc-%s.docx",
+                    outputBackend.name().toLowerCase(Locale.ROOT)));
+            try {
+                render(MorphologicalChartRenderer.builder(conjugationBuilder).outputBackend(outputBackend)
+                        .precomputedToc(true), conjugationTemplate, path);
+                final String xml = getDocumentXml(path);
+                final Set<String> names = new HashSet<>(getBookmarkNames(xml));
+                final List<String> tocAnchors = new ArrayList<>();
+                final Matcher matcher = ANCHOR_PATTERN.matcher(xml);
+                while (matcher.find()) {
+                    // TOC entries link to charts, back links to the TOC heading
+                    Assert.assertTrue(names.contains(matcher.group(1)), format("%s: no bookmark %s", outputBackend,
+                            matcher.group(1)));
+                    if (matcher.group(1).startsWith("_TocChart")) {
+                        tocAnchors.add(matcher.group(1));
+                    }
+                }
+                final List<String> expectedAnchors = IntStream.range(0, numOfEntries)
+                        .mapToObj(index -> format("_TocChart%d", index)).collect(Collectors.toList());
+                Assert.assertEquals(tocAnchors, expectedAnchors, outputBackend.name());
+                Assert.assertTrue(xml.contains("TOC \\"), outputBackend.name());
+                Assert.assertFalse(xml.contains("w:dirty=\"true\""), outputBackend.name());
+            } catch (Docx4JException | IOException e) {
+                fail(format("Failed to create document {%s}", path), e);
+            }
+        }
+    }
+
+    @Test(dependsOnMethods = {"runConjugationBuilder"})
+    public void createHtml() {
+        final ConjugationTemplate conjugationTemplate = getConjugationTemplate(getChartConfiguration());
+        MorphologicalChartEngine morphologicalChartEngine = morphologicalChartEngineFactory.createMorphologicalChartEngine(conjugationTemplate);
+        final StringWriter writer = new StringWriter();
+        try {
+            morphologicalChartEngine.createHtml(writer);
+        } catch (IOException e) {
+            fail("Failed to write HTML", e);
+        }
+        final String html = writer.toString();
+        Assert.assertTrue(html.startsWith("<table class=\"abbreviated-conjugation\""));
+        final List<MorphologicalChart> charts = morphologicalChartEngine.createMorphologicalCharts();
+        final long detailedCount = charts.stream().filter(chart -> chart.getDetailedConjugation() != null).count();
+        Assert.assertEquals(StringUtils.countMatches(html, "<table class=\"abbreviated-conjugation\""), charts.size());
+        Assert.assertEquals(StringUtils.countMatches(html, "<table class=\"detailed-conjugation\""), detailedCount);
+        final String label = charts.get(0).getAbbreviatedConjugation().getPastTense().getLabel();
+        Assert.assertTrue(label.chars().anyMatch(c -> c >= '\u0600' && c <= '\u06FF'), label);
+        Assert.assertTrue(html.contains(format(">%s</p></td>", label)), label);
+    }
+
+    @Test(dependsOnMethods = {"runConjugationBuilder"})
+    public void exportCharts() {
+        final ConjugationTemplate conjugationTemplate = getConjugationTemplate(getChartConfiguration());
+        MorphologicalChartEngine morphologicalChartEngine = morphologicalChartEngineFactory.createMorphologicalChartEngine(conjugationTemplate);
+        final StringWriter writer = new StringWriter();
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try {
+            morphologicalChartEngine.exportJson(writer);
+            morphologicalChartEngine.exportBinary(outputStream);
+        } catch (IOException e) {
+            fail("Failed to export charts", e);
+        }
+        final String json = writer.toString();
+        Assert.assertTrue(json.startsWith("{\"charts\":[{\"id\":"));
+        final MorphologicalChart morphologicalChart = morphologicalChartEngine.createMorphologicalCharts().get(0);
+        final String label = morphologicalChart.getAbbreviatedConjugation().getPastTense().getLabel();
+        Assert.assertTrue(json.contains(format("\"pastTense\":\"%s\"", label)), label);
+
+        // binary export read back must hold the same charts as JSON export
+        final StringWriter roundTripWriter = new StringWriter();
+        final List<String> ids = new ArrayList<>();
+        try {
+            final MorphologicalChartExporter exporter = MorphologicalChartExporter.json(roundTripWriter);
+            MorphologicalChartExporter.readBinary(new ByteArrayInputStream(outputStream.toByteArray()), (id, chart) -> {
+                ids.add(id);
+                try {
+                    exporter.writeChart(id, chart);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            exporter.finish();
+        } catch (IOException e) {
+            fail("Failed to read binary export", e);
+        }
+        Assert.assertEquals(ids.size(), conjugationTemplate.getData().size());
+        Assert.assertEquals(roundTripWriter.toString(), json);
+    }
+
+    @Test(dependsOnMethods = {"runConjugationBuilder"})
+    public void renderConcurrently() {
+        final ByteArrayOutputStream referenceOutputStream = new ByteArrayOutputStream();
+        try {
+            morphologicalChartRenderer.render(getConjugationTemplate(getChartConfiguration()), referenceOutputStream);
+        } catch (Docx4JException e) {
+            fail("Failed to write document", e);
+        }
+        final List<byte[]> documents = IntStream.range(0, 4).parallel().mapToObj(i -> {
+            final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            try {
+                morphologicalChartRenderer.render(getConjugationTemplate(getChartConfiguration()), outputStream);
+            } catch (Docx4JException e) {
+                throw new IllegalStateException(e);
+            }
+            return outputStream.toByteArray();
+        }).collect(Collectors.toList());
+        // documents rendered concurrently must not affect each other's markup
+        final byte[] reference = readEntry(referenceOutputStream.toByteArray(), "word/document.xml");
+        documents.forEach(bytes -> Assert.assertEquals(readEntry(bytes, "word/document.xml"), reference));
+    }
+
+    @Test(dependsOnMethods = {"runConjugationBuilder"})
+    public void renderAsync() {
+        final Path path = get(parentDocDir.toString(), "async-conjugations.docx");
+        final ConjugationTemplate conjugationTemplate = getConjugationTemplate(getChartConfiguration());
+        try {
+            morphologicalChartRenderer.renderAsync(conjugationTemplate, path, ForkJoinPool.commonPool(), null).get();
+            Assert.assertTrue(Files.exists(path));
+        } catch (InterruptedException | ExecutionException e) {
+            fail(format("Failed to create document {%s}", path), e);
+        }
+
+        final Path expiredPath = get(parentDocDir.toString(), "expired-conjugations.docx");
+        try {
+            morphologicalChartRenderer.renderAsync(conjugationTemplate, expiredPath, ForkJoinPool.commonPool(),
+                    Duration.ZERO).get();
+            fail("Deadline not honored");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof TimeoutException);
+            Assert.assertFalse(Files.exists(expiredPath));
+        } catch (InterruptedException e) {
+            fail("Interrupted", e);
+        }
+
+        // deadline is enforced even if generation never gets to check it
+        try {
+            morphologicalChartRenderer.renderAsync(conjugationTemplate, expiredPath, command -> {
+            }, Duration.ofMillis(50)).get(10, TimeUnit.SECONDS);
+            fail("Deadline not honored");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof TimeoutException);
+        } catch (InterruptedException | TimeoutException e) {
+            fail("Deadline not enforced", e);
+        }
+
+        try {
+            morphologicalChartRenderer.renderAsync(conjugationTemplate, expiredPath, command -> {
+                throw new RejectedExecutionException("Rejected");
+            }, null).get();
+            fail("Rejection not reported");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof RejectedExecutionException);
+        } catch (InterruptedException e) {
+            fail("Interrupted", e);
+        }
+    }
+
+    @Test(dependsOnMethods = {"runConjugationBuilder"})
+    public void renderPipelined() {
+        final ByteArrayOutputStream referenceOutputStream = new ByteArrayOutputStream();
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (MorphologicalChartRenderer sequential = MorphologicalChartRenderer.builder(conjugationBuilder).build();
+             MorphologicalChartRenderer pipelined = MorphologicalChartRenderer.builder(conjugationBuilder)
+                     .parallel(true).pipelineDepth(2).build()) {
+            sequential.render(getConjugationTemplate(getChartConfiguration()), referenceOutputStream);
+            pipelined.render(getConjugationTemplate(getChartConfiguration()), outputStream);
+            // charts conjugated out of order are still rendered in input order
+            Assert.assertEquals(readEntry(outputStream.toByteArray(), "word/document.xml"),
+                    readEntry(referenceOutputStream.toByteArray(), "word/document.xml"));
+
+            // entry without template can not be conjugated, failure is reported with its index
+            final ConjugationTemplate conjugationTemplate = getConjugationTemplate(getChartConfiguration());
+            conjugationTemplate.getData().get(2).setTemplate(null);
+            try {
+                pipelined.render(conjugationTemplate, new ByteArrayOutputStream());
+                fail("Failed entry not reported");
+            } catch (MorphologicalChartException e) {
+                Assert.assertEquals(e.getIndex(), 2);
+                Assert.assertSame(e.getConjugationData(), conjugationTemplate.getData().get(2));
+            }
+        } catch (Docx4JException e) {
+            fail("Failed to write document", e);
+        }
+    }
+
+    @Test(dependsOnMethods = {"runConjugationBuilder"})
+    public void generationMetrics() {
+        final ConjugationTemplate conjugationTemplate = getConjugationTemplate(getChartConfiguration());
+        final long numOfCharts = conjugationTemplate.getData().size();
+        final List<Long> documentIds = new ArrayList<>();
+        final List<GenerationEvent> slowestCharts = new ArrayList<>();
+        final DocumentGenerationMetrics metrics = new DocumentGenerationMetrics(3) {
+            @Override
+            protected void onSlowestCharts(GenerationEvent documentEvent, List<GenerationEvent> events) {
+                documentIds.add(documentEvent.getDocumentId());
+                slowestCharts.addAll(events);
+            }
+        };
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (MorphologicalChartRenderer renderer = MorphologicalChartRenderer.builder(conjugationBuilder)
+                .outputBackend(OutputBackend.JAXB).listener(metrics).build()) {
+            renderer.render(conjugationTemplate, outputStream);
+        } catch (Docx4JException e) {
+            fail("Failed to write document", e);
+        }
+        log(format("Metrics: %s", metrics), true);
+        Assert.assertEquals(metrics.getCount(GenerationEvent.Phase.DOCUMENT), 1L);
+        Assert.assertEquals(metrics.getCount(GenerationEvent.Phase.PACKAGE_SETUP), 1L);
+        Assert.assertEquals(metrics.getCount(GenerationEvent.Phase.TOC), 1L);
+        Assert.assertEquals(metrics.getCount(GenerationEvent.Phase.SAVE), 1L);
+        Assert.assertEquals(metrics.getCount(GenerationEvent.Phase.CONJUGATION), numOfCharts);
+        Assert.assertEquals(metrics.getCount(GenerationEvent.Phase.ABBREVIATED_TABLE), numOfCharts);
+        Assert.assertEquals(metrics.getCount(GenerationEvent.Phase.DETAILED_TABLE), numOfCharts);
+        Assert.assertEquals(metrics.getChartCount(), numOfCharts);
+        Assert.assertEquals(metrics.getByteCount(), (long) outputStream.size());
+
+        // three slowest conjugations of the document, slowest first
+        Assert.assertEquals(documentIds.size(), 1);
+        Assert.assertEquals(slowestCharts.size(), 3);
+        long previousDuration = Long.MAX_VALUE;
+        for (GenerationEvent event : slowestCharts) {
+            Assert.assertEquals(event.getPhase(), GenerationEvent.Phase.CONJUGATION);
+            Assert.assertEquals(event.getDocumentId(), (long) documentIds.get(0));
+            Assert.assertTrue(event.getDurationNanos() <= previousDuration);
+            previousDuration = event.getDurationNanos();
+        }
+        Assert.assertEquals(slowestCharts.get(0).getDurationNanos(),
+                metrics.getMaxTime(GenerationEvent.Phase.CONJUGATION, TimeUnit.NANOSECONDS));
+    }
+
+    @Test(dependsOnMethods = {"runConjugationBuilder"})
+    public void cancelGeneration() {
+        final Path path = get(parentDocDir.toString(), "cancelled-conjugations.docx");
+        final DocumentGenerationMetrics metrics = new DocumentGenerationMetrics(0);
+        final AtomicReference<CompletableFuture<Void>> future = new AtomicReference<>();
+        final List<Runnable> tasks = new ArrayList<>();
+        try (MorphologicalChartRenderer renderer = MorphologicalChartRenderer.builder(conjugationBuilder)
+                .outputBackend(OutputBackend.JAXB).listener(event -> {
+                    metrics.onEvent(event);
+                    if (GenerationEvent.Phase.CONJUGATION.equals(event.getPhase())) {
+                        future.get().cancel(false);
+                    }
+                }).build()) {
+            Files.deleteIfExists(path);
+            future.set(renderer.renderAsync(getConjugationTemplate(getChartConfiguration()), path, tasks::add, null));
+            Assert.assertEquals(tasks.size(), 1);
+            tasks.get(0).run();
+            Assert.assertTrue(future.get().isCancelled());
+            Assert.assertFalse(Files.exists(path));
+            // generation stops at the first check after cancellation
+            Assert.assertEquals(metrics.getCount(GenerationEvent.Phase.CONJUGATION), 1L);
+            Assert.assertEquals(metrics.getCount(GenerationEvent.Phase.DOCUMENT), 0L);
+        } catch (IOException e) {
+            fail(format("Failed to delete document {%s}", path), e);
+        }
+    }
+
+    @Test(dependsOnMethods = {"runConjugationBuilder"})
+    public void closeRenderer() {
+        final ConjugationTemplate conjugationTemplate = getConjugationTemplate(getChartConfiguration());
+        final MorphologicalChartRenderer.Builder builder = MorphologicalChartRenderer.builder(conjugationBuilder)
+                .parallel(true);
+        try (MorphologicalChartRenderer first = builder.build(); MorphologicalChartRenderer second = builder.build()) {
+            first.close();
+            // each renderer owns its pool, closing one leaves the other usable
+            Assert.assertEquals(second.createMorphologicalCharts(conjugationTemplate).size(),
+                    conjugationTemplate.getData().size());
+            try {
+                first.createMorphologicalCharts(conjugationTemplate);
+                fail("Closed renderer must not create charts in parallel");
+            } catch (RejectedExecutionException | MorphologicalChartException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test(dependsOnMethods = {"runConjugationBuilder"})
+    public void renderWithoutSpring() {
+        final Path path = get(parentDocDir.toString(), "plain-conjugations.docx");
+        try (MorphologicalChartRenderer renderer = MorphologicalChartRenderer.builder(conjugationBuilder)
+                .outputBackend(OutputBackend.STAX).parallel(true).build()) {
+            renderer.warmUp(getChartConfiguration(), 1);
+            renderer.render(getConjugationTemplate(getChartConfiguration()), path);
+            Assert.assertTrue(Files.exists(path));
+        } catch (Docx4JException e) {
+            fail(format("Failed to create document {%s}", path), e);
+        }
+    }
+
+    @Test(dependsOnMethods = {"runConjugationBuilder"})
+    public void staxSectionProperties() {
+        final Path jaxbPath = get(parentDocDir.toString(), "jaxb-section-conjugations.docx");
+        final Path staxPath = get(parentDocDir.toString(), "stax-section-conjugations.docx");
+        final ConjugationTemplate conjugationTemplate = getConjugationTemplate(getChartConfiguration());
+        try {
+            render(MorphologicalChartRenderer.builder(conjugationBuilder).outputBackend(OutputBackend.JAXB),
+                    conjugationTemplate, jaxbPath);
+            render(MorphologicalChartRenderer.builder(conjugationBuilder).outputBackend(OutputBackend.STAX),
+                    conjugationTemplate, staxPath);
+            final List<String> sectionProperties = getSectionProperties(jaxbPath);
+            Assert.assertFalse(sectionProperties.isEmpty());
+            Assert.assertEquals(getSectionProperties(staxPath), sectionProperties);
+        } catch (Exception e) {
+            fail("Failed to compare section properties", e);
+        }
+    }
+
+    @Test(dependsOnMethods = {"runConjugationBuilder"})
+    public void collapseDuplicates() {
+        final ConjugationTemplate conjugationTemplate = getConjugationTemplate(getChartConfiguration());
+        final int numOfEntries = conjugationTemplate.getData().size();
+        conjugationTemplate.withData(getConjugationData(FORM_I_CATEGORY_A_GROUP_U_TEMPLATE, "To Help",
+                new RootLetters(NOON, SAD, RA), VERBAL_NOUN_V1));
+        final List<MorphologicalChart> charts = morphologicalChartRenderer.createMorphologicalCharts(conjugationTemplate);
+        Assert.assertSame(charts.get(numOfEntries), charts.get(0));
+
+        final Path path = get(parentDocDir.toString(), "collapsed-conjugations.docx");
+        try (MorphologicalChartRenderer renderer = MorphologicalChartRenderer.builder(conjugationBuilder)
+                .collapseDuplicates(true).build()) {
+            renderer.render(conjugationTemplate, path);
+            Assert.assertTrue(Files.exists(path));
+        } catch (Docx4JException e) {
+            fail(format("Failed to create document {%s}", path), e);
+        }
+    }
+
+    @Test(dependsOnMethods = {"runConjugationBuilder"})
+    public void renderCsv() {
+        final Path directory = get(parentDocDir.toString(), "csv");
+        final Path csv = directory.resolve("templates.csv");
+        try {
+            Files.createDirectories(directory);
+            Files.deleteIfExists(directory.resolve("first.docx"));
+            Files.deleteIfExists(directory.resolve("second.docx"));
+            Files.write(csv, Arrays.asList(
+                    "output,template,root,translation,verbalNouns,adverbs",
+                    "# entries of the same output form one template",
+                    "first.docx,FORM_I_CATEGORY_A_GROUP_U_TEMPLATE,NOON SAD RA,\"To help, to aid\",VERBAL_NOUN_V1,",
+                    "",
+                    "second.docx,FORM_II_TEMPLATE,AIN LAM MEEM,To know,,",
+                    "first.docx,FORM_IV_TEMPLATE,SEEN LAM MEEM,To submit"), StandardCharsets.UTF_8);
+            MorphologicalChartCli.main(new String[]{"render", csv.toString()});
+            final String first = getDocumentXml(directory.resolve("first.docx"));
+            Assert.assertTrue(first.contains("To help, to aid"));
+            Assert.assertTrue(first.indexOf("To help, to aid") < first.indexOf("To submit"));
+            Assert.assertFalse(first.contains("To know"));
+            final String second = getDocumentXml(directory.resolve("second.docx"));
+            Assert.assertTrue(second.contains("To know"));
+            Assert.assertFalse(second.contains("To submit"));
+
+            // invalid entry is reported with its line and nothing is rendered
+            Files.write(csv, Collections.singletonList("third.docx,FORM_II_TEMPLATE,AIN LAM"), StandardCharsets.UTF_8);
+            try {
+                MorphologicalChartCli.main(new String[]{"render", csv.toString()});
+                fail("Invalid entry not reported");
+            } catch (IllegalArgumentException e) {
+                Assert.assertTrue(e.getMessage().contains(csv + ":1,"), e.getMessage());
+                Assert.assertFalse(Files.exists(directory.resolve("third.docx")));
+            }
+        } catch (Exception e) {
+            fail(format("Failed to render {%s}", csv), e);
+        }
+    }
+
+    @Test(dependsOnMethods = {"runConjugationBuilder"})
+    public void storeCharts() {
+        final Path storePath = get(parentDocDir.toString(), "charts.store");
+        final Path path = get(parentDocDir.toString(), "stored-conjugations.docx");
+        final Path conjugatedPath = get(parentDocDir.toString(), "unstored-conjugations.docx");
+        final ConjugationTemplate conjugationTemplate = getConjugationTemplate(getChartConfiguration());
+        try {
+            final int numOfCharts = MorphologicalChartStore.write(storePath, conjugationTemplate.getData(),
+                    conjugationBuilder);
+            final MorphologicalChartStore store = MorphologicalChartStore.open(storePath, true);
+            Assert.assertEquals(store.size(), numOfCharts);
+            render(MorphologicalChartRenderer.builder(conjugationBuilder).cacheSize(0).store(store)
+                    .outputBackend(OutputBackend.STAX), conjugationTemplate, path);
+            Assert.assertEquals(store.getHitCount(), numOfCharts);
+            Assert.assertEquals(store.getMissCount(), 0L);
+            render(MorphologicalChartRenderer.builder(conjugationBuilder).cacheSize(0)
+                    .outputBackend(OutputBackend.STAX), conjugationTemplate, conjugatedPath);
+            Assert.assertEquals(getDocumentXml(path), getDocumentXml(conjugatedPath));
+
+            // translation is not part of the stored chart
+            conjugationTemplate.getData().get(0).setTranslation("To Aid");
+            render(MorphologicalChartRenderer.builder(conjugationBuilder).cacheSize(0).store(store)
+                    .outputBackend(OutputBackend.STAX), conjugationTemplate, path);
+            Assert.assertEquals(store.getHitCount(), 2L * numOfCharts);
+            Assert.assertEquals(store.getMissCount(), 0L);
+            Assert.assertTrue(getDocumentXml(path).contains("To Aid"));
+            Assert.assertFalse(getDocumentXml(path).contains("To Help"));
+
+            // unreadable chart is conjugated instead
+            final Path corruptStorePath = get(parentDocDir.toString(), "corrupt-charts.store");
+            final byte[] bytes = Files.readAllBytes(storePath);
+            final DataInputStream inputStream = new DataInputStream(new ByteArrayInputStream(bytes));
+            inputStream.readInt();
+            inputStream.readUTF();
+            inputStream.readUTF();
+            final int length = inputStream.readInt();
+            final int chartOffset = bytes.length - inputStream.available();
+            Arrays.fill(bytes, chartOffset, chartOffset + length, (byte) 0);
+            Files.write(corruptStorePath, bytes);
+            final MorphologicalChartStore corruptStore = MorphologicalChartStore.open(corruptStorePath, true);
+            render(MorphologicalChartRenderer.builder(conjugationBuilder).cacheSize(0).store(corruptStore)
+                    .outputBackend(OutputBackend.STAX), conjugationTemplate, path);
+            Assert.assertEquals(corruptStore.getHitCount(), numOfCharts - 1L);
+            Assert.assertEquals(corruptStore.getMissCount(), 1L);
+            Assert.assertTrue(getDocumentXml(path).contains("To Aid"));
+            corruptStore.close();
+
+            // closed store is not read any more
+            store.close();
+            render(MorphologicalChartRenderer.builder(conjugationBuilder).cacheSize(0).store(store)
+                    .outputBackend(OutputBackend.STAX), conjugationTemplate, path);
+            Assert.assertEquals(store.getHitCount(), 2L * numOfCharts);
+            Assert.assertEquals(store.getMissCount(), (long) numOfCharts);
+        } catch (IOException | Docx4JException e) {
+            fail(format("Failed to create document {%s}", path), e);
+        }
+    }
+
+    /**
+     * Asserts ids of bookmarks of given document are unique and every bookmark is ended.
+     *
+     * @return names of bookmarks in document order
+     */
+    private static List<String> getBookmarkNames(String xml) {
+        final Set<String> ids = new HashSet<>();
+        final List<String> names = new ArrayList<>();
+        final Matcher startMatcher = BOOKMARK_START_PATTERN.matcher(xml);
+        while (startMatcher.find()) {
+            Assert.assertTrue(ids.add(startMatcher.group(1)), format("Duplicate bookmark id %s", startMatcher.group(1)));
+            names.add(startMatcher.group(2));
+        }
+        final Set<String> endIds = new HashSet<>();
+        final Matcher endMatcher = BOOKMARK_END_PATTERN.matcher(xml);
+        while (endMatcher.find()) {
+            Assert.assertTrue(endIds.add(endMatcher.group(1)), format("Duplicate bookmark end %s", endMatcher.group(1)));
+        }
+        Assert.assertEquals(endIds, ids);
+        return names;
+    }
+
+    /**
+     * Renders given template with a renderer built by given builder, the renderer is closed afterwards.
+     */
+    private static void render(MorphologicalChartRenderer.Builder builder, ConjugationTemplate conjugationTemplate,
+                               Path path) throws Docx4JException {
+        try (MorphologicalChartRenderer renderer = builder.build()) {
+            renderer.render(conjugationTemplate, path);
+        }
+    }
+
+    private static String maskBookmarkIds(String xml) {
+        return xml.replaceAll("w:id=\"\\d+\"", "w:id=\"0\"").replaceAll("_Chart\\d+", "_Chart0");
+    }
+
+    private static String getDocumentXml(Path path) throws IOException {
+        return new String(readEntry(Files.readAllBytes(path), "word/document.xml"), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return markup of each chart section of given document, starting with its marker, in document order
+     */
+    private static List<String> getSections(String xml) {
+        final int end = xml.lastIndexOf("<w:sectPr");
+        final Matcher matcher = SECTION_MARKER_PATTERN.matcher(xml);
+        final List<String> sections = new ArrayList<>();
+        int start = -1;
+        while (matcher.find() && matcher.start() < end) {
+            if (start >= 0) {
+                sections.add(xml.substring(start, matcher.start()));
+            }
+            start = matcher.start();
+        }
+        if (start >= 0) {
+            sections.add(xml.substring(start, end));
+        }
+        return sections;
+    }
+
+    /**
+     * @return sections of given document keyed by their marker
+     */
+    private static Map<String, String> getSectionsByMarker(Path path) throws IOException {
+        final Map<String, String> sections = new LinkedHashMap<>();
+        for (String section : getSections(getDocumentXml(path))) {
+            final Matcher matcher = SECTION_MARKER_PATTERN.matcher(section);
+            Assert.assertTrue(matcher.lookingAt());
+            sections.put(matcher.group(1), section);
+        }
+        return sections;
+    }
+
+    private static byte[] readEntry(byte[] zip, String name) {
+        try (ZipInputStream zipInputStream = new ZipInputStream(new ByteArrayInputStream(zip))) {
+            ZipEntry entry;
+            while ((entry = zipInputStream.getNextEntry()) != null) {
+                if (name.equals(entry.getName())) {
+                    final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+                    final byte[] buffer = new byte[8192];
+                    int read;
+                    while ((read = zipInputStream.read(buffer)) != -1) {
+                        outputStream.write(buffer, 0, read);
+                    }
+                    return outputStream.toByteArray();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        throw new IllegalArgumentException(format("No entry {%s}", name));
+    }
+
+    /**
+     * @return child elements of the last <code>w:sectPr</code> of given document with their attributes, one per item
+     */
+    private static List<String> getSectionProperties(Path path) throws Exception {
+        final Document document;
+        try (ZipFile zipFile = new ZipFile(path.toFile());
+             InputStream inputStream = zipFile.getInputStream(zipFile.getEntry("word/document.xml"))) {
+            final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setNamespaceAware(true);
+            document = factory.newDocumentBuilder().parse(inputStream);
+        }
+        final NodeList sectPrs = document.getElementsByTagNameNS(
+                "http://schemas.openxmlformats.org/wordprocessingml/2006/main", "sectPr");
+        final List<String> result = new ArrayList<>();
+        if (sectPrs.getLength() == 0) {
+            return result;
+        }
+        for (Node child = sectPrs.item(sectPrs.getLength() - 1).getFirstChild(); child != null;
+             child = child.getNextSibling()) {
+            if (child instanceof Element) {
+                final NamedNodeMap attributes = child.getAttributes();
+                final List<String> values = new ArrayList<>();
+                for (int index = 0; index < attributes.getLength(); index++) {
+                    final Node attribute = attributes.item(index);
+                    if (!"http://www.w3.org/2000/xmlns/".equals(attribute.getNamespaceURI())) {
+                        values.add(format("%s=%s", attribute.getLocalName(), attribute.getNodeValue()));
+                    }
+                }
+                values.sort(null);
+                result.add(format("%s%s", child.getLocalName(), values));
+            }
+        }
+        return result;
+    }
+
     private ChartConfiguration getChartConfiguration() {
         ChartConfiguration chartConfiguration = new ChartConfiguration();
         chartConfiguration.setArabicFontFamily(FontUtilities.defaultArabicFontName);